@@ -0,0 +1,7 @@
+@echo off
+rem Avvia il generatore dal jar prodotto da "mvn -Pappcds package", usando l'archivio AppCDS
+rem (target\bugdataset.jsa) se presente. Opzioni JVM aggiuntive in JAVA_OPTS.
+set "TARGET=%~dp0..\target"
+set "CDS="
+if exist "%TARGET%\bugdataset.jsa" set "CDS=-XX:SharedArchiveFile=%TARGET%\bugdataset.jsa -Xshare:auto"
+java %CDS% %JAVA_OPTS% -jar "%TARGET%\bugdataset.jar" %*
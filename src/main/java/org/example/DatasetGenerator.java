@@ -0,0 +1,589 @@
+package org.example;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.example.config.ProjectConfig;
+import org.example.logic.BugginessLogic;
+import org.example.logic.ExclusionMatcher;
+import org.example.logic.HistoryAnalyzer;
+import org.example.logic.HistoryHorizon;
+import org.example.logic.HistoryShards;
+import org.example.logic.MetricsLogic;
+import org.example.logic.ParseGuard;
+import org.example.logic.PreviewSample;
+import org.example.logic.ReleaseMethodExtractor;
+import org.example.model.*;
+import org.example.services.ComplexityCache;
+import org.example.services.GitService;
+import org.example.services.JiraService;
+import org.example.services.TicketStore;
+import org.example.services.MappedHistoryStore;
+import org.example.services.PmdAnalyzer;
+import org.example.services.ProgressMonitor;
+import org.example.services.ReleaseCatalog;
+import org.example.services.StageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generatore del dataset di un progetto, consumabile come sequenza pull di {@link DatasetRow}.
+ * <p>
+ * {@link #open(ProjectConfig)} esegue le fasi globali (release, ticket JIRA, ciclo di vita dei
+ * bug, analisi storica); le righe vengono poi prodotte solo quando il consumatore le chiede:
+ * ogni release viene estratta e analizzata con PMD al primo next() che la raggiunge, e in
+ * memoria resta solo la release corrente. Il ritmo lo decide il consumatore, quindi il dataset
+ * non viene mai materializzato per intero.
+ * <p>
+ * Il CSV è uno dei consumatori possibili; un job nella stessa JVM può leggere le righe da
+ * {@link #rows()} senza passare dal disco. Il generatore va chiuso (o va chiuso lo stream).
+ */
+public class DatasetGenerator implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(DatasetGenerator.class.getName());
+
+    private final ProjectConfig config;
+    private final GitService gitService;
+    private final List<Release> allReleases;
+    private final List<Release> consideredReleases;
+    private final List<JiraTicket> allTickets;
+    private final HistoryAnalyzer.AnalysisResult analysisResult;
+    private final MethodIdTable idTable;
+    private final MetricsLogic metricsLogic = new MetricsLogic();
+    private final BugginessLogic bugginessLogic;
+    private final ComplexityCache complexityCache;
+    private final ExclusionMatcher exclusions;
+    private final ReleaseMethodExtractor methodExtractor;
+    private final ProgressMonitor progress;
+    private final PreviewSample preview; // null = dataset completo
+    private final PmdAnalyzer smellEngine;
+    private final Map<Release, PmdAnalyzer.ReleaseSmells> pendingSmells = new HashMap<>();
+    private final Set<Release> failedSmells = new HashSet<>(); // analisi PMD fallita: NSmells a 0, niente artefatti
+    private final PipelineStages stages; // null = nessun artefatto intermedio
+    private StageStore.PendingArtifact pendingTable; // tabella della release in corso, salvata a fine release
+    private boolean closed = false;
+
+    private DatasetGenerator(ProjectConfig config, GitService gitService, List<Release> allReleases,
+                             List<Release> consideredReleases, List<JiraTicket> allTickets,
+                             HistoryAnalyzer.AnalysisResult analysisResult, ComplexityCache complexityCache,
+                             ExclusionMatcher exclusions, PreviewSample preview, PipelineStages stages,
+                             ProgressMonitor progress) {
+        this.config = config;
+        this.gitService = gitService;
+        this.allReleases = allReleases;
+        this.consideredReleases = consideredReleases;
+        this.allTickets = allTickets;
+        this.analysisResult = analysisResult;
+        this.idTable = analysisResult.idTable;
+        this.bugginessLogic = new BugginessLogic(allReleases, analysisResult.histories);
+        this.complexityCache = complexityCache;
+        this.exclusions = exclusions;
+        this.preview = preview;
+        this.stages = stages;
+        this.methodExtractor = new ReleaseMethodExtractor(config.getAnalysisThreads(), idTable, complexityCache,
+                new ParseGuard("release", config.getMaxParseBlobBytes(), config.getParseTimeBudgetMs()), exclusions);
+        this.smellEngine = new PmdAnalyzer(config.getAnalysisThreads());
+        this.progress = progress;
+        progress.setComplexityCache(complexityCache);
+        progress.startReleases(consideredReleases.size());
+    }
+
+    /**
+     * Apre il repository ed esegue le fasi che precedono l'analisi per release.
+     */
+    public static DatasetGenerator open(ProjectConfig config) throws IOException, GitAPIException {
+        return open(config, new ProgressMonitor(config.getProjectName()));
+    }
+
+    /**
+     * Come {@link #open(ProjectConfig)}, aggiornando il monitor indicato durante tutte le fasi.
+     */
+    public static DatasetGenerator open(ProjectConfig config, ProgressMonitor progress) throws IOException, GitAPIException {
+        GitService gitService = new GitService(Paths.get(config.getRepoPath()), config.getGitStorageProfile());
+        try {
+            if (config.isPrepareRepository()) {
+                gitService.prepareWalkIndexes();
+            }
+            PipelineStages stages = PipelineStages.open(config);
+            List<Release> allReleases = getReleases(gitService, config, stages);
+            List<JiraTicket> allTickets = loadTickets(config);
+
+            if (stages == null || !stages.loadLifecycles(allTickets, allReleases)) {
+                BugginessLogic lifecycleLogic = new BugginessLogic(allReleases, null, config.getProportionMode());
+                lifecycleLogic.calculateBugLifecycles(allTickets);
+                if (stages != null) stages.saveLifecycles(allTickets);
+            }
+
+            List<Release> consideredReleases = filterReleases(allReleases);
+            ExclusionMatcher exclusions = exclusionMatcher(config);
+            PreviewSample preview = null;
+            if (config.isPreviewEnabled() && !consideredReleases.isEmpty()) {
+                preview = PreviewSample.build(gitService, consideredReleases.get(consideredReleases.size() - 1).getCommit(),
+                        exclusions, config.getPreviewFileRate(), config.getPreviewSeed());
+                consideredReleases = preview.sampleReleases(consideredReleases, config.getPreviewReleases());
+                exclusions = exclusions.restrictedTo(preview::includesPath);
+            }
+            HistoryAnalyzer.AnalysisResult analysisResult = analyzeHistory(gitService, allTickets, consideredReleases, config,
+                    exclusions, preview, stages, progress);
+            ComplexityCache complexityCache = (config.getComplexityCachePath() == null) ? null
+                    : ComplexityCache.open(Paths.get(config.getComplexityCachePath()), complexityCacheStamp());
+            if (stages != null) stages.setTableStamp(complexityCacheStamp());
+            return new DatasetGenerator(config, gitService, allReleases, consideredReleases, allTickets, analysisResult,
+                    complexityCache, exclusions, preview, stages, progress);
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            gitService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ticket di bug fixati del progetto: da JIRA, dall'archivio locale sincronizzato con JIRA o,
+     * in modalità offline, dal solo archivio.
+     */
+    private static List<JiraTicket> loadTickets(ProjectConfig config) throws IOException {
+        if (config.getTicketStoreDir() == null) {
+            if (config.isJiraOffline()) {
+                throw new IllegalStateException("La modalità offline richiede ticketStoreDir per " + config.getProjectName());
+            }
+            return new JiraService().getFixedBugTickets(config.getProjectName());
+        }
+        TicketStore store = TicketStore.load(Paths.get(config.getTicketStoreDir()), config.getProjectName());
+        if (config.isJiraOffline()) {
+            if (store.getLastSync() == null) {
+                throw new IOException("Archivio dei ticket assente o illeggibile, serve una sincronizzazione online: "
+                        + store.getFile());
+            }
+            LOGGER.log(Level.INFO, "Modalità offline: {0} ticket dall''archivio, sincronizzato il {1}.",
+                    new Object[]{store.getTickets().size(), store.getLastSync()});
+            return store.getTickets();
+        }
+        JiraService jiraService = new JiraService();
+        try {
+            return jiraService.syncFixedBugTickets(config.getProjectName(), store);
+        } finally {
+            jiraService.close();
+        }
+    }
+
+    private static ExclusionMatcher exclusionMatcher(ProjectConfig config) {
+        return ExclusionMatcher.parse(config.getExclusionRules(), config.getExclusionHeaderChars());
+    }
+
+    /**
+     * Timbro della cache di complessità: versione delle metriche e livello di linguaggio del parser.
+     */
+    private static String complexityCacheStamp() {
+        return "complexity-v" + MetricsLogic.COMPLEXITY_METRICS_VERSION + "/" + ReleaseMethodExtractor.LANGUAGE_LEVEL;
+    }
+
+    public List<Release> getConsideredReleases() {
+        return consideredReleases;
+    }
+
+    public MethodIdTable getIdTable() {
+        return idTable;
+    }
+
+    /**
+     * Righe del dataset, release per release, calcolate su richiesta. Gli errori di I/O
+     * emergono come {@link UncheckedIOException}. Chiudere lo stream chiude il generatore.
+     */
+    public Stream<DatasetRow> rows() {
+        Spliterator<DatasetRow> spliterator = Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    public Iterator<DatasetRow> iterator() {
+        return new RowIterator();
+    }
+
+    /**
+     * Scorre le release considerate; il contenuto della release successiva viene calcolato
+     * solo quando quella corrente è esaurita. Con gli artefatti intermedi attivi le release già
+     * completate in un'esecuzione precedente vengono rilette, le altre salvate man mano.
+     */
+    private class RowIterator implements Iterator<DatasetRow> {
+        private int nextRelease = 0;
+        private Release currentRelease;
+        private Iterator<DatasetRow> rows = Collections.emptyIterator();
+        private long totalMethods;
+        private int methodCount;
+        private long releaseStartNanos;
+        private long rowCount;
+        private boolean reported;
+
+        @Override
+        public boolean hasNext() {
+            while (!rows.hasNext()) {
+                if (currentRelease != null) {
+                    finishTable();
+                    progress.releaseDone();
+                    if (preview != null) preview.recordRelease(System.nanoTime() - releaseStartNanos);
+                    currentRelease = null;
+                }
+                if (nextRelease >= consideredReleases.size()) {
+                    if (preview != null && !reported) {
+                        reported = true;
+                        preview.logReport(rowCount);
+                    }
+                    return false;
+                }
+                loadRelease(consideredReleases.get(nextRelease++));
+            }
+            return true;
+        }
+
+        @Override
+        public DatasetRow next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            methodCount++;
+            rowCount++;
+            if (methodCount % 500 == 0) {
+                LOGGER.log(Level.INFO, "  ...analizzato metodo {0} / {1}", new Object[]{methodCount, totalMethods});
+            }
+            DatasetRow row = rows.next();
+            if (pendingTable != null) {
+                try {
+                    PipelineStages.writeRow(pendingTable, row, idTable);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return row;
+        }
+
+        private void loadRelease(Release release) {
+            LOGGER.log(Level.INFO, "--- Processando release {0} ---", release.getName());
+            releaseStartNanos = System.nanoTime();
+            currentRelease = release;
+            methodCount = 0;
+            try {
+                List<DatasetRow> saved = (stages == null) ? null : stages.loadTable(release, preview, idTable);
+                if (saved != null) {
+                    totalMethods = saved.size();
+                    LOGGER.log(Level.INFO, "Release {0} riletta dagli artefatti: {1} metodi.",
+                            new Object[]{release.getName(), totalMethods});
+                    rows = saved.iterator();
+                    return;
+                }
+                Map<String, List<MethodData>> releaseContent = methodExtractor.getMethodsInRelease(gitService, release.getCommit());
+                IdCounts smells = analyzeSmellsForRelease(release);
+
+                totalMethods = releaseContent.values().stream().mapToLong(List::size).sum();
+                LOGGER.log(Level.INFO, "Trovati {0} metodi in {1} file.", new Object[]{totalMethods, releaseContent.size()});
+
+                if (stages != null && !failedSmells.contains(release)) {
+                    pendingTable = stages.beginTable(release, preview);
+                } else if (stages != null) {
+                    LOGGER.log(Level.WARNING, "Release {0} senza violazioni PMD: la tabella non viene salvata fra gli artefatti.",
+                            release.getName());
+                }
+                rows = releaseContent.values().stream().flatMap(List::stream)
+                        .map(methodData -> buildRow(methodData, smells, release))
+                        .iterator();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void finishTable() {
+            if (pendingTable == null) return;
+            try {
+                PipelineStages.finishTable(pendingTable);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                pendingTable = null;
+            }
+        }
+    }
+
+    /**
+     * Collega i ticket ai commit di fix ed esegue l'analisi storica per costruire le storie di
+     * metodi e file, riusando gli artefatti delle due fasi se i loro input non sono cambiati.
+     */
+    private static HistoryAnalyzer.AnalysisResult analyzeHistory(GitService gitService, List<JiraTicket> tickets,
+                                                                 List<Release> consideredReleases, ProjectConfig config,
+                                                                 ExclusionMatcher exclusions, PreviewSample preview,
+                                                                 PipelineStages stages, ProgressMonitor progress)
+            throws GitAPIException, IOException {
+        long start = System.nanoTime();
+        Map<String, RevCommit> bugCommits = (stages == null) ? null : stages.loadLinks(gitService, tickets);
+        if (bugCommits == null) {
+            Set<String> ticketKeys = tickets.stream().map(JiraTicket::getKey).collect(Collectors.toSet());
+            bugCommits = gitService.linkBugsToCommits(ticketKeys);
+            if (stages != null) stages.saveLinks(bugCommits);
+        }
+        if (stages == null) {
+            return analyzeCommitHistory(gitService, tickets, consideredReleases, config, exclusions, preview, progress,
+                    bugCommits, start);
+        }
+        HistoryAnalyzer.AnalysisResult result = stages.loadHistory(gitService, consideredReleases, preview,
+                (config.getHistorySpillDir() == null) ? null
+                        : new MappedHistoryStore(Paths.get(config.getHistorySpillDir()), config.getHistorySpillHeapRatio()));
+        if (result != null) {
+            if (preview != null) preview.recordHistory(System.nanoTime() - start, 0);
+            return result;
+        }
+        result = analyzeCommitHistory(gitService, tickets, consideredReleases, config, exclusions, preview, progress,
+                bugCommits, start);
+        stages.saveHistory(result);
+        return result;
+    }
+
+    private static HistoryAnalyzer.AnalysisResult analyzeCommitHistory(GitService gitService, List<JiraTicket> tickets,
+                                                                       List<Release> consideredReleases, ProjectConfig config,
+                                                                       ExclusionMatcher exclusions, PreviewSample preview,
+                                                                       ProgressMonitor progress, Map<String, RevCommit> bugCommits,
+                                                                       long start) throws GitAPIException, IOException {
+        if (config.getHistoryShards() > 1) {
+            HistoryHorizon horizon = (!config.isHistoryHorizonEnabled() || consideredReleases.isEmpty())
+                    ? HistoryHorizon.unbounded() : computeHistoryHorizon(tickets, consideredReleases, bugCommits);
+            HistoryAnalyzer.AnalysisResult result = HistoryShards.analyze(gitService, config, bugCommits, horizon, preview, progress);
+            if (preview != null) preview.recordHistory(System.nanoTime() - start, -1);
+            return result;
+        }
+        try (ParseGuard parseGuard = new ParseGuard("storia", config.getMaxParseBlobBytes(), config.getParseTimeBudgetMs())) {
+            HistoryAnalyzer historyAnalyzer = new HistoryAnalyzer(gitService, config.getMethodExtractionMode(), parseGuard,
+                    exclusions);
+            historyAnalyzer.setProgressMonitor(progress);
+            if (config.getHistorySpillDir() != null) {
+                historyAnalyzer.setHistoryStore(new MappedHistoryStore(Paths.get(config.getHistorySpillDir()),
+                        config.getHistorySpillHeapRatio()));
+            }
+            HistoryAnalyzer.AnalysisResult result = (!config.isHistoryHorizonEnabled() || consideredReleases.isEmpty())
+                    ? historyAnalyzer.analyzeCommitHistory(bugCommits)
+                    : historyAnalyzer.analyzeCommitHistory(bugCommits, computeHistoryHorizon(tickets, consideredReleases, bugCommits));
+            if (preview != null) preview.recordHistory(System.nanoTime() - start, historyAnalyzer.getFileWorkNanos());
+            return result;
+        }
+    }
+
+    /**
+     * Calcola l'orizzonte della fase storica: l'ultima release considerata più i commit di fix
+     * dei soli ticket che possono etichettare una release considerata (IV non oltre l'ultima
+     * considerata e FV successiva alla prima), gli unici che isBuggy può far pesare.
+     */
+    private static HistoryHorizon computeHistoryHorizon(List<JiraTicket> tickets, List<Release> consideredReleases,
+                                                        Map<String, RevCommit> bugCommits) {
+        int firstIndex = consideredReleases.get(0).getIndex();
+        int lastIndex = consideredReleases.get(consideredReleases.size() - 1).getIndex();
+        long horizonTime = consideredReleases.stream().mapToLong(r -> r.getCommit().getCommitTime()).max().orElse(0);
+
+        List<String> labelingKeys = tickets.stream()
+                .filter(t -> t.getInjectedVersion() != null && t.getFixedVersion() != null)
+                .filter(t -> t.getInjectedVersion().getIndex() <= lastIndex && t.getFixedVersion().getIndex() > firstIndex)
+                .map(JiraTicket::getKey)
+                .toList();
+
+        Set<RevCommit> labelingCommits = bugCommits.values().stream()
+                .filter(c -> c.getCommitTime() > horizonTime)
+                .filter(c -> labelingKeys.stream().anyMatch(key -> c.getFullMessage().contains(key)))
+                .collect(Collectors.toSet());
+
+        LOGGER.log(Level.INFO, "Orizzonte storico attivo: {0} fix successivi all''ultima release considerata servono per l''etichettatura.",
+                labelingCommits.size());
+        return new HistoryHorizon(horizonTime, labelingCommits);
+    }
+
+    /**
+     * Violazioni PMD per metodo della release. Le release vengono analizzate a gruppi di
+     * {@code smellBatchReleases}: alla prima release di un gruppo si analizzano anche le
+     * successive e i risultati restano in attesa finché non tocca a loro; le release con le
+     * violazioni già salvate fra gli artefatti non vengono rianalizzate. Se l'analisi fallisce le
+     * release del gruppo restano senza smell per questa esecuzione, ma il risultato vuoto non viene
+     * salvato.
+     */
+    private IdCounts analyzeSmellsForRelease(Release release) throws IOException {
+        PmdAnalyzer.ReleaseSmells releaseSmells = pendingSmells.remove(release);
+        if (releaseSmells == null && stages != null) {
+            releaseSmells = stages.loadSmells(release, preview);
+        }
+        if (releaseSmells == null) {
+            int index = consideredReleases.indexOf(release);
+            List<Release> batch = (index < 0) ? List.of(release)
+                    : consideredReleases.subList(index, Math.min(consideredReleases.size(), index + config.getSmellBatchReleases()));
+            if (stages != null) {
+                batch = batch.stream().filter(r -> r == release || !stages.hasSmells(r, preview)).toList();
+            }
+            Map<Release, PmdAnalyzer.ReleaseSmells> analyzed = analyzeSmellsForReleases(batch);
+            if (stages != null) {
+                for (Map.Entry<Release, PmdAnalyzer.ReleaseSmells> entry : analyzed.entrySet()) {
+                    stages.saveSmells(entry.getKey(), preview, entry.getValue());
+                }
+            }
+            pendingSmells.putAll(analyzed);
+            for (Release batchRelease : batch) {
+                if (!analyzed.containsKey(batchRelease)) {
+                    failedSmells.add(batchRelease);
+                    pendingSmells.put(batchRelease, new PmdAnalyzer.ReleaseSmells());
+                }
+            }
+            releaseSmells = pendingSmells.remove(release);
+        }
+        IdCounts smells = releaseSmells.resolve(idTable);
+        LOGGER.log(Level.INFO, "Analisi PMD completata. Trovati smells in {0} metodi.", smells.nonZeroCount());
+        return smells;
+    }
+
+    /**
+     * Esegue il checkout delle release in sottodirectory di una dir temporanea ed esegue PMD una
+     * volta su tutte.
+     *
+     * @return le violazioni per release, o una mappa vuota se il checkout o l'analisi falliscono
+     */
+    private Map<Release, PmdAnalyzer.ReleaseSmells> analyzeSmellsForReleases(List<Release> releases) {
+        Map<Release, PmdAnalyzer.ReleaseSmells> smellsByRelease = new HashMap<>();
+        Path tempDir = null;
+        try {
+            // --- CORREZIONE DI SICUREZZA ---
+            // Creiamo la directory temporanea con permessi ristretti (solo per il proprietario).
+            // Questo codice funziona su sistemi POSIX (Linux, macOS). Su Windows, viene
+            // generalmente ignorato ma non causa errori, mantenendo la portabilità.
+            FileAttribute<?>[] attributes;
+            if (System.getProperty("os.name").toLowerCase().contains("win")) {
+                attributes = new FileAttribute<?>[0]; // Nessun attributo speciale per Windows
+            } else {
+                Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rwx------");
+                attributes = new FileAttribute<?>[]{ PosixFilePermissions.asFileAttribute(perms) };
+            }
+            tempDir = Files.createTempDirectory("release-" + releases.get(0).getName() + "-", attributes);
+            // -----------------------------
+
+            Map<Path, Release> releaseDirs = new LinkedHashMap<>();
+            for (int i = 0; i < releases.size(); i++) {
+                Path releaseDir = tempDir.resolve(String.valueOf(i));
+                Files.createDirectory(releaseDir);
+                checkoutRelease(releases.get(i).getCommit(), releaseDir);
+                releaseDirs.put(releaseDir, releases.get(i));
+            }
+
+            LOGGER.log(Level.INFO, "Avvio analisi PMD su {0} release...", releases.size());
+            smellEngine.countSmells(new ArrayList<>(releaseDirs.keySet()))
+                    .forEach((releaseDir, smells) -> smellsByRelease.put(releaseDirs.get(releaseDir), smells));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Errore durante checkout/PMD per la release: {0}", releases.get(0).getName());
+            LOGGER.log(Level.SEVERE, "Dettagli dell’eccezione", e);
+            smellsByRelease.clear();
+        } finally {
+            if (tempDir != null) {
+                try (Stream<Path> walk = Files.walk(tempDir)) {
+                    walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Impossibile eliminare la directory temporanea: {0}", tempDir);
+                    LOGGER.log(Level.FINEST, "Dettagli errore eliminazione directory", e);
+                }
+            }
+        }
+        return smellsByRelease;
+    }
+
+    /**
+     * Calcola tutte le metriche per un singolo metodo e costruisce la riga del dataset.
+     */
+    private DatasetRow buildRow(MethodData methodData, IdCounts smellsMap, Release currentRelease) {
+        int methodId = methodData.getMethodId();
+        MethodHistory methodHistory = analysisResult.histories.getMethodHistory(methodId);
+        if (methodHistory == null) methodHistory = new MethodHistory(methodId);
+
+        FileHistory fileHistory = analysisResult.histories.getFileHistory(idTable.getPathId(methodId));
+
+        int nSmells = smellsMap.get(methodId);
+
+        MethodMetrics metrics = metricsLogic.calculateMetricsForRelease(
+                methodData, methodHistory, fileHistory,
+                currentRelease, nSmells, allReleases, allReleases.size()
+        );
+
+        boolean buggy = bugginessLogic.isBuggy(methodId, currentRelease, allTickets);
+        return new DatasetRow(config.getProjectName(), methodId, idTable, currentRelease, metrics.toArray(), buggy);
+    }
+
+    /**
+     * Esegue il checkout dei file Java non esclusi di un commit in una directory di destinazione.
+     * Il blob si legge solo per i percorsi che superano il filtro.
+     */
+    private void checkoutRelease(RevCommit releaseCommit, Path targetDir) throws IOException {
+        try (TreeWalk treeWalk = new TreeWalk(gitService.repository)) {
+            treeWalk.addTree(releaseCommit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                String pathString = treeWalk.getPathString();
+                if (!pathString.endsWith(".java") || exclusions.isPathExcluded(pathString)) continue;
+                String fileContent = new String(gitService.repository.open(treeWalk.getObjectId(0)).getBytes(), StandardCharsets.UTF_8);
+
+                if (!exclusions.isContentExcluded(fileContent)) {
+                    Path filePath = targetDir.resolve(pathString);
+                    Files.createDirectories(filePath.getParent());
+                    Files.writeString(filePath, fileContent, StandardOpenOption.CREATE_NEW);
+                }
+            }
+        }
+    }
+
+    /**
+     * Release del repository dal catalogo; con gli artefatti intermedi attivi e nessun catalogo
+     * indicato, il catalogo è la prima fase salvata fra gli artefatti.
+     */
+    private static List<Release> getReleases(GitService gitService, ProjectConfig config, PipelineStages stages)
+            throws IOException {
+        Path catalogPath = (config.getReleaseCatalogPath() != null) ? Paths.get(config.getReleaseCatalogPath())
+                : (stages == null) ? null : stages.catalogFile();
+        ReleaseCatalog catalog = ReleaseCatalog.load(gitService, catalogPath);
+        if (stages != null) stages.setCatalogFingerprint(catalog.getFingerprint());
+        List<Release> releases;
+        try (RevWalk revWalk = new RevWalk(gitService.repository)) {
+            releases = catalog.toReleases(revWalk);
+        }
+        LOGGER.log(Level.INFO, "----------------------------------------%n");
+        LOGGER.log(Level.INFO, "Trovate e ordinate {0} release.", releases.size());
+        return releases;
+    }
+
+    private static List<Release> filterReleases(List<Release> allReleases) {
+        int countToConsider = (int) Math.ceil(allReleases.size() * 0.34);
+        LOGGER.log(Level.INFO, "Considereremo le prime {0} release.", countToConsider);
+        return allReleases.subList(0, Math.min(countToConsider, allReleases.size()));
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (pendingTable != null) {
+            try {
+                pendingTable.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Impossibile scartare la tabella incompleta della release.", e);
+            }
+            pendingTable = null;
+        }
+        methodExtractor.close();
+        analysisResult.histories.close();
+        if (complexityCache != null) {
+            try {
+                complexityCache.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Errore durante la chiusura della cache di complessità.", e);
+            }
+        }
+        gitService.close();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import org.example.config.ProjectConfig;
+import org.example.config.RunnerConfig;
+import org.example.services.GitService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.FileHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Esegue più progetti in parallelo su un pool di thread condiviso.
+ * <p>
+ * Il budget di thread viene diviso fra i progetti in esecuzione (ognuno riceve la sua quota per
+ * le fasi parallele: parsing dei file di una release e PMD); il budget di memoria funziona come
+ * controllo di ammissione: un progetto parte solo quando può riservare la propria quota stimata.
+ * Ogni progetto scrive il proprio CSV e un file di log dedicato accanto al CSV.
+ */
+public class MultiProjectRunner {
+    private static final Logger LOGGER = Logger.getLogger(MultiProjectRunner.class.getName());
+
+    /** Progetto servito dal thread corrente; ereditato dai thread creati durante la sua esecuzione. */
+    private static final InheritableThreadLocal<String> CURRENT_PROJECT = new InheritableThreadLocal<>();
+
+    private final RunnerConfig runnerConfig;
+
+    public MultiProjectRunner(RunnerConfig runnerConfig) {
+        this.runnerConfig = runnerConfig;
+    }
+
+    public void runAll() {
+        List<ProjectConfig> projects = runnerConfig.getProjects();
+        int parallelProjects = runnerConfig.getParallelProjects();
+        int threadsPerProject = Math.max(1, runnerConfig.getThreads() / parallelProjects);
+        long totalMemoryMb = runnerConfig.getMemoryBudgetMb();
+        long defaultProjectMemoryMb = Math.max(1, totalMemoryMb / parallelProjects);
+        Semaphore memoryBudget = new Semaphore((int) Math.min(Integer.MAX_VALUE, totalMemoryMb), true);
+
+        LOGGER.log(Level.INFO, "Avvio di {0} progetti: {1} in parallelo, {2} thread ciascuno, budget memoria {3} MB.",
+                new Object[]{projects.size(), parallelProjects, threadsPerProject, totalMemoryMb});
+        // La WindowCache di JGit è globale: il profilo si installa una volta, prima di aprire i repository.
+        try {
+            GitService.applyStorageProfile(runnerConfig.getGitStorageProfile());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOGGER.log(Level.SEVERE, "Configurazione non valida: {0}", e.getMessage());
+            return;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelProjects,
+                r -> new Thread(r, "project-runner-" + threadCounter.incrementAndGet()));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (ProjectConfig project : projects) {
+                project.setAnalysisThreads(threadsPerProject);
+                long requestedMb = (project.getMemoryBudgetMb() > 0) ? project.getMemoryBudgetMb() : defaultProjectMemoryMb;
+                int permits = (int) Math.min(requestedMb, totalMemoryMb);
+                futures.add(pool.submit(() -> runProject(project, memoryBudget, permits)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.WARNING, "Runner interrotto, annullo i progetti in coda.");
+            futures.forEach(f -> f.cancel(true));
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.SEVERE, "Errore inatteso nel runner multi-progetto", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void runProject(ProjectConfig project, Semaphore memoryBudget, int permits) {
+        try {
+            memoryBudget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        FileHandler logHandler = null;
+        CURRENT_PROJECT.set(project.getProjectName());
+        try {
+            logHandler = openProjectLog(project);
+            LOGGER.log(Level.INFO, "Progetto {0} avviato ({1} MB riservati).", new Object[]{project.getProjectName(), permits});
+            new Main().run(project);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Impossibile aprire il log del progetto {0}", project.getProjectName());
+            LOGGER.log(Level.SEVERE, "Dettagli errore:", e);
+        } finally {
+            if (logHandler != null) {
+                Logger.getLogger("").removeHandler(logHandler);
+                logHandler.close();
+            }
+            CURRENT_PROJECT.remove();
+            memoryBudget.release(permits);
+        }
+    }
+
+    /**
+     * Apre il file di log del progetto accanto al suo CSV. L'handler è registrato sul logger
+     * radice ma accetta solo i record emessi dai thread del progetto.
+     */
+    private FileHandler openProjectLog(ProjectConfig project) throws IOException {
+        Path csvPath = Paths.get(project.getOutputCsvPath()).toAbsolutePath();
+        if (csvPath.getParent() != null) {
+            Files.createDirectories(csvPath.getParent());
+        }
+        String csvName = csvPath.getFileName().toString();
+        String logName = (csvName.endsWith(".csv") ? csvName.substring(0, csvName.length() - 4) : csvName) + ".log";
+
+        FileHandler handler = new FileHandler(csvPath.resolveSibling(logName).toString(), false);
+        handler.setFormatter(new SimpleFormatter());
+        String projectName = project.getProjectName();
+        handler.setFilter(logRecord -> projectName.equals(CURRENT_PROJECT.get()));
+        Logger.getLogger("").addHandler(handler);
+        return handler;
+    }
+}
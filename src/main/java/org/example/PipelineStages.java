@@ -0,0 +1,334 @@
+package org.example;
+
+import net.sourceforge.pmd.PMDVersion;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.example.config.ProjectConfig;
+import org.example.logic.HistoryAnalyzer;
+import org.example.logic.HistoryShards;
+import org.example.logic.PreviewSample;
+import org.example.logic.ReleaseMethodExtractor;
+import org.example.model.DatasetRow;
+import org.example.model.HistoryStore;
+import org.example.model.JiraTicket;
+import org.example.model.MethodIdTable;
+import org.example.model.Release;
+import org.example.services.GitService;
+import org.example.services.PmdAnalyzer;
+import org.example.services.StageStore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Fasi della generazione con artefatti riusabili fra un'esecuzione e l'altra (vedi
+ * {@link StageStore}), attive quando il progetto indica {@code stageDir}.
+ * <p>
+ * Le fasi e i loro input, in ordine:
+ * <ul>
+ *   <li>catalogo delle release ({@code releases.catalog}): i tag del repository;</li>
+ *   <li>{@code lifecycles}: IV, OV e FV dei ticket, da ticket, catalogo e modalità di Proportion;</li>
+ *   <li>{@code links}: commit che citano i ticket, dalle chiavi dei ticket e dallo stato dei ref;</li>
+ *   <li>{@code history}: storie di metodi e file, da collegamenti, cicli di vita (orizzonte),
+ *       release considerate e impostazioni di estrazione ed esclusione;</li>
+ *   <li>{@code smells-<release>}: violazioni PMD della release, dal suo commit, dalle esclusioni e
+ *       dalle versioni di PMD e del parser;</li>
+ *   <li>{@code table-<release>}: righe del dataset della release, da storie, cicli di vita,
+ *       catalogo, smell e versione delle metriche.</li>
+ * </ul>
+ * Una tabella viene salvata solo quando la release è stata prodotta per intero: se un'esecuzione
+ * si interrompe, la successiva rilegge le release completate e riprende dalla prima mancante.
+ */
+class PipelineStages {
+    private static final Logger LOGGER = Logger.getLogger(PipelineStages.class.getName());
+    private static final String LIFECYCLES = "lifecycles";
+    private static final String LINKS = "links";
+    private static final String HISTORY = "history";
+
+    private final StageStore store;
+    private final ProjectConfig config;
+    private String catalogFingerprint;
+    private String lifecyclesFingerprint;
+    private String linksFingerprint;
+    private String historyFingerprint;
+    private String tableStamp;
+
+    private PipelineStages(StageStore store, ProjectConfig config) {
+        this.store = store;
+        this.config = config;
+    }
+
+    /**
+     * Fasi del progetto, o null se il progetto non salva artefatti intermedi.
+     */
+    static PipelineStages open(ProjectConfig config) throws IOException {
+        if (config.getStageDir() == null) return null;
+        StageStore store = new StageStore(Paths.get(config.getStageDir()));
+        LOGGER.log(Level.INFO, "Artefatti intermedi in {0}.", store.getDir());
+        if (config.getParseTimeBudgetMs() > 0) {
+            LOGGER.log(Level.WARNING, "Tempo massimo di parsing attivo ({0} ms): le storie e le tabelle salvate dipendono dal carico della macchina.",
+                    config.getParseTimeBudgetMs());
+        }
+        return new PipelineStages(store, config);
+    }
+
+    Path catalogFile() {
+        return store.getDir().resolve("releases.catalog");
+    }
+
+    void setCatalogFingerprint(String catalogFingerprint) {
+        this.catalogFingerprint = catalogFingerprint;
+    }
+
+    // --- Cicli di vita dei ticket ---
+
+    /**
+     * Applica ai ticket i cicli di vita salvati.
+     *
+     * @return false se la fase va rieseguita
+     */
+    boolean loadLifecycles(List<JiraTicket> tickets, List<Release> allReleases) throws IOException {
+        lifecyclesFingerprint = StageStore.fingerprint(LIFECYCLES, catalogFingerprint, ticketsFingerprint(tickets),
+                config.getProportionMode());
+        DataInputStream in = store.open(LIFECYCLES, lifecyclesFingerprint);
+        if (in == null) return false;
+        try (in) {
+            Map<String, int[]> versions = new HashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                versions.put(in.readUTF(), new int[]{in.readInt(), in.readInt(), in.readInt()});
+            }
+            for (JiraTicket ticket : tickets) {
+                int[] ticketVersions = versions.get(ticket.getKey());
+                ticket.setInjectedVersion(release(allReleases, ticketVersions[0]));
+                ticket.setOpeningVersion(release(allReleases, ticketVersions[1]));
+                ticket.setFixedVersion(release(allReleases, ticketVersions[2]));
+            }
+        }
+        LOGGER.log(Level.INFO, "Cicli di vita di {0} ticket riletti dagli artefatti.", tickets.size());
+        return true;
+    }
+
+    void saveLifecycles(List<JiraTicket> tickets) throws IOException {
+        store.write(LIFECYCLES, lifecyclesFingerprint, out -> {
+            out.writeInt(tickets.size());
+            for (JiraTicket ticket : tickets) {
+                out.writeUTF(ticket.getKey());
+                out.writeInt(index(ticket.getInjectedVersion()));
+                out.writeInt(index(ticket.getOpeningVersion()));
+                out.writeInt(index(ticket.getFixedVersion()));
+            }
+        });
+    }
+
+    private static Release release(List<Release> allReleases, int index) {
+        return (index < 0) ? null : allReleases.get(index);
+    }
+
+    private static int index(Release release) {
+        return (release == null) ? -1 : release.getIndex();
+    }
+
+    private static String ticketsFingerprint(List<JiraTicket> tickets) {
+        return StageStore.fingerprint(tickets.stream()
+                .sorted(Comparator.comparing(JiraTicket::getKey))
+                .map(t -> t.getKey() + " " + t.getCreationDate() + " " + t.getResolutionDate() + " " + t.getAffectedVersionsStrings())
+                .toArray());
+    }
+
+    // --- Collegamenti ticket-commit ---
+
+    /**
+     * @return i commit di fix salvati, o null se la fase va rieseguita
+     */
+    Map<String, RevCommit> loadLinks(GitService gitService, List<JiraTicket> tickets) throws IOException {
+        linksFingerprint = StageStore.fingerprint(LINKS, refsFingerprint(gitService),
+                tickets.stream().map(JiraTicket::getKey).sorted().collect(Collectors.joining(",")));
+        DataInputStream in = store.open(LINKS, linksFingerprint);
+        if (in == null) return null;
+        Map<String, RevCommit> bugCommits = new HashMap<>();
+        try (in; RevWalk revWalk = new RevWalk(gitService.repository)) {
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                in.readFully(rawId);
+                RevCommit commit = revWalk.parseCommit(ObjectId.fromRaw(rawId));
+                bugCommits.put(commit.getName(), commit);
+            }
+        }
+        LOGGER.log(Level.INFO, "{0} commit di fix riletti dagli artefatti.", bugCommits.size());
+        return bugCommits;
+    }
+
+    void saveLinks(Map<String, RevCommit> bugCommits) throws IOException {
+        store.write(LINKS, linksFingerprint, out -> {
+            byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            out.writeInt(bugCommits.size());
+            for (RevCommit commit : bugCommits.values()) {
+                commit.copyRawTo(rawId, 0);
+                out.write(rawId);
+            }
+        });
+    }
+
+    /**
+     * Impronta di tutti i ref (la ricerca dei commit di fix percorre l'intero log) e di HEAD.
+     */
+    private static String refsFingerprint(GitService gitService) throws IOException {
+        List<String> refs = new ArrayList<>();
+        for (Ref ref : gitService.repository.getRefDatabase().getRefs()) {
+            refs.add(ref.getName() + " " + ((ref.getObjectId() == null) ? "" : ref.getObjectId().name()));
+        }
+        refs.sort(null);
+        ObjectId head = gitService.repository.resolve(Constants.HEAD);
+        refs.add("HEAD " + ((head == null) ? "" : head.name()));
+        return StageStore.fingerprint(refs.toArray());
+    }
+
+    // --- Analisi storica ---
+
+    /**
+     * @param histories archivio in cui caricare le storie, o null per tenerle in heap
+     * @return le storie salvate, o null se la fase va rieseguita
+     */
+    HistoryAnalyzer.AnalysisResult loadHistory(GitService gitService, List<Release> consideredReleases,
+                                               PreviewSample preview, HistoryStore histories) throws IOException {
+        historyFingerprint = StageStore.fingerprint(HISTORY, linksFingerprint, lifecyclesFingerprint,
+                consideredReleases.stream().map(r -> r.getName() + " " + r.getCommit().getName()).collect(Collectors.joining(",")),
+                config.getMethodExtractionMode(), config.getMaxParseBlobBytes(), config.getParseTimeBudgetMs(),
+                config.getExclusionRules(), config.getExclusionHeaderChars(), config.isHistoryHorizonEnabled(),
+                previewFingerprint(preview));
+        DataInputStream in = store.open(HISTORY, historyFingerprint);
+        if (in == null) return null;
+        HistoryAnalyzer.AnalysisResult result;
+        try (in; RevWalk revWalk = new RevWalk(gitService.repository)) {
+            result = HistoryShards.readResult(in, revWalk, new HashMap<>());
+        }
+        if (histories != null) {
+            result = new HistoryAnalyzer.AnalysisResult(new MethodIdTable(), histories).mergeWith(result);
+        }
+        LOGGER.log(Level.INFO, "Storie di {0} metodi e {1} file rilette dagli artefatti.",
+                new Object[]{result.histories.methodCount(), result.histories.fileCount()});
+        return result;
+    }
+
+    void saveHistory(HistoryAnalyzer.AnalysisResult result) throws IOException {
+        store.write(HISTORY, historyFingerprint, out -> HistoryShards.writeResult(result, out));
+    }
+
+    private static String previewFingerprint(PreviewSample preview) {
+        return (preview == null) ? "completo"
+                : preview.getReferenceCommit().getName() + " " + preview.getFileRate() + " " + preview.getSeed();
+    }
+
+    // --- Smell per release ---
+
+    private String smellsFingerprint(Release release, PreviewSample preview) {
+        return StageStore.fingerprint("smells", release.getName(), release.getCommit().getName(),
+                config.getExclusionRules(), config.getExclusionHeaderChars(), previewFingerprint(preview),
+                PMDVersion.VERSION, ReleaseMethodExtractor.LANGUAGE_LEVEL);
+    }
+
+    private static String smellsStage(Release release) {
+        return "smells-" + release.getIndex();
+    }
+
+    boolean hasSmells(Release release, PreviewSample preview) {
+        DataInputStream in = store.open(smellsStage(release), smellsFingerprint(release, preview));
+        StageStore.closeQuietly(in);
+        return in != null;
+    }
+
+    /**
+     * @return le violazioni salvate della release, o null se la fase va rieseguita
+     */
+    PmdAnalyzer.ReleaseSmells loadSmells(Release release, PreviewSample preview) throws IOException {
+        DataInputStream in = store.open(smellsStage(release), smellsFingerprint(release, preview));
+        if (in == null) return null;
+        try (in) {
+            PmdAnalyzer.ReleaseSmells smells = PmdAnalyzer.ReleaseSmells.readFrom(in);
+            LOGGER.log(Level.INFO, "Violazioni PMD della release {0} rilette dagli artefatti.", release.getName());
+            return smells;
+        }
+    }
+
+    void saveSmells(Release release, PreviewSample preview, PmdAnalyzer.ReleaseSmells smells) throws IOException {
+        store.write(smellsStage(release), smellsFingerprint(release, preview), smells::writeTo);
+    }
+
+    // --- Tabelle delle release ---
+
+    /**
+     * @param metricsStamp versione delle metriche di complessità e del parser
+     */
+    void setTableStamp(String metricsStamp) {
+        this.tableStamp = metricsStamp;
+    }
+
+    private String tableFingerprint(Release release, PreviewSample preview) {
+        return StageStore.fingerprint("table", config.getProjectName(), historyFingerprint, lifecyclesFingerprint,
+                catalogFingerprint, smellsFingerprint(release, preview), tableStamp,
+                config.getMaxParseBlobBytes(), config.getParseTimeBudgetMs(), DatasetRow.FEATURE_NAMES);
+    }
+
+    private static String tableStage(Release release) {
+        return "table-" + release.getIndex();
+    }
+
+    /**
+     * Righe salvate della release; i metodi vengono registrati nella tabella dei simboli.
+     *
+     * @return le righe, o null se la release va ricalcolata
+     */
+    List<DatasetRow> loadTable(Release release, PreviewSample preview, MethodIdTable idTable) throws IOException {
+        DataInputStream in = store.open(tableStage(release), tableFingerprint(release, preview));
+        if (in == null) return null;
+        List<DatasetRow> rows = new ArrayList<>();
+        try (in) {
+            while (in.readBoolean()) {
+                int methodId = idTable.internMethod(in.readUTF(), in.readUTF());
+                long[] features = new long[in.readInt()];
+                for (int i = 0; i < features.length; i++) {
+                    features[i] = in.readLong();
+                }
+                rows.add(new DatasetRow(config.getProjectName(), methodId, idTable, release, features, in.readBoolean()));
+            }
+        }
+        return rows;
+    }
+
+    StageStore.PendingArtifact beginTable(Release release, PreviewSample preview) throws IOException {
+        return store.create(tableStage(release), tableFingerprint(release, preview));
+    }
+
+    static void writeRow(StageStore.PendingArtifact table, DatasetRow row, MethodIdTable idTable) throws IOException {
+        DataOutputStream out = table.out();
+        out.writeBoolean(true);
+        out.writeUTF(idTable.getPath(idTable.getPathId(row.getMethodId())));
+        out.writeUTF(idTable.getSignature(row.getMethodId()));
+        out.writeInt(row.getFeatureCount());
+        for (int i = 0; i < row.getFeatureCount(); i++) {
+            out.writeLong(row.getFeature(i));
+        }
+        out.writeBoolean(row.isBuggy());
+    }
+
+    static void finishTable(StageStore.PendingArtifact table) throws IOException {
+        table.out().writeBoolean(false);
+        table.commit();
+    }
+}
@@ -0,0 +1,195 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.example.config.ProjectConfig;
+import org.example.config.RunnerConfig;
+import org.example.model.JiraTicket;
+import org.example.services.TicketStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Esecuzione di addestramento per l'archivio AppCDS (profilo Maven {@code appcds}).
+ * <p>
+ * Costruisce un piccolo repository sintetico (alcuni file Java modificati da commit che citano
+ * ticket, con un tag ogni {@value #COMMITS_PER_RELEASE} commit) e il relativo archivio dei ticket,
+ * poi ne genera il dataset in modalità offline passando dal runner come un'esecuzione reale: JGit,
+ * JavaParser, PMD, scrittura del CSV. La JVM avviata con {@code -XX:DumpLoadedClassList} registra
+ * le classi caricate, da cui la build produce l'archivio; il launcher lo usa con
+ * {@code -XX:SharedArchiveFile}, così le esecuzioni brevi non pagano di nuovo caricamento e
+ * verifica di quelle classi.
+ * <p>
+ * Uso: {@code StartupTraining [dir]}; senza argomenti lavora in una directory temporanea, poi
+ * cancellata. Il runner registra gli errori dei progetti senza propagarli, quindi l'esito si verifica
+ * sul CSV prodotto: se manca o non ha righe l'addestramento termina con un errore e la build fallisce,
+ * invece di produrre un archivio con le classi di un'esecuzione interrotta.
+ */
+public class StartupTraining {
+    private static final Logger LOGGER = Logger.getLogger(StartupTraining.class.getName());
+    private static final String PROJECT = "TRAIN";
+    private static final int COMMITS = 60;
+    private static final int COMMITS_PER_RELEASE = 10;
+    private static final int CLASSES = 4;
+    private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+    /** Risposta di ricerca di JIRA nel formato letto da JiraService, per caricarne le classi senza rete. */
+    private static final String SAMPLE_JIRA_RESPONSE = "{\"total\":1,\"issues\":[{\"key\":\"TRAIN-1\",\"fields\":{"
+            + "\"created\":\"2020-01-01T10:00:00.000+0000\",\"resolutiondate\":\"2020-01-02T10:00:00.000+0000\","
+            + "\"status\":{\"name\":\"Closed\"},\"versions\":[{\"name\":\"1.0\"}]}}]}";
+
+    public static void main(String[] args) throws IOException, GitAPIException {
+        boolean temporary = args.length == 0;
+        Path dir = temporary ? Files.createTempDirectory("startup-training-") : Paths.get(args[0]);
+        try {
+            run(dir);
+        } finally {
+            if (temporary) deleteRecursively(dir);
+        }
+    }
+
+    private static void run(Path dir) throws IOException, GitAPIException {
+        long start = System.nanoTime();
+        Path repo = dir.resolve("repo");
+        createRepository(repo);
+        createTicketStore(dir.resolve("tickets"));
+        new ObjectMapper().readTree(SAMPLE_JIRA_RESPONSE);
+
+        Path csv = dir.resolve("train_dataset.csv");
+        ProjectConfig project = new ProjectConfig(PROJECT, repo.toString(), csv.toString());
+        project.setTicketStoreDir(dir.resolve("tickets").toString());
+        project.setJiraOffline(true);
+        RunnerConfig runnerConfig = new RunnerConfig();
+        runnerConfig.setParallelProjects(1);
+        runnerConfig.addProject(project);
+        new MultiProjectRunner(runnerConfig).runAll();
+
+        long rows = countDataRows(csv);
+        if (rows == 0) {
+            throw new IllegalStateException("Addestramento fallito: nessuna riga nel dataset " + csv);
+        }
+        LOGGER.log(Level.INFO, "Addestramento completato in {0} ms ({1} righe).",
+                new Object[]{(System.nanoTime() - start) / 1_000_000, rows});
+    }
+
+    /** Righe del CSV esclusa l'intestazione; 0 se il file non esiste. */
+    private static long countDataRows(Path csv) throws IOException {
+        if (!Files.isRegularFile(csv)) return 0;
+        try (Stream<String> lines = Files.lines(csv)) {
+            return Math.max(0, lines.count() - 1);
+        }
+    }
+
+    /**
+     * Repository con {@value #CLASSES} classi: ogni commit ne fa crescere una e uno su tre cita un
+     * ticket, così l'analisi storica trova commit di fix e metodi modificati.
+     */
+    private static void createRepository(Path repo) throws IOException, GitAPIException {
+        Files.createDirectories(repo);
+        try (Git git = Git.init().setDirectory(repo.toFile()).setInitialBranch("master").call()) {
+            for (int commit = 1; commit <= COMMITS; commit++) {
+                int changed = commit % CLASSES;
+                Path source = repo.resolve("src/main/java/org/train/Service" + changed + ".java");
+                Files.createDirectories(source.getParent());
+                Files.writeString(source, serviceSource(changed, commit / CLASSES + 1));
+                git.add().addFilepattern(".").call();
+
+                PersonIdent author = new PersonIdent("training", "training@example.org",
+                        Date.from(commitTime(commit)), TimeZone.getTimeZone(ZoneOffset.UTC));
+                String message = (commit % 3 == 0)
+                        ? "Fix " + PROJECT + "-" + ticketFor(commit) + " in Service" + changed
+                        : "Update Service" + changed;
+                git.commit().setMessage(message).setAuthor(author).setCommitter(author).call();
+                if (commit % COMMITS_PER_RELEASE == 0) {
+                    git.tag().setName("release-" + commit / COMMITS_PER_RELEASE + ".0").call();
+                }
+            }
+        }
+    }
+
+    private static Instant commitTime(int commit) {
+        return START.plusSeconds(commit * 3600L);
+    }
+
+    private static int ticketFor(int commit) {
+        return commit / 3;
+    }
+
+    /**
+     * Sorgente di una classe con {@code methods} metodi di forma varia (rami, cicli, eccezioni,
+     * lambda), perché parser, metriche e regole PMD carichino le classi dei casi comuni.
+     */
+    private static String serviceSource(int index, int methods) {
+        StringBuilder source = new StringBuilder()
+                .append("package org.train;\n\n")
+                .append("import java.util.ArrayList;\nimport java.util.List;\nimport java.util.Map;\n\n")
+                .append("public class Service").append(index).append(" {\n")
+                .append("    private final List<String> items = new ArrayList<>();\n")
+                .append("    private int counter;\n\n");
+        for (int m = 0; m < methods; m++) {
+            source.append("    public int method").append(m).append("(int value, Map<String, Integer> weights) {\n")
+                    .append("        int result = 0;\n")
+                    .append("        for (int i = 0; i < value; i++) {\n")
+                    .append("            if (i % ").append(m + 2).append(" == 0 && weights.containsKey(\"k\" + i)) {\n")
+                    .append("                result += weights.get(\"k\" + i);\n")
+                    .append("            } else {\n")
+                    .append("                result--;\n")
+                    .append("            }\n")
+                    .append("        }\n")
+                    .append("        try {\n")
+                    .append("            items.forEach(item -> counter += item.length());\n")
+                    .append("        } catch (RuntimeException e) {\n")
+                    .append("            counter = 0;\n")
+                    .append("        }\n")
+                    .append("        switch (value) {\n")
+                    .append("            case 0: return counter;\n")
+                    .append("            default: return result + ").append(m).append(";\n")
+                    .append("        }\n")
+                    .append("    }\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * Archivio dei ticket citati dai commit: aperti poco prima del commit di fix, con una
+     * Affected Version su tre, così il ciclo di vita usa sia le AV sia Proportion.
+     */
+    private static void createTicketStore(Path dir) throws IOException {
+        TicketStore store = TicketStore.load(dir, PROJECT);
+        store.clear();
+        for (int commit = 3; commit <= COMMITS; commit += 3) {
+            Instant fixed = commitTime(commit);
+            JiraTicket ticket = new JiraTicket(PROJECT + "-" + ticketFor(commit),
+                    ZonedDateTime.ofInstant(fixed.minusSeconds(5 * 3600L), ZoneOffset.UTC),
+                    ZonedDateTime.ofInstant(fixed.plusSeconds(60), ZoneOffset.UTC));
+            ticket.setAffectedVersionsStrings((commit % 9 == 0) ? List.of("1.0") : new ArrayList<>());
+            store.put(ticket);
+        }
+        store.save(Instant.now());
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossibile eliminare la directory di addestramento: {0}", dir);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.config;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Profilo di accesso ai pack file di JGit, tradotto in una {@link WindowCacheConfig}.
+ * Oltre ai profili predefiniti, ogni valore si può ridefinire nel file di configurazione
+ * (chiavi NOME.gitStorage.windowSizeKb, .packedGitLimitMb, .openFiles, .deltaBaseCacheMb, .mmap).
+ * <p>
+ * Attenzione: la WindowCache di JGit è unica per tutta la JVM, quindi il profilo vale per
+ * tutti i repository aperti dal processo: il runner lo installa una volta prima di avviare i
+ * progetti e rifiuta configurazioni con profili diversi.
+ */
+public final class GitStorageProfile {
+    private static final int KB = 1024;
+    private static final int MB = 1024 * KB;
+
+    /** Valori di default di JGit: finestre da 8 KB, 10 MB di cache, niente mmap. */
+    public static final GitStorageProfile DEFAULT = new GitStorageProfile("DEFAULT", 8 * KB, 10L * MB, 128, 10 * MB, false);
+    /** Finestre e cache più ampie, letture tradizionali. */
+    public static final GitStorageProfile TUNED = new GitStorageProfile("TUNED", 64 * KB, 512L * MB, 512, 64 * MB, false);
+    /** Pack mappati in memoria con finestre grandi: adatto ad accessi casuali ai blob. */
+    public static final GitStorageProfile MMAP = new GitStorageProfile("MMAP", 1024 * KB, 1024L * MB, 512, 128 * MB, true);
+
+    private final String name;
+    private final int windowSize;
+    private final long packedGitLimit;
+    private final int openFiles;
+    private final int deltaBaseCacheLimit;
+    private final boolean mmap;
+
+    public GitStorageProfile(String name, int windowSize, long packedGitLimit, int openFiles,
+                             int deltaBaseCacheLimit, boolean mmap) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.packedGitLimit = packedGitLimit;
+        this.openFiles = openFiles;
+        this.deltaBaseCacheLimit = deltaBaseCacheLimit;
+        this.mmap = mmap;
+    }
+
+    public static GitStorageProfile forName(String name) {
+        return switch (name.trim().toUpperCase(Locale.ROOT)) {
+            case "DEFAULT" -> DEFAULT;
+            case "TUNED" -> TUNED;
+            case "MMAP" -> MMAP;
+            default -> throw new IllegalArgumentException("Profilo di storage Git sconosciuto: " + name);
+        };
+    }
+
+    /**
+     * Profilo base (chiave prefix + "gitStorageProfile") con le eventuali ridefinizioni puntuali.
+     */
+    public static GitStorageProfile fromProperties(String prefix, Properties props) {
+        GitStorageProfile base = forName(props.getProperty(prefix + "gitStorageProfile", "DEFAULT"));
+        String keyPrefix = prefix + "gitStorage.";
+        if (props.stringPropertyNames().stream().noneMatch(k -> k.startsWith(keyPrefix))) {
+            return base;
+        }
+        return new GitStorageProfile(base.name + "*",
+                intProperty(props, keyPrefix + "windowSizeKb", base.windowSize / KB) * KB,
+                intProperty(props, keyPrefix + "packedGitLimitMb", (int) (base.packedGitLimit / MB)) * (long) MB,
+                intProperty(props, keyPrefix + "openFiles", base.openFiles),
+                intProperty(props, keyPrefix + "deltaBaseCacheMb", base.deltaBaseCacheLimit / MB) * MB,
+                Boolean.parseBoolean(props.getProperty(keyPrefix + "mmap", String.valueOf(base.mmap)).trim()));
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return (value == null) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public WindowCacheConfig toWindowCacheConfig() {
+        WindowCacheConfig cfg = new WindowCacheConfig();
+        cfg.setPackedGitWindowSize(windowSize);
+        cfg.setPackedGitLimit(packedGitLimit);
+        cfg.setPackedGitOpenFiles(openFiles);
+        cfg.setDeltaBaseCacheLimit(deltaBaseCacheLimit);
+        cfg.setPackedGitMMAP(mmap);
+        return cfg;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        GitStorageProfile other = (GitStorageProfile) obj;
+        return windowSize == other.windowSize && packedGitLimit == other.packedGitLimit && openFiles == other.openFiles
+                && deltaBaseCacheLimit == other.deltaBaseCacheLimit && mmap == other.mmap;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(windowSize, packedGitLimit, openFiles, deltaBaseCacheLimit, mmap);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (finestra %d KB, limite %d MB, %d file aperti, delta cache %d MB, mmap %s)",
+                name, windowSize / KB, packedGitLimit / MB, openFiles, deltaBaseCacheLimit / MB, mmap);
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.config;
+
+/**
+ * Strategia con cui la fase storica estrae firme e statement dei metodi
+ * dalle due versioni di ogni file modificato.
+ */
+public enum MethodExtractionMode {
+    /** AST completo di JavaParser (comportamento storico). */
+    JAVAPARSER,
+    /** Lexer leggero sui confini dei metodi, con fallback su JavaParser nei casi ambigui. */
+    LEXER,
+    /** Esegue entrambi, usa JavaParser e registra nel log le divergenze del lexer. */
+    LEXER_CHECKED
+}
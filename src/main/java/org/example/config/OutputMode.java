@@ -0,0 +1,11 @@
+package org.example.config;
+
+/**
+ * Formato del dataset scritto su disco.
+ */
+public enum OutputMode {
+    /** Una riga per ogni metodo di ogni release (comportamento storico). */
+    FULL,
+    /** Per ogni release solo le righe cambiate rispetto alla precedente, più le cancellazioni. */
+    DELTA
+}
@@ -1,10 +1,42 @@
 package org.example.config;
 
+import org.example.logic.ExclusionMatcher;
+import org.example.logic.ParseGuard;
+import org.example.services.MappedHistoryStore;
+
 public class ProjectConfig {
     private final String projectName;
     private final String repoPath;
     private final String outputCsvPath;
 
+    // Impostazioni opzionali: i default riproducono il comportamento storico.
+    private MethodExtractionMode methodExtractionMode = MethodExtractionMode.JAVAPARSER;
+    private int analysisThreads = Runtime.getRuntime().availableProcessors();
+    private long memoryBudgetMb = 0; // 0 = quota decisa dal runner
+    private boolean historyHorizonEnabled = false;
+    private GitStorageProfile gitStorageProfile = GitStorageProfile.DEFAULT;
+    private ProportionMode proportionMode = ProportionMode.GLOBAL;
+    private String releaseCatalogPath = null; // null = catalogo delle release non salvato
+    private OutputMode outputMode = OutputMode.FULL;
+    private String complexityCachePath = null; // null = metriche di complessità sempre ricalcolate
+    private boolean prepareRepository = false;
+    private long maxParseBlobBytes = ParseGuard.DEFAULT_MAX_BLOB_BYTES; // 0 = nessun limite
+    private long parseTimeBudgetMs = ParseGuard.DEFAULT_TIME_BUDGET_MS; // 0 = nessun limite
+    private String exclusionRules = ExclusionMatcher.DEFAULT_RULES;
+    private int exclusionHeaderChars = 0; // 0 = marcatori cercati in tutto il file
+    private int historyShards = 1; // 1 = analisi storica nel processo corrente
+    private String historyShardDir = null; // null = directory temporanea
+    private String historySpillDir = null; // null = storie sempre in heap
+    private double historySpillHeapRatio = MappedHistoryStore.DEFAULT_HEAP_RATIO;
+    private boolean datasetIndexEnabled = false;
+    private double previewFileRate = 1.0; // 1 = tutti i file
+    private int previewReleases = 0; // 0 = tutte le release considerate
+    private long previewSeed = 0;
+    private String ticketStoreDir = null; // null = ticket scaricati per intero a ogni esecuzione
+    private boolean jiraOffline = false;
+    private int smellBatchReleases = 1; // 1 = un'analisi PMD per release
+    private String stageDir = null; // null = nessun artefatto intermedio, tutte le fasi rieseguite
+
     public ProjectConfig(String projectName, String repoPath, String outputCsvPath) {
         this.projectName = projectName;
         this.repoPath = repoPath;
@@ -22,4 +54,288 @@ public class ProjectConfig {
     public String getOutputCsvPath() {
         return outputCsvPath;
     }
+
+    public MethodExtractionMode getMethodExtractionMode() {
+        return methodExtractionMode;
+    }
+
+    public void setMethodExtractionMode(MethodExtractionMode methodExtractionMode) {
+        this.methodExtractionMode = methodExtractionMode;
+    }
+
+    public int getAnalysisThreads() {
+        return analysisThreads;
+    }
+
+    public void setAnalysisThreads(int analysisThreads) {
+        this.analysisThreads = Math.max(1, analysisThreads);
+    }
+
+    /**
+     * Memoria stimata (MB) che il progetto riserva dal budget condiviso del runner.
+     */
+    public long getMemoryBudgetMb() {
+        return memoryBudgetMb;
+    }
+
+    public void setMemoryBudgetMb(long memoryBudgetMb) {
+        this.memoryBudgetMb = memoryBudgetMb;
+    }
+
+    /**
+     * Se attivo, la fase storica si limita ai commit che possono influenzare le release considerate.
+     */
+    public boolean isHistoryHorizonEnabled() {
+        return historyHorizonEnabled;
+    }
+
+    public void setHistoryHorizonEnabled(boolean historyHorizonEnabled) {
+        this.historyHorizonEnabled = historyHorizonEnabled;
+    }
+
+    public GitStorageProfile getGitStorageProfile() {
+        return gitStorageProfile;
+    }
+
+    public void setGitStorageProfile(GitStorageProfile gitStorageProfile) {
+        this.gitStorageProfile = gitStorageProfile;
+    }
+
+    public ProportionMode getProportionMode() {
+        return proportionMode;
+    }
+
+    public void setProportionMode(ProportionMode proportionMode) {
+        this.proportionMode = proportionMode;
+    }
+
+    /**
+     * File in cui salvare il catalogo delle release fra un'esecuzione e l'altra; null per non salvarlo.
+     */
+    public String getReleaseCatalogPath() {
+        return releaseCatalogPath;
+    }
+
+    public void setReleaseCatalogPath(String releaseCatalogPath) {
+        this.releaseCatalogPath = releaseCatalogPath;
+    }
+
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    public void setOutputMode(OutputMode outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    /**
+     * File della cache delle metriche di complessità per blob; può essere condiviso fra progetti.
+     */
+    public String getComplexityCachePath() {
+        return complexityCachePath;
+    }
+
+    public void setComplexityCachePath(String complexityCachePath) {
+        this.complexityCachePath = complexityCachePath;
+    }
+
+    /**
+     * Se attivo, prima dell'analisi genera commit-graph e bitmap nel clone quando mancano (riscrive i pack).
+     */
+    public boolean isPrepareRepository() {
+        return prepareRepository;
+    }
+
+    public void setPrepareRepository(boolean prepareRepository) {
+        this.prepareRepository = prepareRepository;
+    }
+
+    /**
+     * Dimensione massima di un blob da analizzare con il parser; i file più grandi vengono saltati.
+     */
+    public long getMaxParseBlobBytes() {
+        return maxParseBlobBytes;
+    }
+
+    public void setMaxParseBlobBytes(long maxParseBlobBytes) {
+        this.maxParseBlobBytes = maxParseBlobBytes;
+    }
+
+    /**
+     * Tempo massimo di parsing per file; i file che lo superano vengono saltati. Disattivato per
+     * default (0): con un tempo massimo il dataset dipende dal carico della macchina.
+     */
+    public long getParseTimeBudgetMs() {
+        return parseTimeBudgetMs;
+    }
+
+    public void setParseTimeBudgetMs(long parseTimeBudgetMs) {
+        this.parseTimeBudgetMs = parseTimeBudgetMs;
+    }
+
+    /**
+     * Regole di esclusione dei file, nella sintassi di {@link ExclusionMatcher}.
+     */
+    public String getExclusionRules() {
+        return exclusionRules;
+    }
+
+    public void setExclusionRules(String exclusionRules) {
+        this.exclusionRules = exclusionRules;
+    }
+
+    /**
+     * Caratteri iniziali del file in cui cercare i marcatori di contenuto (es. "@Generated").
+     */
+    public int getExclusionHeaderChars() {
+        return exclusionHeaderChars;
+    }
+
+    public void setExclusionHeaderChars(int exclusionHeaderChars) {
+        this.exclusionHeaderChars = exclusionHeaderChars;
+    }
+
+    /**
+     * Numero di partizioni (e di processi worker) in cui dividere l'analisi storica.
+     */
+    public int getHistoryShards() {
+        return historyShards;
+    }
+
+    public void setHistoryShards(int historyShards) {
+        this.historyShards = Math.max(1, historyShards);
+    }
+
+    /**
+     * Directory dei risultati parziali; se condivisa, altre macchine possono elaborare partizioni.
+     */
+    public String getHistoryShardDir() {
+        return historyShardDir;
+    }
+
+    public void setHistoryShardDir(String historyShardDir) {
+        this.historyShardDir = historyShardDir;
+    }
+
+    /**
+     * Directory in cui l'analisi storica riversa le storie quando l'heap si riempie
+     * (vedi {@link MappedHistoryStore}).
+     */
+    public String getHistorySpillDir() {
+        return historySpillDir;
+    }
+
+    public void setHistorySpillDir(String historySpillDir) {
+        this.historySpillDir = historySpillDir;
+    }
+
+    /**
+     * Quota dell'heap massimo oltre la quale le storie vengono riversate su disco.
+     */
+    public double getHistorySpillHeapRatio() {
+        return historySpillHeapRatio;
+    }
+
+    public void setHistorySpillHeapRatio(double historySpillHeapRatio) {
+        this.historySpillHeapRatio = Math.max(0, Math.min(1, historySpillHeapRatio));
+    }
+
+    /**
+     * Se true, accanto al CSV completo viene scritto l'indice per MethodID (vedi DatasetIndex).
+     */
+    public boolean isDatasetIndexEnabled() {
+        return datasetIndexEnabled;
+    }
+
+    public void setDatasetIndexEnabled(boolean datasetIndexEnabled) {
+        this.datasetIndexEnabled = datasetIndexEnabled;
+    }
+
+    /**
+     * Quota di file per package analizzata in anteprima (vedi PreviewSample).
+     */
+    public double getPreviewFileRate() {
+        return previewFileRate;
+    }
+
+    public void setPreviewFileRate(double previewFileRate) {
+        if (!(previewFileRate > 0)) {
+            throw new IllegalArgumentException("La quota di file dell'anteprima deve essere positiva: " + previewFileRate);
+        }
+        this.previewFileRate = Math.min(1, previewFileRate);
+    }
+
+    /**
+     * Numero di release considerate in anteprima, a intervalli regolari.
+     */
+    public int getPreviewReleases() {
+        return previewReleases;
+    }
+
+    public void setPreviewReleases(int previewReleases) {
+        this.previewReleases = Math.max(0, previewReleases);
+    }
+
+    public long getPreviewSeed() {
+        return previewSeed;
+    }
+
+    public void setPreviewSeed(long previewSeed) {
+        this.previewSeed = previewSeed;
+    }
+
+    /**
+     * Directory dell'archivio locale dei ticket (vedi TicketStore): con l'archivio da JIRA si
+     * scaricano solo i ticket aggiornati dopo l'ultima sincronizzazione.
+     */
+    public String getTicketStoreDir() {
+        return ticketStoreDir;
+    }
+
+    public void setTicketStoreDir(String ticketStoreDir) {
+        this.ticketStoreDir = ticketStoreDir;
+    }
+
+    /**
+     * Se true, i ticket vengono letti solo dall'archivio locale, senza contattare JIRA.
+     */
+    public boolean isJiraOffline() {
+        return jiraOffline;
+    }
+
+    public void setJiraOffline(boolean jiraOffline) {
+        this.jiraOffline = jiraOffline;
+    }
+
+    /**
+     * Numero di release analizzate da PMD in un'unica passata; i checkout del gruppo restano su
+     * disco insieme fino alla fine dell'analisi.
+     */
+    public int getSmellBatchReleases() {
+        return smellBatchReleases;
+    }
+
+    public void setSmellBatchReleases(int smellBatchReleases) {
+        this.smellBatchReleases = Math.max(1, smellBatchReleases);
+    }
+
+    /**
+     * Directory degli artefatti intermedi delle fasi (vedi PipelineStages): le fasi con gli input
+     * invariati vengono rilette invece che rieseguite, e una generazione interrotta riprende dalla
+     * prima release non completata.
+     */
+    public String getStageDir() {
+        return stageDir;
+    }
+
+    public void setStageDir(String stageDir) {
+        this.stageDir = stageDir;
+    }
+
+    /**
+     * True se il dataset va generato come anteprima campionata.
+     */
+    public boolean isPreviewEnabled() {
+        return previewFileRate < 1 || previewReleases > 0;
+    }
 }
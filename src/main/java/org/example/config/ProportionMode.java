@@ -0,0 +1,11 @@
+package org.example.config;
+
+/**
+ * Strategia di calcolo del valore p di Proportion usato per stimare le IV mancanti.
+ */
+public enum ProportionMode {
+    /** Un'unica mediana su tutti i ticket (comportamento storico, usa anche dati "futuri"). */
+    GLOBAL,
+    /** Mediana walk-forward: per ogni release solo i ticket fixati nelle release precedenti. */
+    ROLLING
+}
@@ -0,0 +1,288 @@
+package org.example.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Configurazione del runner multi-progetto: elenco dei progetti e budget condivisi
+ * di thread e memoria. Si costruisce da riga di comando e/o da un file .properties:
+ * <pre>
+ * projects = BOOKKEEPER, AVRO
+ * threads = 8
+ * parallelProjects = 2                                  (facoltativo, default min(threads, progetti))
+ * memoryMb = 12000
+ * outputDir = ./datasets
+ * BOOKKEEPER.repoPath = /repos/bookkeeper
+ * BOOKKEEPER.outputCsvPath = ./bookkeeper_dataset.csv   (facoltativo)
+ * BOOKKEEPER.memoryMb = 4096                            (facoltativo)
+ * BOOKKEEPER.methodExtractionMode = LEXER               (facoltativo)
+ * BOOKKEEPER.historyHorizon = true                      (facoltativo)
+ * BOOKKEEPER.gitStorageProfile = MMAP                   (facoltativo, vedi GitStorageProfile; uguale per tutti i progetti)
+ * BOOKKEEPER.proportionMode = ROLLING                   (facoltativo)
+ * BOOKKEEPER.releaseCatalog = ./bookkeeper_releases.txt (facoltativo, cache del catalogo delle release)
+ * BOOKKEEPER.outputMode = DELTA                         (facoltativo, FULL o DELTA)
+ * BOOKKEEPER.complexityCache = ./cache/complexity.bin   (facoltativo, condivisibile fra progetti)
+ * BOOKKEEPER.prepareRepository = true                   (facoltativo, genera commit-graph e bitmap)
+ * BOOKKEEPER.maxParseBlobBytes = 2097152                (facoltativo, default 0 = nessun limite)
+ * BOOKKEEPER.parseTimeoutMs = 10000                     (facoltativo, per file; default 0 = nessun limite)
+ * BOOKKEEPER.exclusions = *&#47;test/*, *Tool.java, content:@Generated  (facoltativo, sostituisce le regole predefinite)
+ * BOOKKEEPER.exclusionHeaderChars = 4096                (facoltativo, 0 = marcatori cercati in tutto il file)
+ * BOOKKEEPER.historyShards = 4                          (facoltativo, analisi storica in N processi worker)
+ * BOOKKEEPER.historyShardDir = /shared/bookkeeper-shards (facoltativo, risultati parziali riusabili)
+ * BOOKKEEPER.historySpillDir = /scratch/history         (facoltativo, storie riversate su disco se l'heap si riempie)
+ * BOOKKEEPER.historySpillHeapRatio = 0.75               (facoltativo, quota di heap oltre cui riversare)
+ * BOOKKEEPER.datasetIndex = true                        (facoltativo, indice per MethodID accanto al CSV completo)
+ * BOOKKEEPER.previewFileRate = 0.1                      (facoltativo, anteprima su una quota di file per package)
+ * BOOKKEEPER.previewReleases = 3                        (facoltativo, anteprima su N release; 0 = tutte)
+ * BOOKKEEPER.previewSeed = 42                           (facoltativo, seme del campione dell'anteprima)
+ * BOOKKEEPER.ticketStoreDir = /data/tickets             (facoltativo, archivio locale con sincronizzazione incrementale)
+ * BOOKKEEPER.jiraOffline = true                         (facoltativo, ticket solo dall'archivio, senza rete)
+ * BOOKKEEPER.smellBatchReleases = 4                     (facoltativo, release analizzate da PMD in una passata)
+ * BOOKKEEPER.stageDir = ./stages/bookkeeper             (facoltativo, artefatti intermedi riusabili e ripresa)
+ * </pre>
+ * Opzioni da riga di comando: {@code --config <file>}, {@code --project NOME=repoPath[,outputCsv]},
+ * {@code --threads N}, {@code --parallel-projects N}, {@code --memory-mb N}, {@code --output-dir <dir>}.
+ * Le opzioni vengono raccolte tutte prima di costruire i progetti: l'ordine sulla riga di comando
+ * non conta, e le opzioni da riga di comando prevalgono su quelle dei file di configurazione.
+ */
+public class RunnerConfig {
+    private final List<ProjectConfig> projects = new ArrayList<>();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int parallelProjects = 0; // 0 = min(threads, numero di progetti)
+    private long memoryBudgetMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+    private String outputDir = ".";
+
+    public static RunnerConfig fromArgs(String[] args) throws IOException {
+        List<Path> configFiles = new ArrayList<>();
+        List<String> projectOptions = new ArrayList<>();
+        Integer threads = null;
+        Integer parallelProjects = null;
+        Long memoryBudgetMb = null;
+        String outputDir = null;
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valore mancante per l'opzione " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--config" -> configFiles.add(Paths.get(value));
+                case "--project" -> projectOptions.add(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--parallel-projects" -> parallelProjects = Integer.parseInt(value);
+                case "--memory-mb" -> memoryBudgetMb = Long.parseLong(value);
+                case "--output-dir" -> outputDir = value;
+                default -> throw new IllegalArgumentException("Opzione sconosciuta: " + option);
+            }
+        }
+
+        RunnerConfig runnerConfig = new RunnerConfig();
+        List<Properties> configs = new ArrayList<>();
+        for (Path file : configFiles) {
+            Properties props = readProperties(file);
+            runnerConfig.applyGlobalProperties(props);
+            configs.add(props);
+        }
+        if (threads != null) runnerConfig.setThreads(threads);
+        if (parallelProjects != null) runnerConfig.setParallelProjects(parallelProjects);
+        if (memoryBudgetMb != null) runnerConfig.setMemoryBudgetMb(memoryBudgetMb);
+        if (outputDir != null) runnerConfig.outputDir = outputDir;
+
+        for (int i = 0; i < configs.size(); i++) {
+            runnerConfig.addProjects(configs.get(i), configFiles.get(i));
+        }
+        for (String value : projectOptions) {
+            runnerConfig.addProject(parseProjectOption(value, runnerConfig.outputDir));
+        }
+        if (runnerConfig.projects.isEmpty()) {
+            throw new IllegalArgumentException("Nessun progetto configurato.");
+        }
+        return runnerConfig;
+    }
+
+    private static ProjectConfig parseProjectOption(String value, String outputDir) {
+        int eq = value.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("Formato atteso NOME=repoPath[,outputCsv]: " + value);
+        }
+        String name = value.substring(0, eq).trim();
+        String[] parts = value.substring(eq + 1).split(",", 2);
+        String output = (parts.length > 1) ? parts[1].trim() : defaultOutputPath(outputDir, name);
+        return new ProjectConfig(name, parts[0].trim(), output);
+    }
+
+    private static Properties readProperties(Path file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            props.load(reader);
+        }
+        return props;
+    }
+
+    private void applyGlobalProperties(Properties props) {
+        if (props.containsKey("threads")) setThreads(Integer.parseInt(props.getProperty("threads").trim()));
+        if (props.containsKey("parallelProjects")) setParallelProjects(Integer.parseInt(props.getProperty("parallelProjects").trim()));
+        if (props.containsKey("memoryMb")) setMemoryBudgetMb(Long.parseLong(props.getProperty("memoryMb").trim()));
+        outputDir = props.getProperty("outputDir", outputDir).trim();
+    }
+
+    private void addProjects(Properties props, Path file) {
+        for (String name : props.getProperty("projects", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            String repoPath = props.getProperty(name + ".repoPath");
+            if (repoPath == null) {
+                throw new IllegalArgumentException("Manca " + name + ".repoPath in " + file);
+            }
+            String output = props.getProperty(name + ".outputCsvPath", defaultOutputPath(outputDir, name));
+            ProjectConfig project = new ProjectConfig(name, repoPath.trim(), output.trim());
+            applyProjectProperties(project, props);
+            addProject(project);
+        }
+    }
+
+    /**
+     * Impostazioni facoltative per progetto, nella forma NOME.chiave = valore.
+     */
+    private static void applyProjectProperties(ProjectConfig project, Properties props) {
+        String prefix = project.getProjectName() + ".";
+        String memory = props.getProperty(prefix + "memoryMb");
+        if (memory != null) project.setMemoryBudgetMb(Long.parseLong(memory.trim()));
+        String mode = props.getProperty(prefix + "methodExtractionMode");
+        if (mode != null) project.setMethodExtractionMode(MethodExtractionMode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+        String horizon = props.getProperty(prefix + "historyHorizon");
+        if (horizon != null) project.setHistoryHorizonEnabled(Boolean.parseBoolean(horizon.trim()));
+        project.setGitStorageProfile(GitStorageProfile.fromProperties(prefix, props));
+        String proportion = props.getProperty(prefix + "proportionMode");
+        if (proportion != null) project.setProportionMode(ProportionMode.valueOf(proportion.trim().toUpperCase(Locale.ROOT)));
+        String releaseCatalog = props.getProperty(prefix + "releaseCatalog");
+        if (releaseCatalog != null) project.setReleaseCatalogPath(releaseCatalog.trim());
+        String outputMode = props.getProperty(prefix + "outputMode");
+        if (outputMode != null) project.setOutputMode(OutputMode.valueOf(outputMode.trim().toUpperCase(Locale.ROOT)));
+        String complexityCache = props.getProperty(prefix + "complexityCache");
+        if (complexityCache != null) project.setComplexityCachePath(complexityCache.trim());
+        String prepare = props.getProperty(prefix + "prepareRepository");
+        if (prepare != null) project.setPrepareRepository(Boolean.parseBoolean(prepare.trim()));
+        String maxBlob = props.getProperty(prefix + "maxParseBlobBytes");
+        if (maxBlob != null) project.setMaxParseBlobBytes(Long.parseLong(maxBlob.trim()));
+        String parseTimeout = props.getProperty(prefix + "parseTimeoutMs");
+        if (parseTimeout != null) project.setParseTimeBudgetMs(Long.parseLong(parseTimeout.trim()));
+        String exclusions = props.getProperty(prefix + "exclusions");
+        if (exclusions != null) project.setExclusionRules(exclusions);
+        String headerChars = props.getProperty(prefix + "exclusionHeaderChars");
+        if (headerChars != null) project.setExclusionHeaderChars(Integer.parseInt(headerChars.trim()));
+        String shards = props.getProperty(prefix + "historyShards");
+        if (shards != null) project.setHistoryShards(Integer.parseInt(shards.trim()));
+        String shardDir = props.getProperty(prefix + "historyShardDir");
+        if (shardDir != null) project.setHistoryShardDir(shardDir.trim());
+        String spillDir = props.getProperty(prefix + "historySpillDir");
+        if (spillDir != null) project.setHistorySpillDir(spillDir.trim());
+        String spillRatio = props.getProperty(prefix + "historySpillHeapRatio");
+        if (spillRatio != null) project.setHistorySpillHeapRatio(Double.parseDouble(spillRatio.trim()));
+        String datasetIndex = props.getProperty(prefix + "datasetIndex");
+        if (datasetIndex != null) project.setDatasetIndexEnabled(Boolean.parseBoolean(datasetIndex.trim()));
+        String previewFileRate = props.getProperty(prefix + "previewFileRate");
+        if (previewFileRate != null) project.setPreviewFileRate(Double.parseDouble(previewFileRate.trim()));
+        String previewReleases = props.getProperty(prefix + "previewReleases");
+        if (previewReleases != null) project.setPreviewReleases(Integer.parseInt(previewReleases.trim()));
+        String previewSeed = props.getProperty(prefix + "previewSeed");
+        if (previewSeed != null) project.setPreviewSeed(Long.parseLong(previewSeed.trim()));
+        String ticketStoreDir = props.getProperty(prefix + "ticketStoreDir");
+        if (ticketStoreDir != null) project.setTicketStoreDir(ticketStoreDir.trim());
+        String jiraOffline = props.getProperty(prefix + "jiraOffline");
+        if (jiraOffline != null) project.setJiraOffline(Boolean.parseBoolean(jiraOffline.trim()));
+        String smellBatch = props.getProperty(prefix + "smellBatchReleases");
+        if (smellBatch != null) project.setSmellBatchReleases(Integer.parseInt(smellBatch.trim()));
+        String stageDir = props.getProperty(prefix + "stageDir");
+        if (stageDir != null) project.setStageDir(stageDir.trim());
+    }
+
+    private static String defaultOutputPath(String outputDir, String projectName) {
+        return Paths.get(outputDir, projectName.toLowerCase(Locale.ROOT) + "_dataset.csv").toString();
+    }
+
+    public void addProject(ProjectConfig project) {
+        Set<String> outputs = new HashSet<>();
+        for (ProjectConfig existing : projects) {
+            outputs.add(Paths.get(existing.getOutputCsvPath()).toAbsolutePath().normalize().toString());
+            if (existing.getProjectName().equals(project.getProjectName())) {
+                throw new IllegalArgumentException("Progetto duplicato: " + project.getProjectName());
+            }
+        }
+        if (!outputs.add(Paths.get(project.getOutputCsvPath()).toAbsolutePath().normalize().toString())) {
+            throw new IllegalArgumentException("Output CSV condiviso con un altro progetto: " + project.getOutputCsvPath());
+        }
+        if (!projects.isEmpty() && !projects.get(0).getGitStorageProfile().equals(project.getGitStorageProfile())) {
+            throw new IllegalArgumentException(conflictingProfiles(projects.get(0), project));
+        }
+        projects.add(project);
+    }
+
+    /**
+     * Profilo di storage Git comune a tutti i progetti. La WindowCache di JGit è unica per il
+     * processo, quindi i progetti eseguiti insieme devono usare lo stesso profilo.
+     *
+     * @throws IllegalArgumentException se i progetti chiedono profili diversi
+     */
+    public GitStorageProfile getGitStorageProfile() {
+        if (projects.isEmpty()) return GitStorageProfile.DEFAULT;
+        ProjectConfig first = projects.get(0);
+        for (ProjectConfig project : projects) {
+            if (!project.getGitStorageProfile().equals(first.getGitStorageProfile())) {
+                throw new IllegalArgumentException(conflictingProfiles(first, project));
+            }
+        }
+        return first.getGitStorageProfile();
+    }
+
+    private static String conflictingProfiles(ProjectConfig first, ProjectConfig other) {
+        return "Profili di storage Git diversi (" + first.getProjectName() + ": " + first.getGitStorageProfile()
+                + ", " + other.getProjectName() + ": " + other.getGitStorageProfile()
+                + "): la cache dei pack di JGit è unica per il processo, eseguire i progetti separatamente.";
+    }
+
+    public List<ProjectConfig> getProjects() {
+        return projects;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Numero di progetti eseguiti contemporaneamente; i thread vengono divisi fra questi.
+     */
+    public int getParallelProjects() {
+        int limit = Math.min(threads, Math.max(1, projects.size()));
+        return (parallelProjects > 0) ? Math.min(parallelProjects, limit) : limit;
+    }
+
+    public void setParallelProjects(int parallelProjects) {
+        this.parallelProjects = Math.max(0, parallelProjects);
+    }
+
+    public long getMemoryBudgetMb() {
+        return memoryBudgetMb;
+    }
+
+    public void setMemoryBudgetMb(long memoryBudgetMb) {
+        this.memoryBudgetMb = Math.max(1, memoryBudgetMb);
+    }
+
+    public String getOutputDir() {
+        return outputDir;
+    }
+}
@@ -2,6 +2,8 @@
 package org.example.logic;
 
 
+import org.example.config.ProportionMode;
+import org.example.model.HistoryStore;
 import org.example.model.JiraTicket;
 import org.example.model.MethodHistory;
 import org.example.model.Release;
@@ -16,14 +18,24 @@ public class BugginessLogic {
     private static final String SEPARATOR_LINE = "------------------------------------------";
 
     private final List<Release> releases;
-    private final Map<String, MethodHistory> methodsHistories;
+    private final HistoryStore methodsHistories;
 
     private final List<Double> pValues = new ArrayList<>();
+    // Valori di p raggruppati per indice della Fixed Version, usati dalla modalità ROLLING
+    private final Map<Integer, List<Double>> pValuesByFixedVersion = new HashMap<>();
     private static final int COLD_START_THRESHOLD = 5;
 
-    public BugginessLogic(List<Release> releases, Map<String, MethodHistory> methodsHistories) {
+    private final ProportionMode proportionMode;
+    private double[] proportionByRelease;
+
+    public BugginessLogic(List<Release> releases, HistoryStore methodsHistories) {
+        this(releases, methodsHistories, ProportionMode.GLOBAL);
+    }
+
+    public BugginessLogic(List<Release> releases, HistoryStore methodsHistories, ProportionMode proportionMode) {
         this.releases = releases;
         this.methodsHistories = methodsHistories;
+        this.proportionMode = proportionMode;
     }
 
     /**
@@ -88,6 +100,7 @@ public class BugginessLogic {
             double p = (fvIndex - ivIndex) / (fvIndex - ovIndex);
             if (!Double.isInfinite(p) && !Double.isNaN(p) && p >= 0) {
                 pValues.add(p);
+                pValuesByFixedVersion.computeIfAbsent((int) fvIndex, k -> new ArrayList<>()).add(p);
             }
         }
     }
@@ -126,13 +139,49 @@ public class BugginessLogic {
         }
     }
 
+    /**
+     * Calcola il p di ogni release percorrendo le release in ordine di Fixed Version: il p della
+     * release r è la mediana dei soli ticket fixati nelle release precedenti, quindi nessuna stima
+     * usa informazioni successive. La mediana è mantenuta incrementalmente, senza riordinare.
+     */
+    private double[] computeRollingProportions() {
+        double[] pByRelease = new double[releases.size()];
+        RunningMedian median = new RunningMedian();
+        for (int r = 0; r < releases.size(); r++) {
+            pByRelease[r] = (median.size() < COLD_START_THRESHOLD) ? 1.0 : median.median();
+            for (double p : pValuesByFixedVersion.getOrDefault(r, Collections.emptyList())) {
+                median.add(p);
+            }
+            LOGGER.log(Level.FINE, "Proportion rolling: release {0} -> p = {1}", new Object[]{releases.get(r).getName(), pByRelease[r]});
+        }
+        return pByRelease;
+    }
+
+    /**
+     * Valore di p usato per stimare le IV dei ticket con la Fixed Version indicata.
+     * Disponibile dopo calculateBugLifecycles.
+     */
+    public double getProportionForRelease(int fixedVersionIndex) {
+        if (proportionByRelease != null) {
+            return proportionByRelease[fixedVersionIndex];
+        }
+        return getProportionValue();
+    }
+
     private void estimateMissingIVs(List<JiraTicket> ticketsWithUnknownIV) {
-        double p = getProportionValue();
-        LOGGER.log(Level.INFO, "Valore di Proportion (p) utilizzato per la stima: {0}", p);
+        if (proportionMode == ProportionMode.ROLLING) {
+            proportionByRelease = computeRollingProportions();
+            LOGGER.log(Level.INFO, "Proportion rolling: p calcolato per {0} release (ultimo valore {1}).",
+                    new Object[]{proportionByRelease.length,
+                            proportionByRelease.length == 0 ? 1.0 : proportionByRelease[proportionByRelease.length - 1]});
+        } else {
+            LOGGER.log(Level.INFO, "Valore di Proportion (p) utilizzato per la stima: {0}", getProportionValue());
+        }
 
         for (JiraTicket ticket : ticketsWithUnknownIV) {
             double fv = ticket.getFixedVersion().getIndex();
             double ov = ticket.getOpeningVersion().getIndex();
+            double p = getProportionForRelease(ticket.getFixedVersion().getIndex());
 
             int estimatedIvIndex = (int) Math.round(fv - (fv - ov) * p);
 
@@ -189,8 +238,8 @@ public class BugginessLogic {
                 .orElse(null);
     }
 
-    public boolean isBuggy(String methodID, Release currentRelease, List<JiraTicket> tickets) {
-        MethodHistory history = methodsHistories.get(methodID);
+    public boolean isBuggy(int methodId, Release currentRelease, List<JiraTicket> tickets) {
+        MethodHistory history = methodsHistories.getMethodHistory(methodId);
         if (history == null) return false;
 
         for (JiraTicket ticket : tickets) {
@@ -0,0 +1,255 @@
+package org.example.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Predicate;
+
+/**
+ * Filtro dei file da escludere dall'analisi, con le regole compilate in due automi di
+ * Aho-Corasick: uno per il percorso e uno per i marcatori nel contenuto. Ogni verifica è una
+ * sola scansione, qualunque sia il numero di regole.
+ * <p>
+ * Sintassi delle regole (una per voce, separate da virgole o a capo):
+ * <pre>
+ * *&#47;test/*     il percorso contiene "/test/"
+ * test*           il percorso inizia con "test"
+ * *Test.java      il percorso finisce con "test.java"
+ * src/Foo.java    il percorso è esattamente "src/foo.java"
+ * content:@Generated   il contenuto contiene "@Generated"
+ * </pre>
+ * Le regole di percorso non distinguono maiuscole e minuscole; i marcatori sì. Inizio e fine del
+ * percorso sono resi con due caratteri sentinella, così prefissi e suffissi diventano normali
+ * sottostringhe dello stesso automa.
+ * <p>
+ * Le regole di percorso vanno valutate con {@link #isPathExcluded(String)} prima di leggere il
+ * blob: i file esclusi per percorso non vengono mai caricati. I marcatori si cercano nei primi
+ * {@code headerWindowChars} caratteri del contenuto (0 = tutto il file, come in origine).
+ * Con {@link #restrictedTo(Predicate)} si aggiunge un filtro che esclude i percorsi non ammessi
+ * (ad esempio quelli fuori dal campione dell'anteprima), valutato con le stesse regole di percorso.
+ */
+public class ExclusionMatcher {
+    private static final char PATH_START = '\u0001';
+    private static final char PATH_END = '\u0002';
+    private static final String CONTENT_PREFIX = "content:";
+
+    /** Le regole storiche del progetto (vedi {@code Main.isFileExcluded}). */
+    public static final String DEFAULT_RULES = String.join(",",
+            "*/test/*", "test*", "*test.java", "*/archetype-resources/*", "*/archetypes/*",
+            "content:Generated by", "content:@Generated",
+            "*/avro/ipc/*", "*/avro/thrift/*", "*/bookkeeper/proto/*", "*/hedwig/protocol/*",
+            "*/tools/*", "*/benchmark/*",
+            "*admin.java", "*shell.java", "*console.java", "*tool.java");
+
+    private static final ExclusionMatcher DEFAULT = parse(DEFAULT_RULES, 0);
+
+    private final Automaton pathAutomaton;
+    private final Automaton contentAutomaton; // null = nessun marcatore
+    private final int headerWindowChars;
+    private final Predicate<String> admittedPaths; // null = nessuna restrizione
+
+    private ExclusionMatcher(List<String> pathPatterns, List<String> contentMarkers, int headerWindowChars) {
+        this.pathAutomaton = new Automaton(pathPatterns);
+        this.contentAutomaton = contentMarkers.isEmpty() ? null : new Automaton(contentMarkers);
+        this.headerWindowChars = Math.max(0, headerWindowChars);
+        this.admittedPaths = null;
+    }
+
+    private ExclusionMatcher(ExclusionMatcher base, Predicate<String> admittedPaths) {
+        this.pathAutomaton = base.pathAutomaton;
+        this.contentAutomaton = base.contentAutomaton;
+        this.headerWindowChars = base.headerWindowChars;
+        this.admittedPaths = admittedPaths;
+    }
+
+    public static ExclusionMatcher defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Compila le regole nella sintassi descritta sopra.
+     *
+     * @throws IllegalArgumentException per una regola con '*' in mezzo o vuota
+     */
+    public static ExclusionMatcher parse(String rules, int headerWindowChars) {
+        List<String> pathPatterns = new ArrayList<>();
+        List<String> contentMarkers = new ArrayList<>();
+        for (String raw : rules.split("[,\\n]")) {
+            String rule = raw.trim();
+            if (rule.isEmpty()) continue;
+            if (rule.startsWith(CONTENT_PREFIX)) {
+                String marker = rule.substring(CONTENT_PREFIX.length());
+                if (marker.isEmpty()) throw new IllegalArgumentException("Marcatore di contenuto vuoto");
+                contentMarkers.add(marker);
+            } else {
+                pathPatterns.add(compilePathRule(rule));
+            }
+        }
+        return new ExclusionMatcher(pathPatterns, contentMarkers, headerWindowChars);
+    }
+
+    private static String compilePathRule(String rule) {
+        boolean anyStart = rule.startsWith("*");
+        boolean anyEnd = rule.length() > 1 && rule.endsWith("*");
+        String core = rule.substring(anyStart ? 1 : 0, rule.length() - (anyEnd ? 1 : 0));
+        if (core.isEmpty() || core.indexOf('*') >= 0) {
+            throw new IllegalArgumentException("Regola di esclusione non valida: " + rule);
+        }
+        return (anyStart ? "" : String.valueOf(PATH_START)) + core.toLowerCase(Locale.ROOT) + (anyEnd ? "" : String.valueOf(PATH_END));
+    }
+
+    /**
+     * Stesse regole, escludendo in più i percorsi che il predicato non ammette.
+     */
+    public ExclusionMatcher restrictedTo(Predicate<String> admittedPaths) {
+        return new ExclusionMatcher(this, admittedPaths);
+    }
+
+    /**
+     * Verifica le sole regole di percorso, senza bisogno del contenuto.
+     */
+    public boolean isPathExcluded(String pathString) {
+        if (admittedPaths != null && !admittedPaths.test(pathString)) return true;
+        return matchesPathRule(pathString);
+    }
+
+    /**
+     * Verifica le sole regole di percorso, ignorando la restrizione di {@link #restrictedTo}.
+     */
+    public boolean matchesPathRule(String pathString) {
+        int state = pathAutomaton.step(0, PATH_START);
+        if (pathAutomaton.accepts(state)) return true;
+        for (int i = 0; i < pathString.length(); i++) {
+            state = pathAutomaton.step(state, Character.toLowerCase(pathString.charAt(i)));
+            if (pathAutomaton.accepts(state)) return true;
+        }
+        return pathAutomaton.accepts(pathAutomaton.step(state, PATH_END));
+    }
+
+    /**
+     * Verifica i marcatori nella finestra iniziale del contenuto.
+     */
+    public boolean isContentExcluded(String content) {
+        if (contentAutomaton == null || content == null) return false;
+        int limit = (headerWindowChars == 0) ? content.length() : Math.min(content.length(), headerWindowChars);
+        int state = 0;
+        for (int i = 0; i < limit; i++) {
+            state = contentAutomaton.step(state, content.charAt(i));
+            if (contentAutomaton.accepts(state)) return true;
+        }
+        return false;
+    }
+
+    public boolean isExcluded(String pathString, String content) {
+        return isPathExcluded(pathString) || isContentExcluded(content);
+    }
+
+    /**
+     * Automa di Aho-Corasick già determinizzato: una transizione per carattere, senza backtracking.
+     * La tabella è indicizzata per classe di carattere (i caratteri che non compaiono in nessuna
+     * regola cadono tutti nella classe 0); per i caratteri ASCII, quasi tutti nei percorsi e nei
+     * sorgenti, ne esiste una copia indicizzata direttamente per carattere.
+     */
+    private static final class Automaton {
+        private static final int ASCII = 128;
+
+        private final int[] asciiClass = new int[ASCII];
+        private final Map<Character, Integer> otherClass = new HashMap<>();
+        private final int classCount;
+        private final int[] transitions;
+        private final int[] asciiTransitions; // stessa tabella indicizzata direttamente per carattere ASCII
+        private final boolean[] accepting;
+
+        Automaton(List<String> patterns) {
+            int classes = 1;
+            for (String pattern : patterns) {
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = pattern.charAt(i);
+                    if (classOf(c) == 0) {
+                        if (c < ASCII) asciiClass[c] = classes++;
+                        else otherClass.put(c, classes++);
+                    }
+                }
+            }
+            this.classCount = classes;
+
+            // Trie delle regole.
+            List<int[]> trie = new ArrayList<>();
+            List<Boolean> terminal = new ArrayList<>();
+            trie.add(newRow());
+            terminal.add(false);
+            for (String pattern : patterns) {
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    int cls = classOf(pattern.charAt(i));
+                    if (trie.get(state)[cls] < 0) {
+                        trie.get(state)[cls] = trie.size();
+                        trie.add(newRow());
+                        terminal.add(false);
+                    }
+                    state = trie.get(state)[cls];
+                }
+                terminal.set(state, true);
+            }
+
+            // Link di fallimento in ampiezza, risolti direttamente nella tabella delle transizioni.
+            int states = trie.size();
+            this.transitions = new int[states * classCount];
+            this.accepting = new boolean[states];
+            int[] fail = new int[states];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = trie.get(0)[cls];
+                transitions[cls] = Math.max(next, 0);
+                if (next > 0) queue.add(next);
+            }
+            for (int s = 0; s < states; s++) accepting[s] = terminal.get(s);
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                accepting[state] |= accepting[fail[state]];
+                for (int cls = 0; cls < classCount; cls++) {
+                    int next = trie.get(state)[cls];
+                    if (next < 0) {
+                        transitions[state * classCount + cls] = transitions[fail[state] * classCount + cls];
+                    } else {
+                        fail[next] = transitions[fail[state] * classCount + cls];
+                        transitions[state * classCount + cls] = next;
+                        queue.add(next);
+                    }
+                }
+            }
+            this.asciiTransitions = new int[states * ASCII];
+            for (int s = 0; s < states; s++) {
+                for (char c = 0; c < ASCII; c++) {
+                    asciiTransitions[s * ASCII + c] = transitions[s * classCount + asciiClass[c]];
+                }
+            }
+        }
+
+        private int[] newRow() {
+            int[] row = new int[classCount];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        private int classOf(char c) {
+            if (c < ASCII) return asciiClass[c];
+            Integer cls = otherClass.get(c);
+            return (cls == null) ? 0 : cls;
+        }
+
+        int step(int state, char c) {
+            if (c < ASCII) return asciiTransitions[state * ASCII + c];
+            return transitions[state * classCount + classOf(c)];
+        }
+
+        boolean accepts(int state) {
+            return accepting[state];
+        }
+    }
+}
@@ -4,55 +4,184 @@ package org.example.logic;
 import com.github.difflib.DiffUtils;
 import com.github.difflib.patch.AbstractDelta;
 import com.github.difflib.patch.Patch;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
 import com.github.javaparser.ParserConfiguration;
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.stmt.Statement;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.example.Main;
-import org.example.model.FileHistory;
-import org.example.model.MethodHistory;
+import org.example.config.MethodExtractionMode;
+import org.example.model.HistoryStore;
+import org.example.model.InMemoryHistoryStore;
+import org.example.model.MethodIdTable;
 import org.example.services.GitService;
+import org.example.services.ProgressMonitor;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static com.github.javaparser.Providers.provider;
+
 public class HistoryAnalyzer {
     private static final Logger LOGGER = Logger.getLogger(HistoryAnalyzer.class.getName());
 
     private final GitService gitService;
+    private final MethodExtractionMode extractionMode;
+    private final MethodLexer methodLexer = new MethodLexer();
+    private final MethodIdTable idTable = new MethodIdTable();
+    private final ParseGuard parseGuard;
+    private final ExclusionMatcher exclusions;
+    private ProgressMonitor progress; // null = nessun monitor
+    private HistoryStore historyStore; // null = nuovo archivio in heap a ogni analisi
+    // Un parser per thread: allo scadere del tempo il parsing in corso può restare su un thread abbandonato.
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(
+            new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17_PREVIEW)));
+
+    // Contatori diagnostici per le modalità basate sul lexer.
+    private int lexerFallbacks = 0;
+    private int lexerChecks = 0;
+    private int lexerDivergences = 0;
+    private int diffCount = 0;
+    private int renameCount = 0;
+    // Tempo speso sui singoli file (blob, parsing, diff degli statement), usato dalle stime dell'anteprima.
+    private long fileWorkNanos = 0;
 
+    /**
+     * Storie di metodi e file, indicizzate rispettivamente per methodId e pathId della tabella
+     * dei simboli, che va riusata nelle fasi successive per risolvere gli stessi metodi.
+     */
     public static class AnalysisResult {
-        public final Map<String, MethodHistory> methodHistories;
-        public final Map<String, FileHistory> fileHistories;
+        public final MethodIdTable idTable;
+        public final HistoryStore histories;
+
+        public AnalysisResult(MethodIdTable idTable, HistoryStore histories) {
+            this.idTable = idTable;
+            this.histories = histories;
+        }
+
+        /**
+         * Unisce a questo risultato quello dei commit che nella walk vengono dopo (la partizione
+         * successiva): le chiavi dell'altro risultato vengono registrate in questa tabella dei
+         * simboli, le storie dello stesso metodo o file concatenate. L'unione è associativa, quindi
+         * le partizioni si possono combinare a gruppi in qualunque modo purché in ordine.
+         *
+         * @return questo risultato, aggiornato
+         */
+        public AnalysisResult mergeWith(AnalysisResult later) {
+            later.histories.forEachMethodHistory((laterId, history) -> {
+                int methodId = idTable.internMethod(later.idTable.getPath(later.idTable.getPathId(laterId)),
+                        later.idTable.getSignature(laterId));
+                histories.appendMethodHistory(methodId, history);
+            });
+            later.histories.forEachFileHistory((laterPathId, history) ->
+                    histories.appendFileHistory(idTable.internPath(later.idTable.getPath(laterPathId)), history));
+            return this;
+        }
+    }
+
+    /**
+     * Coppia degli statement estratti dalle due versioni di un file.
+     */
+    private static class FileStatements {
+        final Map<String, List<String>> before;
+        final Map<String, List<String>> after;
 
-        public AnalysisResult(Map<String, MethodHistory> methodHistories, Map<String, FileHistory> fileHistories) {
-            this.methodHistories = methodHistories;
-            this.fileHistories = fileHistories;
+        FileStatements(Map<String, List<String>> before, Map<String, List<String>> after) {
+            this.before = before;
+            this.after = after;
         }
     }
 
     public HistoryAnalyzer(GitService gitService) {
+        this(gitService, MethodExtractionMode.JAVAPARSER);
+    }
+
+    public HistoryAnalyzer(GitService gitService, MethodExtractionMode extractionMode) {
+        this(gitService, extractionMode, ParseGuard.unbounded("storia"), ExclusionMatcher.defaults());
+    }
+
+    /**
+     * @param parseGuard limiti di dimensione e tempo per il parsing con JavaParser. Quando una delle
+     *                   due versioni di un file viene saltata, per quel commit il file contribuisce
+     *                   solo al churn di file: confrontare i metodi con una versione mancante li
+     *                   farebbe risultare tutti aggiunti o rimossi.
+     * @param exclusions filtro dei file: le regole di percorso vengono valutate prima di leggere i blob
+     */
+    public HistoryAnalyzer(GitService gitService, MethodExtractionMode extractionMode, ParseGuard parseGuard,
+                           ExclusionMatcher exclusions) {
         this.gitService = gitService;
-        ParserConfiguration parserConfig = new ParserConfiguration()
-                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17_PREVIEW);
-        StaticJavaParser.setConfiguration(parserConfig);
+        this.extractionMode = extractionMode;
+        this.parseGuard = parseGuard;
+        this.exclusions = exclusions;
+    }
+
+    /**
+     * Monitor da aggiornare a ogni commit; con un monitor il numero totale di commit viene contato
+     * prima dell'analisi (una walk in più, senza diff), per poter stimare il tempo rimanente.
+     */
+    public void setProgressMonitor(ProgressMonitor progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Archivio in cui accumulare le storie (ad esempio uno che riversa su disco); diventa proprietà
+     * del risultato dell'analisi, che ne gestisce la chiusura.
+     */
+    public void setHistoryStore(HistoryStore historyStore) {
+        this.historyStore = historyStore;
     }
 
     public AnalysisResult analyzeCommitHistory(Map<String, RevCommit> bugCommits) throws GitAPIException, IOException {
+        return analyzeCommitHistory(bugCommits, HistoryHorizon.unbounded());
+    }
+
+    public AnalysisResult analyzeCommitHistory(Map<String, RevCommit> bugCommits, HistoryHorizon horizon) throws GitAPIException, IOException {
+        return analyzeCommitHistory(bugCommits, horizon, 0, 1);
+    }
+
+    /**
+     * Analizza solo una partizione della storia: i commit della walk vengono divisi in
+     * {@code shardCount} intervalli contigui di lunghezza simile e si elabora quello di indice
+     * {@code shardIndex}. Unendo con {@link AnalysisResult#mergeWith} i risultati delle partizioni
+     * in ordine si ottiene lo stesso risultato dell'analisi completa.
+     */
+    public AnalysisResult analyzeCommitHistory(Map<String, RevCommit> bugCommits, HistoryHorizon horizon,
+                                               int shardIndex, int shardCount) throws GitAPIException, IOException {
         LOGGER.info("Inizio costruzione della storia dei metodi e dei file...");
-        Map<String, MethodHistory> methodHistories = new HashMap<>();
-        Map<String, FileHistory> fileHistories = new HashMap<>();
+        long shardStart = 0;
+        long shardEnd = Long.MAX_VALUE;
+        long totalCommits = (shardCount > 1 || progress != null) ? countCommits() : -1;
+        if (shardCount > 1) {
+            shardStart = totalCommits * shardIndex / shardCount;
+            shardEnd = totalCommits * (shardIndex + 1) / shardCount;
+            LOGGER.log(Level.INFO, "Partizione {0}/{1}: commit da {2} a {3} di {4}.",
+                    new Object[]{shardIndex + 1, shardCount, shardStart, shardEnd, totalCommits});
+        }
+        if (progress != null) {
+            progress.startHistory(Math.min(shardEnd, totalCommits) - shardStart);
+        }
+        HistoryStore histories = (historyStore != null) ? historyStore : new InMemoryHistoryStore();
 
         Iterable<RevCommit> allCommits = gitService.getAllCommits();
         int commitCount = 0;
+        int skippedCommits = 0;
+        int labelOnlyCommits = 0;
 
         for (RevCommit commit : allCommits) {
             commitCount++;
+            if (commitCount <= shardStart) continue;
+            if (commitCount > shardEnd) break;
+            if (progress != null) progress.commitProcessed();
             if (commitCount % 500 == 0) {
                 LOGGER.log(Level.INFO, "Analisi commit {0}...", commitCount);
             }
@@ -60,84 +189,224 @@ public class HistoryAnalyzer {
             try {
                 if (commit.getParentCount() == 0) continue;
 
+                boolean fullAnalysis = horizon.isWithinHorizon(commit);
+                if (!fullAnalysis && (commit.getCommitTime() > horizon.getLatestNeededCommitTime()
+                        || !horizon.isNeededForLabeling(commit))) {
+                    skippedCommits++;
+                    continue;
+                }
+                if (!fullAnalysis) labelOnlyCommits++;
+
                 List<DiffEntry> diffs = gitService.getChangedFilesInCommit(commit);
+                long fileWorkStart = System.nanoTime();
                 for (DiffEntry diff : diffs) {
-                    analyzeDiff(diff, commit, bugCommits, methodHistories, fileHistories);
+                    diffCount++;
+                    if (diff.getChangeType() == DiffEntry.ChangeType.RENAME) renameCount++;
+                    if (fullAnalysis) {
+                        analyzeDiff(diff, commit, bugCommits, histories);
+                    } else {
+                        associateFixOnly(diff, commit, histories);
+                    }
                 }
+                fileWorkNanos += System.nanoTime() - fileWorkStart;
             } catch (org.eclipse.jgit.errors.MissingObjectException e) {
                 LOGGER.log(Level.WARNING, "[WARNING] Saltato commit {0} a causa di un oggetto Git mancante.", commit.getName());
             }
         }
         LOGGER.info("Analisi storica completata.");
-        return new AnalysisResult(methodHistories, fileHistories);
+        if (horizon.isBounded()) {
+            LOGGER.log(Level.INFO, "Orizzonte storico: {0} commit saltati, {1} analizzati solo per l''etichettatura.",
+                    new Object[]{skippedCommits, labelOnlyCommits});
+        }
+        logLexerReport();
+        logRenameReport();
+        parseGuard.logReport();
+        LOGGER.log(Level.INFO, "Tabella dei simboli: {0} metodi in {1} file.", new Object[]{idTable.methodCount(), idTable.pathCount()});
+        return new AnalysisResult(idTable, histories);
+    }
+
+    /**
+     * Tempo complessivo speso sui file modificati nelle analisi eseguite da questo analizzatore.
+     */
+    public long getFileWorkNanos() {
+        return fileWorkNanos;
+    }
+
+    /**
+     * Numero di commit della walk usata dall'analisi, per dividerla in partizioni.
+     */
+    public long countCommits() throws GitAPIException, IOException {
+        long count = 0;
+        for (RevCommit ignored : gitService.getAllCommits()) {
+            count++;
+        }
+        return count;
     }
 
     /**
      * Analizza una singola modifica (DiffEntry) all'interno di un commit.
      */
     private void analyzeDiff(DiffEntry diff, RevCommit commit, Map<String, RevCommit> bugCommits,
-                             Map<String, MethodHistory> methodHistories, Map<String, FileHistory> fileHistories) throws IOException {
+                             HistoryStore histories) throws IOException {
 
         if (diff.getChangeType() == DiffEntry.ChangeType.RENAME) return;
 
         String newPath = diff.getNewPath().replace("\\", "/");
-        if (!newPath.endsWith(".java")) return;
+        if (!newPath.endsWith(".java") || exclusions.isPathExcluded(newPath)) return;
 
-        String contentAfter = gitService.getFileContentAtCommit(commit, newPath);
-        if (Main.isFileExcluded(newPath, contentAfter)) return;
+        // I blob vengono letti direttamente dagli id del DiffEntry, senza ripercorrere gli alberi.
+        byte[] bytesAfter = gitService.getBlobBytes(diff.getNewId());
+        String contentAfter = new String(bytesAfter, StandardCharsets.UTF_8);
+        if (exclusions.isContentExcluded(contentAfter)) return;
 
         String oldPath = diff.getOldPath().replace("\\", "/");
-        String contentBefore = gitService.getFileContentAtCommit(commit.getParent(0), oldPath);
+        byte[] bytesBefore = gitService.getBlobBytes(diff.getOldId());
+        String contentBefore = new String(bytesBefore, StandardCharsets.UTF_8);
         boolean isBugFixCommit = bugCommits.containsKey(commit.getName());
+        int pathId = idTable.internPath(newPath);
 
-        // 1. Calcola churn a livello di FILE
-        calculateFileLevelChurn(commit, newPath, contentBefore, contentAfter, fileHistories);
+        // 1. Calcola churn a livello di FILE sull'edit list (intervalli di righe) del commit
+        EditList lineEdits = gitService.getLineEdits(bytesBefore, bytesAfter);
+        calculateFileLevelChurn(commit, pathId, newPath, lineEdits, histories);
 
         // 2. Calcola churn a livello di METODO
-        Map<String, List<String>> stmtsBefore = getMethodStatements(contentBefore, oldPath, commit.getName());
-        Map<String, List<String>> stmtsAfter = getMethodStatements(contentAfter, newPath, commit.getName());
-        updateMethodHistoriesWithDiff(newPath, stmtsBefore, stmtsAfter, commit, methodHistories, isBugFixCommit);
+        if (!parseGuard.admitSize(oldPath, bytesBefore.length) || !parseGuard.admitSize(newPath, bytesAfter.length)) return;
+        FileStatements statements = extractStatements(contentBefore, oldPath, contentAfter, newPath, commit.getName());
+        if (statements == null) return;
+        updateMethodHistoriesWithDiff(pathId, statements.before, statements.after, commit, histories, isBugFixCommit);
 
         // 3. Associa il bug-fix ai metodi
         if (isBugFixCommit) {
-            associateBugFixToMethods(newPath, stmtsAfter.keySet(), commit, methodHistories);
+            associateBugFixToMethods(pathId, statements.after.keySet(), commit, histories);
         }
     }
 
     /**
-     * Associa un commit di fix a tutti i metodi presenti nel file modificato.
+     * Variante ridotta di analyzeDiff per i fix oltre l'orizzonte: il loro churn non entra in
+     * nessuna metrica, quindi basta leggere la nuova versione e associare il fix ai suoi metodi.
      */
-    private void associateBugFixToMethods(String filePath, Set<String> signatures, RevCommit commit, Map<String, MethodHistory> histories) {
-        for (String signature : signatures) {
-            String uniqueID = filePath + "/" + signature;
-            histories.computeIfAbsent(uniqueID, MethodHistory::new).addFix(commit);
+    private void associateFixOnly(DiffEntry diff, RevCommit commit, HistoryStore histories) throws IOException {
+        if (diff.getChangeType() == DiffEntry.ChangeType.RENAME) return;
+
+        String newPath = diff.getNewPath().replace("\\", "/");
+        if (!newPath.endsWith(".java") || exclusions.isPathExcluded(newPath)) return;
+
+        byte[] bytesAfter = gitService.getBlobBytes(diff.getNewId());
+        String contentAfter = new String(bytesAfter, StandardCharsets.UTF_8);
+        if (exclusions.isContentExcluded(contentAfter) || !parseGuard.admitSize(newPath, bytesAfter.length)) return;
+
+        Map<String, List<String>> methods = (extractionMode == MethodExtractionMode.LEXER)
+                ? methodLexer.extractMethodStatements(contentAfter) : null;
+        if (methods == null) {
+            methods = getMethodStatements(contentAfter, newPath, commit.getName());
+            if (methods == null) return;
         }
+        associateBugFixToMethods(idTable.internPath(newPath), methods.keySet(), commit, histories);
     }
 
-    private void calculateFileLevelChurn(RevCommit commit, String filePath, String contentBefore, String contentAfter, Map<String, FileHistory> fileHistories) {
-        if (contentBefore.equals(contentAfter)) return;
+    /**
+     * Estrae gli statement delle due versioni secondo la modalità configurata.
+     * I due lati passano sempre dallo stesso estrattore: se il lexer rinuncia su uno dei due,
+     * entrambi vengono rianalizzati con JavaParser, perché i testi degli statement prodotti
+     * dai due estrattori non sono confrontabili fra loro.
+     *
+     * @return gli statement, o null se una delle due versioni ha superato il tempo massimo di parsing
+     */
+    private FileStatements extractStatements(String contentBefore, String oldPath, String contentAfter,
+                                             String newPath, String commitHash) {
+        if (extractionMode == MethodExtractionMode.LEXER) {
+            Map<String, List<String>> before = methodLexer.extractMethodStatements(contentBefore);
+            Map<String, List<String>> after = (before == null) ? null : methodLexer.extractMethodStatements(contentAfter);
+            if (before != null && after != null) {
+                return new FileStatements(before, after);
+            }
+            lexerFallbacks++;
+        }
+
+        Map<String, List<String>> before = getMethodStatements(contentBefore, oldPath, commitHash);
+        Map<String, List<String>> after = (before == null) ? null : getMethodStatements(contentAfter, newPath, commitHash);
+        if (before == null || after == null) return null;
+        FileStatements parsed = new FileStatements(before, after);
+        if (extractionMode == MethodExtractionMode.LEXER_CHECKED) {
+            checkLexerConformance(contentBefore, parsed.before, oldPath, commitHash);
+            checkLexerConformance(contentAfter, parsed.after, newPath, commitHash);
+        }
+        return parsed;
+    }
 
-        List<String> fileLinesBefore = Arrays.asList(contentBefore.split("\r\n|\r|\n"));
-        List<String> fileLinesAfter = Arrays.asList(contentAfter.split("\r\n|\r|\n"));
+    /**
+     * Confronta l'output del lexer con quello di JavaParser: stesse firme e, per ogni metodo,
+     * stessi statement. Il testo di JavaParser viene prima riportato alla forma del lexer
+     * (token separati da uno spazio, commenti esclusi), così contano solo le differenze nei token.
+     */
+    private void checkLexerConformance(String content, Map<String, List<String>> expected, String filePath, String commitHash) {
+        Map<String, List<String>> actual = methodLexer.extractMethodStatements(content);
+        if (actual == null) {
+            lexerFallbacks++;
+            return;
+        }
+        lexerChecks++;
+        boolean conform = actual.keySet().equals(expected.keySet())
+                && expected.entrySet().stream().allMatch(e -> sameStatements(e.getValue(), actual.get(e.getKey())));
+        if (!conform) {
+            lexerDivergences++;
+            LOGGER.log(Level.FINE, "Divergenza lexer/JavaParser: {0} (commit: {1})", new Object[]{filePath, commitHash});
+        }
+    }
 
-        Patch<String> filePatch = DiffUtils.diff(fileLinesBefore, fileLinesAfter);
+    private boolean sameStatements(List<String> expected, List<String> actual) {
+        if (expected.size() != actual.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!actual.get(i).equals(methodLexer.normalizeStatement(expected.get(i)))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Impatto del filtro sui rename, contato per questo analizzatore (quindi per progetto).
+     */
+    private void logRenameReport() {
+        double percentage = (diffCount == 0) ? 0 : ((double) renameCount / diffCount) * 100;
+        LOGGER.log(Level.INFO, "File modificati totali analizzati (diffs): {0}", diffCount);
+        LOGGER.log(Level.INFO, "Operazioni di RENAME identificate e ignorate: {0}", renameCount);
+        LOGGER.log(Level.INFO, "Percentuale di modifiche ignorate a causa di RENAME: {0,number,#.##}%", percentage);
+    }
+
+    private void logLexerReport() {
+        if (extractionMode == MethodExtractionMode.LEXER) {
+            LOGGER.log(Level.INFO, "Estrazione con lexer: {0} file ricaduti su JavaParser.", lexerFallbacks);
+        } else if (extractionMode == MethodExtractionMode.LEXER_CHECKED) {
+            LOGGER.log(Level.INFO, "Conformità lexer: {0} versioni confrontate, {1} divergenze, {2} fallback.",
+                    new Object[]{lexerChecks, lexerDivergences, lexerFallbacks});
+        }
+    }
+
+    /**
+     * Associa un commit di fix a tutti i metodi presenti nel file modificato.
+     */
+    private void associateBugFixToMethods(int pathId, Set<String> signatures, RevCommit commit, HistoryStore histories) {
+        for (String signature : signatures) {
+            histories.addMethodFix(idTable.internMethod(pathId, signature), commit);
+        }
+    }
+
+    private void calculateFileLevelChurn(RevCommit commit, int pathId, String filePath, EditList lineEdits, HistoryStore histories) {
         int linesAdded = 0;
         int linesDeleted = 0;
 
-        for (AbstractDelta<String> delta : filePatch.getDeltas()) {
-            linesAdded += delta.getTarget().getLines().size();
-            linesDeleted += delta.getSource().getLines().size();
+        for (Edit edit : lineEdits) {
+            linesAdded += edit.getLengthB();
+            linesDeleted += edit.getLengthA();
         }
 
         if (linesAdded > 0 || linesDeleted > 0) {
-            FileHistory fh = fileHistories.computeIfAbsent(filePath, FileHistory::new);
-            fh.addChange(commit, linesAdded, linesDeleted);
+            histories.addFileChange(pathId, filePath, commit, linesAdded, linesDeleted);
         }
     }
 
-    private void updateMethodHistoriesWithDiff(String filePath, Map<String, List<String>> stmtsBefore,
+    private void updateMethodHistoriesWithDiff(int pathId, Map<String, List<String>> stmtsBefore,
                                                Map<String, List<String>> stmtsAfter, RevCommit commit,
-                                               Map<String, MethodHistory> histories, boolean isBugFix) {
+                                               HistoryStore histories, boolean isBugFix) {
         Set<String> allSignatures = new HashSet<>(stmtsBefore.keySet());
         allSignatures.addAll(stmtsAfter.keySet());
 
@@ -147,7 +416,6 @@ public class HistoryAnalyzer {
 
             if (linesBefore.equals(linesAfter)) continue;
 
-            String uniqueID = filePath + "/" + signature;
             Patch<String> patch = DiffUtils.diff(linesBefore, linesAfter);
             int added = 0;
             int deleted = 0;
@@ -158,22 +426,37 @@ public class HistoryAnalyzer {
             }
 
             if (added > 0 || deleted > 0) {
-                MethodHistory history = histories.computeIfAbsent(uniqueID, MethodHistory::new);
-                history.addChange(commit, added, deleted);
+                int methodId = idTable.internMethod(pathId, signature);
+                histories.addMethodChange(methodId, commit, added, deleted);
                 if (isBugFix) {
-                    history.incrementFixCount();
+                    histories.addMethodFixCount(methodId, 1);
                 }
             }
         }
     }
 
+    /**
+     * Statement dei metodi del file, letti con JavaParser entro il tempo massimo del guard.
+     *
+     * @return gli statement per firma (vuoto se il parsing fallisce), o null se il tempo è scaduto
+     */
     private Map<String, List<String>> getMethodStatements(String fileContent, String filePath, String commitHash) {
         if (fileContent == null || fileContent.isEmpty()) {
             return Collections.emptyMap();
         }
+        return parseGuard.run(filePath, () -> parseMethodStatements(fileContent, filePath, commitHash));
+    }
+
+    private Map<String, List<String>> parseMethodStatements(String fileContent, String filePath, String commitHash) {
         Map<String, List<String>> methods = new HashMap<>();
         try {
-            StaticJavaParser.parse(fileContent).findAll(MethodDeclaration.class).forEach(md -> {
+            ParseResult<CompilationUnit> result = parsers.get().parse(ParseStart.COMPILATION_UNIT,
+                    provider(ParseGuard.interruptible(fileContent)));
+            if (Thread.currentThread().isInterrupted()) return null;
+            if (!result.isSuccessful() || result.getResult().isEmpty()) {
+                throw new ParseProblemException(result.getProblems());
+            }
+            result.getResult().get().findAll(MethodDeclaration.class).forEach(md -> {
                 String signature = md.getSignature().asString();
                 // Smell 4: Sostituito con .toList()
                 List<String> statements = md.getBody()
@@ -184,6 +467,7 @@ public class HistoryAnalyzer {
                 methods.put(signature, statements);
             });
         } catch (Exception | StackOverflowError e) {
+            parseGuard.recordParseError();
             LOGGER.log(Level.WARNING, "Errore di parsing, file saltato: {0} (commit: {1})", new Object[]{filePath, commitHash});
         }
         return methods;
@@ -0,0 +1,68 @@
+package org.example.logic;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Orizzonte della fase storica: delimita i commit che influenzano davvero il dataset.
+ * <ul>
+ *     <li>i commit fino all'ultima release considerata vengono analizzati per intero
+ *     (churn di file e metodi, fix), perché le metriche di change guardano solo lì;</li>
+ *     <li>dopo l'orizzonte servono solo i commit di fix dei ticket che possono etichettare una
+ *     release considerata, e di questi basta associare il fix ai metodi toccati;</li>
+ *     <li>tutti gli altri commit vengono saltati senza calcolare alcun diff.</li>
+ * </ul>
+ */
+public class HistoryHorizon {
+    private static final HistoryHorizon UNBOUNDED = new HistoryHorizon(Long.MAX_VALUE, Collections.emptySet());
+
+    private final long horizonCommitTime;
+    private final Set<String> labelingCommitIds;
+    private final long latestNeededCommitTime;
+
+    /**
+     * @param horizonCommitTime commit time (in secondi) dell'ultima release considerata
+     * @param labelingCommits   commit di fix, anche successivi all'orizzonte, necessari per l'etichettatura
+     */
+    public HistoryHorizon(long horizonCommitTime, Set<RevCommit> labelingCommits) {
+        this.horizonCommitTime = horizonCommitTime;
+        this.labelingCommitIds = labelingCommits.stream().map(RevCommit::getName).collect(Collectors.toSet());
+        this.latestNeededCommitTime = labelingCommits.stream()
+                .mapToLong(RevCommit::getCommitTime)
+                .reduce(horizonCommitTime, Math::max);
+    }
+
+    public static HistoryHorizon unbounded() {
+        return UNBOUNDED;
+    }
+
+    public boolean isBounded() {
+        return horizonCommitTime != Long.MAX_VALUE;
+    }
+
+    /** Il commit ricade nella finestra delle release considerate: analisi completa. */
+    public boolean isWithinHorizon(RevCommit commit) {
+        return commit.getCommitTime() <= horizonCommitTime;
+    }
+
+    /** Commit successivo all'orizzonte, ma necessario per associare un fix ai metodi. */
+    public boolean isNeededForLabeling(RevCommit commit) {
+        return labelingCommitIds.contains(commit.getName());
+    }
+
+    public long getHorizonCommitTime() {
+        return horizonCommitTime;
+    }
+
+    public Set<String> getLabelingCommitIds() {
+        return Collections.unmodifiableSet(labelingCommitIds);
+    }
+
+    /** Commit time dell'ultimo commit ancora utile: tutto ciò che è più recente si salta. */
+    public long getLatestNeededCommitTime() {
+        return latestNeededCommitTime;
+    }
+}
@@ -0,0 +1,516 @@
+package org.example.logic;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.example.config.GitStorageProfile;
+import org.example.config.MethodExtractionMode;
+import org.example.config.ProjectConfig;
+import org.example.model.FileHistory;
+import org.example.model.HistoryStore;
+import org.example.model.InMemoryHistoryStore;
+import org.example.model.MethodHistory;
+import org.example.model.MethodIdTable;
+import org.example.services.GitService;
+import org.example.services.MappedHistoryStore;
+import org.example.services.ProgressMonitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Analisi storica divisa in partizioni elaborate da processi separati.
+ * <p>
+ * Il coordinatore scrive nella directory delle partizioni un file di job (impostazioni del
+ * progetto, commit di fix, orizzonte, numero di commit atteso) e avvia un worker locale per ogni
+ * partizione mancante. Ogni worker analizza un intervallo contiguo della walk e scrive un file
+ * parziale; il coordinatore li rilegge e li unisce in ordine con
+ * {@link HistoryAnalyzer.AnalysisResult#mergeWith}, ottenendo lo stesso risultato dell'analisi
+ * in un solo processo.
+ * <p>
+ * Per distribuire il lavoro su più macchine che condividono il clone (e la directory delle
+ * partizioni) basta lanciare a mano su ciascuna
+ * {@code java -cp ... org.example.logic.HistoryShards <dirPartizioni> <indice> [repoPath]} (il
+ * percorso del clone se su quella macchina è diverso da quello del job): i parziali già
+ * presenti e coerenti con il job corrente vengono riusati, quelli di un job diverso rifatti.
+ */
+public class HistoryShards {
+    private static final Logger LOGGER = Logger.getLogger(HistoryShards.class.getName());
+    private static final int MAGIC = 0x48534844; // "HSHD"
+    private static final int VERSION = 1;
+    private static final String JOB_FILE = "history-job.properties";
+    // Impostazioni del job che non cambiano il risultato: escluse dall'impronta, così non invalidano i parziali.
+    private static final Set<String> RUNTIME_KEYS = Set.of("historySpillDir", "historySpillHeapRatio");
+
+    private HistoryShards() {
+    }
+
+    /**
+     * Esegue l'analisi storica in {@code config.getHistoryShards()} partizioni e ne unisce i risultati.
+     * L'avanzamento per commit è esposto dai monitor JMX dei singoli worker ({@code <NOME>#<indice>});
+     * quello del coordinatore riporta solo fase e totale dei commit.
+     *
+     * @param preview campione dell'anteprima, ricostruito da ogni worker, o null
+     */
+    public static HistoryAnalyzer.AnalysisResult analyze(GitService gitService, ProjectConfig config,
+                                                         Map<String, RevCommit> bugCommits, HistoryHorizon horizon,
+                                                         PreviewSample preview, ProgressMonitor progress)
+            throws IOException, GitAPIException {
+        int shardCount = config.getHistoryShards();
+        boolean temporary = config.getHistoryShardDir() == null;
+        Path shardDir = temporary ? Files.createTempDirectory("history-shards-") : Paths.get(config.getHistoryShardDir());
+        Files.createDirectories(shardDir);
+        try {
+            long totalCommits = new HistoryAnalyzer(gitService).countCommits();
+            progress.startHistory(totalCommits);
+            Properties job = buildJob(config, bugCommits, horizon, preview, shardCount, totalCommits);
+            writeJob(shardDir, job);
+            String fingerprint = fingerprint(job);
+
+            long start = System.currentTimeMillis();
+            runMissingShards(shardDir, fingerprint, shardCount, config);
+            HistoryAnalyzer.AnalysisResult merged = mergeShards(gitService, shardDir, fingerprint, shardCount,
+                    historyStore(config.getHistorySpillDir(), config.getHistorySpillHeapRatio()));
+            LOGGER.log(Level.INFO, "Analisi storica in {0} partizioni completata in {1} ms: {2} metodi, {3} file.",
+                    new Object[]{shardCount, System.currentTimeMillis() - start,
+                            merged.histories.methodCount(), merged.histories.fileCount()});
+            return merged;
+        } finally {
+            if (temporary) {
+                deleteDirectory(shardDir);
+            }
+        }
+    }
+
+    private static Properties buildJob(ProjectConfig config, Map<String, RevCommit> bugCommits, HistoryHorizon horizon,
+                                       PreviewSample preview, int shardCount, long totalCommits) {
+        Properties job = new Properties();
+        job.setProperty("project", config.getProjectName());
+        job.setProperty("repoPath", Paths.get(config.getRepoPath()).toAbsolutePath().toString());
+        job.setProperty("gitStorageProfile", config.getGitStorageProfile().getName().replace("*", ""));
+        job.setProperty("methodExtractionMode", config.getMethodExtractionMode().name());
+        job.setProperty("maxParseBlobBytes", String.valueOf(config.getMaxParseBlobBytes()));
+        job.setProperty("parseTimeoutMs", String.valueOf(config.getParseTimeBudgetMs()));
+        job.setProperty("exclusions", config.getExclusionRules());
+        job.setProperty("exclusionHeaderChars", String.valueOf(config.getExclusionHeaderChars()));
+        job.setProperty("shardCount", String.valueOf(shardCount));
+        job.setProperty("expectedCommits", String.valueOf(totalCommits));
+        if (config.getHistorySpillDir() != null) {
+            job.setProperty("historySpillDir", Paths.get(config.getHistorySpillDir()).toAbsolutePath().toString());
+            job.setProperty("historySpillHeapRatio", String.valueOf(config.getHistorySpillHeapRatio()));
+        }
+        job.setProperty("bugCommits", String.join(",", sorted(bugCommits.keySet())));
+        if (preview != null) {
+            job.setProperty("previewReferenceCommit", preview.getReferenceCommit().getName());
+            job.setProperty("previewFileRate", String.valueOf(preview.getFileRate()));
+            job.setProperty("previewSeed", String.valueOf(preview.getSeed()));
+        }
+        if (horizon.isBounded()) {
+            job.setProperty("horizonCommitTime", String.valueOf(horizon.getHorizonCommitTime()));
+            job.setProperty("labelingCommits", String.join(",", sorted(horizon.getLabelingCommitIds())));
+        }
+        return job;
+    }
+
+    private static List<String> sorted(Set<String> values) {
+        List<String> list = new ArrayList<>(values);
+        Collections.sort(list);
+        return list;
+    }
+
+    private static void writeJob(Path shardDir, Properties job) throws IOException {
+        Path tmp = shardDir.resolve(JOB_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            job.store(writer, "Job dell'analisi storica a partizioni");
+        }
+        Files.move(tmp, shardDir.resolve(JOB_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Properties readJob(Path shardDir) throws IOException {
+        Properties job = new Properties();
+        try (Reader reader = Files.newBufferedReader(shardDir.resolve(JOB_FILE), StandardCharsets.UTF_8)) {
+            job.load(reader);
+        }
+        return job;
+    }
+
+    /**
+     * Impronta del job, indipendente dall'ordine delle chiavi e dal commento con la data.
+     */
+    private static String fingerprint(Properties job) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Map.Entry<String, String> entry : new TreeMap<>(toMap(job)).entrySet()) {
+                if (RUNTIME_KEYS.contains(entry.getKey())) continue;
+                digest.update((entry.getKey() + "=" + entry.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> toMap(Properties props) {
+        Map<String, String> map = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            map.put(key, props.getProperty(key));
+        }
+        return map;
+    }
+
+    private static Path shardFile(Path shardDir, int shardIndex, int shardCount) {
+        return shardDir.resolve("history-shard-" + shardIndex + "-of-" + shardCount + ".bin");
+    }
+
+    private static void runMissingShards(Path shardDir, String fingerprint, int shardCount, ProjectConfig config)
+            throws IOException {
+        List<Process> processes = new ArrayList<>();
+        List<Integer> launched = new ArrayList<>();
+        String javaBin = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        long workerHeapMb = (config.getMemoryBudgetMb() > 0) ? Math.max(256, config.getMemoryBudgetMb() / shardCount) : 0;
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (hasValidShard(shardFile(shardDir, shard, shardCount), fingerprint)) {
+                LOGGER.log(Level.INFO, "Partizione {0}/{1} già presente, riusata.", new Object[]{shard + 1, shardCount});
+                continue;
+            }
+            List<String> command = new ArrayList<>();
+            command.add(javaBin);
+            if (workerHeapMb > 0) command.add("-Xmx" + workerHeapMb + "m");
+            command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), HistoryShards.class.getName(),
+                    shardDir.toAbsolutePath().toString(), String.valueOf(shard)));
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+            launched.add(shard);
+        }
+
+        try {
+            for (int i = 0; i < processes.size(); i++) {
+                int exitCode = processes.get(i).waitFor();
+                if (exitCode != 0) {
+                    throw new IOException("Worker della partizione " + launched.get(i) + " terminato con codice " + exitCode);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attesa dei worker interrotta", e);
+        } finally {
+            processes.forEach(Process::destroy);
+        }
+    }
+
+    private static boolean hasValidShard(Path file, String fingerprint) {
+        if (!Files.isRegularFile(file)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(fingerprint);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param store archivio in cui unire le partizioni, o null per unirle in heap nella prima
+     */
+    private static HistoryAnalyzer.AnalysisResult mergeShards(GitService gitService, Path shardDir, String fingerprint,
+                                                              int shardCount, HistoryStore store) throws IOException {
+        HistoryAnalyzer.AnalysisResult merged = (store == null) ? null
+                : new HistoryAnalyzer.AnalysisResult(new MethodIdTable(), store);
+        try (RevWalk revWalk = new RevWalk(gitService.repository)) {
+            Map<ObjectId, RevCommit> commits = new HashMap<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                HistoryAnalyzer.AnalysisResult partial = readShard(shardFile(shardDir, shard, shardCount), fingerprint, revWalk, commits);
+                merged = (merged == null) ? partial : merged.mergeWith(partial);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Scrive un risultato parziale, con l'intestazione del job, nel formato di {@link #writeResult}.
+     */
+    static void writeShard(HistoryAnalyzer.AnalysisResult result, Path file, String fingerprint) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            writeResult(result, out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Scrive un risultato dell'analisi storica: tabella dei commit, tabella dei percorsi, poi le
+     * storie dei metodi e dei file con i commit indicati per posizione nella tabella. Lo stesso
+     * formato serve per i parziali e per l'artefatto della fase storica (vedi StageStore).
+     */
+    public static void writeResult(HistoryAnalyzer.AnalysisResult result, DataOutputStream out) throws IOException {
+        MethodIdTable idTable = result.idTable;
+        Map<RevCommit, Integer> commitIndex = new HashMap<>();
+        List<RevCommit> commits = new ArrayList<>();
+        result.histories.forEachMethodHistory((id, history) -> {
+            history.getChanges().forEach(change -> indexCommit(change.commit, commitIndex, commits));
+            history.getBugFixCommits().forEach(commit -> indexCommit(commit, commitIndex, commits));
+        });
+        result.histories.forEachFileHistory((id, history) ->
+                history.getChanges().forEach(change -> indexCommit(change.commit, commitIndex, commits)));
+
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        out.writeInt(commits.size());
+        for (RevCommit commit : commits) {
+            commit.copyRawTo(rawId, 0);
+            out.write(rawId);
+        }
+        out.writeInt(idTable.pathCount());
+        for (int pathId = 0; pathId < idTable.pathCount(); pathId++) {
+            out.writeUTF(idTable.getPath(pathId));
+        }
+
+        out.writeInt(result.histories.methodCount());
+        IOExceptionHolder error = new IOExceptionHolder();
+        result.histories.forEachMethodHistory((methodId, history) -> error.run(() -> {
+            out.writeInt(idTable.getPathId(methodId));
+            out.writeUTF(idTable.getSignature(methodId));
+            out.writeInt(history.getNFix());
+            writeChanges(out, history.getChanges(), commitIndex);
+            out.writeInt(history.getBugFixCommits().size());
+            for (RevCommit commit : history.getBugFixCommits()) {
+                out.writeInt(commitIndex.get(commit));
+            }
+        }));
+        out.writeInt(result.histories.fileCount());
+        result.histories.forEachFileHistory((pathId, history) -> error.run(() -> {
+            out.writeInt(pathId);
+            out.writeUTF(history.getFilePath());
+            writeChanges(out, history.getChanges(), commitIndex);
+        }));
+        error.rethrow();
+    }
+
+    private static void indexCommit(RevCommit commit, Map<RevCommit, Integer> commitIndex, List<RevCommit> commits) {
+        if (commitIndex.putIfAbsent(commit, commits.size()) == null) {
+            commits.add(commit);
+        }
+    }
+
+    private static void writeChanges(DataOutputStream out, List<MethodHistory.Change> changes,
+                                     Map<RevCommit, Integer> commitIndex) throws IOException {
+        out.writeInt(changes.size());
+        for (MethodHistory.Change change : changes) {
+            out.writeInt(commitIndex.get(change.commit));
+            out.writeInt(change.churn);
+        }
+    }
+
+    /**
+     * Rilegge un risultato parziale; i commit vengono risolti nel clone con la walk indicata e
+     * condivisi fra le partizioni tramite la mappa.
+     */
+    static HistoryAnalyzer.AnalysisResult readShard(Path file, String fingerprint, RevWalk revWalk,
+                                                    Map<ObjectId, RevCommit> commitCache) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint)) {
+                throw new IOException("Partizione non coerente con il job corrente: " + file);
+            }
+            return readResult(in, revWalk, commitCache);
+        }
+    }
+
+    /**
+     * Rilegge un risultato scritto con {@link #writeResult}; le storie finiscono in heap.
+     */
+    public static HistoryAnalyzer.AnalysisResult readResult(DataInputStream in, RevWalk revWalk,
+                                                            Map<ObjectId, RevCommit> commitCache) throws IOException {
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        RevCommit[] commits = new RevCommit[in.readInt()];
+        for (int i = 0; i < commits.length; i++) {
+            in.readFully(rawId);
+            ObjectId id = ObjectId.fromRaw(rawId);
+            RevCommit commit = commitCache.get(id);
+            if (commit == null) {
+                commit = revWalk.parseCommit(id);
+                commitCache.put(id, commit);
+            }
+            commits[i] = commit;
+        }
+
+        MethodIdTable idTable = new MethodIdTable();
+        int pathCount = in.readInt();
+        for (int i = 0; i < pathCount; i++) {
+            idTable.internPath(in.readUTF());
+        }
+
+        HistoryStore histories = new InMemoryHistoryStore();
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            int methodId = idTable.internMethod(in.readInt(), in.readUTF());
+            MethodHistory history = new MethodHistory(methodId);
+            history.addFixCount(in.readInt());
+            readChanges(in, commits, history.getChanges());
+            int fixes = in.readInt();
+            for (int f = 0; f < fixes; f++) {
+                history.getBugFixCommits().add(commits[in.readInt()]);
+            }
+            histories.appendMethodHistory(methodId, history);
+        }
+
+        int fileCount = in.readInt();
+        for (int i = 0; i < fileCount; i++) {
+            int pathId = in.readInt();
+            FileHistory history = new FileHistory(in.readUTF());
+            readChanges(in, commits, history.getChanges());
+            histories.appendFileHistory(pathId, history);
+        }
+        return new HistoryAnalyzer.AnalysisResult(idTable, histories);
+    }
+
+    private static void readChanges(DataInputStream in, RevCommit[] commits, List<MethodHistory.Change> target) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            target.add(new MethodHistory.Change(commits[in.readInt()], in.readInt()));
+        }
+    }
+
+    /**
+     * Archivio che riversa su disco nella directory indicata, o null per restare in heap.
+     */
+    static HistoryStore historyStore(String spillDir, double heapRatio) throws IOException {
+        return (spillDir == null) ? null : new MappedHistoryStore(Paths.get(spillDir), heapRatio);
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try (var walk = Files.walk(dir)) {
+            walk.sorted(Collections.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossibile eliminare la directory delle partizioni: {0}", dir);
+        }
+    }
+
+    /**
+     * Worker: analizza una partizione del job nella directory indicata e scrive il file parziale.
+     * Uso: {@code HistoryShards <dirPartizioni> <indice> [repoPath]}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            LOGGER.severe("Uso: HistoryShards <dirPartizioni> <indice> [repoPath]");
+            System.exit(1);
+        }
+        Path shardDir = Paths.get(args[0]);
+        int shardIndex = Integer.parseInt(args[1]);
+        Properties job = readJob(shardDir);
+        int shardCount = Integer.parseInt(job.getProperty("shardCount"));
+        if (shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Indice di partizione fuori intervallo: " + shardIndex);
+        }
+
+        String repoPath = (args.length > 2) ? args[2] : job.getProperty("repoPath");
+        GitService gitService = new GitService(Paths.get(repoPath),
+                GitStorageProfile.forName(job.getProperty("gitStorageProfile", "DEFAULT")));
+        try (ProgressMonitor progress = ProgressMonitor.register(job.getProperty("project") + "#" + shardIndex);
+             ParseGuard parseGuard = new ParseGuard("storia-" + shardIndex,
+                Long.parseLong(job.getProperty("maxParseBlobBytes")), Long.parseLong(job.getProperty("parseTimeoutMs")))) {
+            ExclusionMatcher exclusions = ExclusionMatcher.parse(job.getProperty("exclusions"),
+                    Integer.parseInt(job.getProperty("exclusionHeaderChars")));
+            if (job.containsKey("previewReferenceCommit")) {
+                try (RevWalk revWalk = new RevWalk(gitService.repository)) {
+                    PreviewSample preview = PreviewSample.build(gitService,
+                            revWalk.parseCommit(ObjectId.fromString(job.getProperty("previewReferenceCommit"))), exclusions,
+                            Double.parseDouble(job.getProperty("previewFileRate")), Long.parseLong(job.getProperty("previewSeed")));
+                    exclusions = exclusions.restrictedTo(preview::includesPath);
+                }
+            }
+            HistoryAnalyzer analyzer = new HistoryAnalyzer(gitService,
+                    MethodExtractionMode.valueOf(job.getProperty("methodExtractionMode")), parseGuard, exclusions);
+
+            long expectedCommits = Long.parseLong(job.getProperty("expectedCommits"));
+            long actualCommits = analyzer.countCommits();
+            if (actualCommits != expectedCommits) {
+                throw new IllegalStateException("Il clone ha " + actualCommits + " commit, il job ne prevede "
+                        + expectedCommits + ": le partizioni non sarebbero coerenti.");
+            }
+
+            Map<String, RevCommit> bugCommits = new HashMap<>();
+            HistoryHorizon horizon = HistoryHorizon.unbounded();
+            try (RevWalk revWalk = new RevWalk(gitService.repository)) {
+                for (String id : splitIds(job.getProperty("bugCommits"))) {
+                    bugCommits.put(id, revWalk.parseCommit(ObjectId.fromString(id)));
+                }
+                if (job.containsKey("horizonCommitTime")) {
+                    Set<RevCommit> labelingCommits = new HashSet<>();
+                    for (String id : splitIds(job.getProperty("labelingCommits"))) {
+                        labelingCommits.add(revWalk.parseCommit(ObjectId.fromString(id)));
+                    }
+                    horizon = new HistoryHorizon(Long.parseLong(job.getProperty("horizonCommitTime")), labelingCommits);
+                }
+            }
+
+            analyzer.setProgressMonitor(progress);
+            analyzer.setHistoryStore(historyStore(job.getProperty("historySpillDir"),
+                    Double.parseDouble(job.getProperty("historySpillHeapRatio", "0"))));
+            HistoryAnalyzer.AnalysisResult result = analyzer.analyzeCommitHistory(bugCommits, horizon, shardIndex, shardCount);
+            try {
+                writeShard(result, shardFile(shardDir, shardIndex, shardCount), fingerprint(job));
+            } finally {
+                result.histories.close();
+            }
+            LOGGER.log(Level.INFO, "Partizione {0}/{1} scritta.", new Object[]{shardIndex + 1, shardCount});
+        } finally {
+            gitService.close();
+        }
+    }
+
+    private static List<String> splitIds(String value) {
+        if (value == null || value.isEmpty()) return Collections.emptyList();
+        return Arrays.asList(value.split(","));
+    }
+
+    /**
+     * Permette di scrivere dentro le lambda di {@link IdMap#forEach}, rilanciando poi il primo errore.
+     */
+    private static class IOExceptionHolder {
+        private IOException error;
+
+        interface IOAction {
+            void run() throws IOException;
+        }
+
+        void run(IOAction action) {
+            if (error != null) return;
+            try {
+                action.run();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        void rethrow() throws IOException {
+            if (error != null) throw error;
+        }
+    }
+}
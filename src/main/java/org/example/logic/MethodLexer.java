@@ -0,0 +1,510 @@
+package org.example.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estrattore leggero di metodi basato su un tokenizer, alternativo all'AST completo di JavaParser.
+ * Riconosce stringhe, text block, caratteri e commenti, segue il bilanciamento di parentesi e graffe
+ * e produce, per ogni metodo, la firma nel formato di {@code MethodDeclaration.getSignature().asString()}
+ * e il testo degli statement di primo livello del corpo (token separati da uno spazio, commenti esclusi,
+ * text block senza indentazione accidentale).
+ * <p>
+ * Sui costrutti che non sa trattare con certezza (classi anonime o locali, costanti enum con corpo,
+ * parametri in stile C, generics non rimovibili dalla firma, sorgenti sbilanciati...) rinuncia e
+ * restituisce {@code null}: il chiamante deve allora ricadere su JavaParser.
+ */
+public class MethodLexer {
+
+    private static final Set<String> MODIFIERS = Set.of(
+            "public", "protected", "private", "static", "final", "abstract", "synchronized", "native",
+            "strictfp", "transient", "volatile", "default", "sealed");
+    private static final Set<String> BLOCK_STATEMENT_KEYWORDS = Set.of(
+            "if", "for", "while", "do", "try", "switch", "synchronized");
+    private static final Set<String> CONTROL_KEYWORDS = Set.of(
+            "if", "for", "while", "switch", "synchronized", "catch", "try");
+    private static final Set<String> CONTINUATION_KEYWORDS = Set.of("else", "catch", "finally");
+
+    private enum TypeKind { CLASS, ENUM, ANNOTATION }
+
+    /**
+     * Segnala un costrutto ambiguo per il lexer. Non raccoglie lo stack trace: è un normale
+     * segnale di fallback, non un errore.
+     */
+    private static final class AmbiguousSourceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        AmbiguousSourceException(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    /**
+     * Estrae firma e statement di ogni metodo del sorgente.
+     *
+     * @return mappa firma -> statement, oppure {@code null} se il sorgente richiede il parser completo
+     */
+    public Map<String, List<String>> extractMethodStatements(String fileContent) {
+        if (fileContent == null || fileContent.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return new Scan(fileContent).parseCompilationUnit();
+        } catch (AmbiguousSourceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Riporta un frammento di codice alla forma degli statement estratti: token separati da uno
+     * spazio, commenti esclusi. Serve a confrontare con il lexer il testo stampato da JavaParser,
+     * che conserva i commenti associati e usa una propria formattazione.
+     *
+     * @return il testo normalizzato, oppure {@code null} se il frammento non è tokenizzabile
+     */
+    public String normalizeStatement(String fragment) {
+        try {
+            Scan scan = new Scan(fragment);
+            return (scan.count == 0) ? "" : scan.joinTokens(0, scan.count - 1);
+        } catch (AmbiguousSourceException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stato di una singola scansione: il sorgente e gli intervalli [start, end) dei suoi token.
+     * Un'istanza per file, così l'estrattore resta privo di stato condiviso.
+     */
+    private static final class Scan {
+        private final String src;
+        private int[] starts = new int[256];
+        private int[] ends = new int[256];
+        private int count = 0;
+        private final Map<String, List<String>> methods = new HashMap<>();
+
+        Scan(String src) {
+            this.src = src;
+            tokenize();
+        }
+
+        // --- Tokenizer ---
+
+        private void tokenize() {
+            int n = src.length();
+            int i = 0;
+            while (i < n) {
+                char c = src.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < n && src.charAt(i + 1) == '/') {
+                    while (i < n && src.charAt(i) != '\n' && src.charAt(i) != '\r') i++;
+                    continue;
+                }
+                if (c == '/' && i + 1 < n && src.charAt(i + 1) == '*') {
+                    int close = src.indexOf("*/", i + 2);
+                    if (close < 0) throw new AmbiguousSourceException("commento non terminato");
+                    i = close + 2;
+                    continue;
+                }
+                int start = i;
+                if (c == '"') {
+                    i = src.startsWith("\"\"\"", i) ? skipTextBlock(i) : skipQuoted(i, '"');
+                } else if (c == '\'') {
+                    i = skipQuoted(i, '\'');
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    i++;
+                    while (i < n && Character.isJavaIdentifierPart(src.charAt(i))) i++;
+                } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(src.charAt(i + 1)))) {
+                    i = skipNumber(i);
+                } else if (src.startsWith("...", i)) {
+                    i += 3;
+                } else {
+                    i++;
+                }
+                addToken(start, i);
+            }
+        }
+
+        private int skipQuoted(int from, char quote) {
+            int i = from + 1;
+            while (i < src.length()) {
+                char c = src.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                } else if (c == quote) {
+                    return i + 1;
+                } else if (c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    i++;
+                }
+            }
+            throw new AmbiguousSourceException("letterale non terminato");
+        }
+
+        private int skipTextBlock(int from) {
+            int i = from + 3;
+            while (i < src.length()) {
+                if (src.charAt(i) == '\\') {
+                    i += 2;
+                } else if (src.startsWith("\"\"\"", i)) {
+                    return i + 3;
+                } else {
+                    i++;
+                }
+            }
+            throw new AmbiguousSourceException("text block non terminato");
+        }
+
+        private int skipNumber(int from) {
+            int i = from;
+            while (i < src.length()) {
+                char c = src.charAt(i);
+                if (Character.isLetterOrDigit(c) || c == '_' || (c == '.' && !src.startsWith("..", i))) {
+                    i++;
+                } else if ((c == '+' || c == '-') && i > from && "eEpP".indexOf(src.charAt(i - 1)) >= 0) {
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            return i;
+        }
+
+        private void addToken(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        private boolean is(int k, String text) {
+            return k >= 0 && k < count && ends[k] - starts[k] == text.length()
+                    && src.regionMatches(starts[k], text, 0, text.length());
+        }
+
+        private boolean isPunct(int k, char c) {
+            return k >= 0 && k < count && ends[k] - starts[k] == 1 && src.charAt(starts[k]) == c;
+        }
+
+        private boolean isIdentifier(int k) {
+            return k >= 0 && k < count && Character.isJavaIdentifierStart(src.charAt(starts[k]));
+        }
+
+        private String text(int k) {
+            return src.substring(starts[k], ends[k]);
+        }
+
+        private void require(int k) {
+            if (k >= count) throw new AmbiguousSourceException("fine file inattesa");
+        }
+
+        // --- Struttura dei tipi ---
+
+        Map<String, List<String>> parseCompilationUnit() {
+            int i = 0;
+            while (i < count) {
+                if (isPunct(i, ';')) {
+                    i++;
+                    continue;
+                }
+                int stop = findHeaderEnd(i, false);
+                require(stop);
+                if (isPunct(stop, ';')) {
+                    i = stop + 1;
+                    continue;
+                }
+                TypeKind kind = isPunct(stop, '{') ? typeKindOf(i, stop) : null;
+                if (kind == null) throw new AmbiguousSourceException("dichiarazione di primo livello non riconosciuta");
+                i = parseTypeBody(stop, kind);
+            }
+            return methods;
+        }
+
+        /** Primo ';', '{', '}' (o '=' se richiesto) fuori da parentesi tonde e quadre. */
+        private int findHeaderEnd(int from, boolean stopAtAssign) {
+            int depth = 0;
+            for (int k = from; k < count; k++) {
+                if (isPunct(k, '(') || isPunct(k, '[')) {
+                    depth++;
+                } else if (isPunct(k, ')') || isPunct(k, ']')) {
+                    depth--;
+                } else if (depth == 0 && (isPunct(k, ';') || isPunct(k, '{') || isPunct(k, '}')
+                        || (stopAtAssign && isPunct(k, '=')))) {
+                    return k;
+                }
+            }
+            return count;
+        }
+
+        private TypeKind typeKindOf(int from, int to) {
+            int depth = 0;
+            for (int k = from; k < to; k++) {
+                if (isPunct(k, '(')) depth++;
+                else if (isPunct(k, ')')) depth--;
+                else if (depth == 0) {
+                    if (is(k, "class") || (is(k, "record") && isIdentifier(k + 1))) return TypeKind.CLASS;
+                    if (is(k, "enum")) return TypeKind.ENUM;
+                    if (is(k, "interface")) return isPunct(k - 1, '@') ? TypeKind.ANNOTATION : TypeKind.CLASS;
+                }
+            }
+            return null;
+        }
+
+        /** Analizza il corpo di un tipo a partire dalla sua '{' e restituisce l'indice dopo la '}'. */
+        private int parseTypeBody(int open, TypeKind kind) {
+            int i = open + 1;
+            if (kind == TypeKind.ENUM) {
+                i = skipEnumConstants(i);
+            }
+            while (true) {
+                require(i);
+                if (isPunct(i, '}')) return i + 1;
+                if (isPunct(i, ';')) {
+                    i++;
+                    continue;
+                }
+                int stop = findHeaderEnd(i, true);
+                require(stop);
+                if (isPunct(stop, '}')) throw new AmbiguousSourceException("membro non terminato");
+                if (isPunct(stop, '=')) {
+                    i = statementEnd(stop + 1, true) + 1;
+                    continue;
+                }
+                TypeKind nested = isPunct(stop, '{') ? typeKindOf(i, stop) : null;
+                if (nested != null) {
+                    i = parseTypeBody(stop, nested);
+                    continue;
+                }
+                String signature = (kind == TypeKind.ANNOTATION) ? null : methodSignature(i, stop);
+                if (isPunct(stop, ';')) {
+                    if (signature != null) methods.put(signature, Collections.emptyList());
+                    i = stop + 1;
+                } else {
+                    List<String> statements = new ArrayList<>();
+                    i = parseBlock(stop, statements);
+                    if (signature != null) methods.put(signature, statements);
+                }
+            }
+        }
+
+        private int skipEnumConstants(int from) {
+            int depth = 0;
+            for (int k = from; k < count; k++) {
+                if (isPunct(k, '{')) throw new AmbiguousSourceException("costante enum con corpo");
+                if (isPunct(k, '(') || isPunct(k, '[')) depth++;
+                else if (isPunct(k, ')') || isPunct(k, ']')) depth--;
+                else if (depth == 0 && isPunct(k, ';')) return k + 1;
+                else if (depth == 0 && isPunct(k, '}')) return k;
+            }
+            throw new AmbiguousSourceException("enum non terminato");
+        }
+
+        // --- Firme ---
+
+        /** Firma del metodo dichiarato in [from, stop), oppure null per costruttori, campi e inizializzatori. */
+        private String methodSignature(int from, int stop) {
+            int k = skipModifiersAndAnnotations(from, stop);
+            if (isPunct(k, '<')) k = matchAngle(k) + 1;
+            k = skipModifiersAndAnnotations(k, stop);
+
+            int paren = -1;
+            for (int j = k; j < stop; j++) {
+                if (isPunct(j, '(')) {
+                    paren = j;
+                    break;
+                }
+            }
+            // Serve un tipo di ritorno prima del nome: altrimenti è un costruttore.
+            if (paren < 0 || paren - 1 <= k || !isIdentifier(paren - 1)) return null;
+
+            int close = matchClosing(paren, '(', ')');
+            List<String> parameterTypes = new ArrayList<>();
+            int partStart = paren + 1;
+            int depth = 0;
+            for (int j = paren + 1; j < close; j++) {
+                if (isPunct(j, '(') || isPunct(j, '<') || isPunct(j, '{') || isPunct(j, '[')) {
+                    depth++;
+                } else if (isPunct(j, ')') || isPunct(j, '>') || isPunct(j, '}') || isPunct(j, ']')) {
+                    depth--;
+                } else if (depth == 0 && isPunct(j, ',')) {
+                    parameterTypes.add(parameterType(partStart, j));
+                    partStart = j + 1;
+                }
+            }
+            if (close > paren + 1) {
+                parameterTypes.add(parameterType(partStart, close));
+            }
+            return text(paren - 1) + "(" + String.join(", ", parameterTypes) + ")";
+        }
+
+        /** Tipo del parametro in [from, to) come lo stampa JavaParser nella firma. */
+        private String parameterType(int from, int to) {
+            int k = skipModifiersAndAnnotations(from, to);
+            int name = to - 1;
+            if (k >= name || !isIdentifier(name) || is(name, "this")) {
+                throw new AmbiguousSourceException("parametro non riconosciuto");
+            }
+            StringBuilder type = new StringBuilder();
+            for (int j = k; j < name; j++) {
+                if (isPunct(j, '@')) throw new AmbiguousSourceException("annotazione di tipo nel parametro");
+                if (isPunct(j, '<')) {
+                    int close = matchAngle(j);
+                    // JavaParser toglie i generics solo dal tipo di classe più esterno.
+                    if (close != name - 1) throw new AmbiguousSourceException("generics non rimovibili dalla firma");
+                    j = close;
+                } else if (is(j, "...")) {
+                    type.append("[]");
+                } else {
+                    type.append(text(j));
+                }
+            }
+            return type.toString();
+        }
+
+        private int skipModifiersAndAnnotations(int from, int stop) {
+            int k = from;
+            while (k < stop) {
+                if (isPunct(k, '@') && !is(k + 1, "interface")) {
+                    k += 2;
+                    while (isPunct(k, '.') && isIdentifier(k + 1)) k += 2;
+                    if (isPunct(k, '(')) k = matchClosing(k, '(', ')') + 1;
+                } else if (isIdentifier(k) && MODIFIERS.contains(text(k))) {
+                    k++;
+                } else if (is(k, "non") && isPunct(k + 1, '-') && is(k + 2, "sealed")) {
+                    k += 3;
+                } else {
+                    break;
+                }
+            }
+            return k;
+        }
+
+        private int matchAngle(int open) {
+            return matchClosing(open, '<', '>');
+        }
+
+        private int matchClosing(int open, char openChar, char closeChar) {
+            int depth = 0;
+            for (int k = open; k < count; k++) {
+                if (isPunct(k, openChar)) depth++;
+                else if (isPunct(k, closeChar) && --depth == 0) return k;
+            }
+            throw new AmbiguousSourceException("parentesi non bilanciate");
+        }
+
+        // --- Statement ---
+
+        /** Raccoglie gli statement di primo livello del blocco che si apre in 'open'. */
+        private int parseBlock(int open, List<String> statements) {
+            int k = open + 1;
+            while (true) {
+                require(k);
+                if (isPunct(k, '}')) return k + 1;
+                int end = statementEnd(k, false);
+                statements.add(joinTokens(k, end));
+                k = end + 1;
+            }
+        }
+
+        /** Indice dell'ultimo token dello statement che inizia in 'from'. */
+        private int statementEnd(int from, boolean expressionOnly) {
+            int kw = from;
+            while (isIdentifier(kw) && isPunct(kw + 1, ':') && !isPunct(kw + 2, ':')) kw += 2;
+            boolean blockKind = !expressionOnly
+                    && (isPunct(kw, '{') || (isIdentifier(kw) && BLOCK_STATEMENT_KEYWORDS.contains(text(kw))));
+            boolean isDo = blockKind && is(kw, "do");
+            boolean sawWhile = false;
+
+            int depth = 0;
+            int[] parenStack = new int[16];
+            int parenTop = 0;
+            int lastParenOpen = -1;
+            boolean topBlockIsStatement = false;
+            for (int j = from; j < count; j++) {
+                if (isPunct(j, '(')) {
+                    if (parenTop == parenStack.length) parenStack = Arrays.copyOf(parenStack, parenTop * 2);
+                    parenStack[parenTop++] = j;
+                    depth++;
+                    continue;
+                }
+                if (isPunct(j, ')')) {
+                    if (parenTop == 0) throw new AmbiguousSourceException("parentesi non bilanciate");
+                    lastParenOpen = parenStack[--parenTop];
+                    depth--;
+                    continue;
+                }
+                if (isPunct(j, '[')) {
+                    depth++;
+                    continue;
+                }
+                if (isPunct(j, ']')) {
+                    depth--;
+                    continue;
+                }
+                if (isPunct(j, '{')) {
+                    if (isPunct(j - 1, ')') && !isControlKeyword(lastParenOpen - 1)) {
+                        throw new AmbiguousSourceException("classe anonima");
+                    }
+                    if (depth == 0) {
+                        // Solo i blocchi di statement chiudono lo statement, non le lambda o gli array.
+                        topBlockIsStatement = j == kw || isPunct(j - 1, ')') || is(j - 1, "else")
+                                || is(j - 1, "try") || is(j - 1, "finally") || is(j - 1, "do");
+                    }
+                    depth++;
+                    continue;
+                }
+                if (isLocalTypeDeclaration(j)) throw new AmbiguousSourceException("tipo locale");
+                if (depth == 0 && isDo && is(j, "while")) sawWhile = true;
+
+                boolean closesBlock = isPunct(j, '}');
+                if (closesBlock && --depth < 0) throw new AmbiguousSourceException("statement non terminato");
+                if (depth != 0 || !((closesBlock && topBlockIsStatement) || isPunct(j, ';'))) continue;
+
+                if (!blockKind) {
+                    if (!closesBlock) return j;
+                } else if (isDo) {
+                    if (sawWhile && !closesBlock) return j;
+                } else if (!(isIdentifier(j + 1) && CONTINUATION_KEYWORDS.contains(text(j + 1)))) {
+                    return j;
+                }
+            }
+            throw new AmbiguousSourceException("statement non terminato");
+        }
+
+        private boolean isControlKeyword(int k) {
+            return isIdentifier(k) && CONTROL_KEYWORDS.contains(text(k));
+        }
+
+        private boolean isLocalTypeDeclaration(int k) {
+            if (is(k, "class") || is(k, "interface") || is(k, "enum")) {
+                return !isPunct(k - 1, '.');
+            }
+            return is(k, "record") && isIdentifier(k + 1) && (isPunct(k + 2, '(') || isPunct(k + 2, '<'));
+        }
+
+        private String joinTokens(int from, int to) {
+            StringBuilder sb = new StringBuilder(ends[to] - starts[from]);
+            for (int k = from; k <= to; k++) {
+                if (k > from) sb.append(' ');
+                if (src.startsWith("\"\"\"", starts[k])) {
+                    // JavaParser ristampa i text block senza l'indentazione accidentale.
+                    sb.append("\"\"\"").append(src.substring(starts[k] + 3, ends[k] - 3).stripIndent()).append("\"\"\"");
+                } else {
+                    sb.append(src, starts[k], ends[k]);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
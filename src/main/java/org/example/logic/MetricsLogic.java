@@ -17,6 +17,12 @@ import java.util.Optional; // Aggiungi questo import
 
 public class MetricsLogic {
 
+    /**
+     * Versione del calcolo delle metriche di complessità: va incrementata a ogni modifica di
+     * {@link #computeComplexity}, così le voci della cache calcolate in precedenza vengono scartate.
+     */
+    public static final int COMPLEXITY_METRICS_VERSION = 1;
+
     /**
      * Classe contenitore interna per aggregare i risultati durante il calcolo
      * delle metriche di change, riducendo la complessità dei metodi.
@@ -33,13 +39,9 @@ public class MetricsLogic {
                                                     Release currentRelease, int nSmells, List<Release> allReleases,
                                                     int totalReleasesCount) {
         MethodMetrics metrics = new MethodMetrics();
-        MethodDeclaration mdNode = methodData.getDeclaration();
-
-        int loc = mdNode.getEnd().map(p -> p.line).orElse(0) - mdNode.getBegin().map(p -> p.line).orElse(0) + 1;
-        int cc = calculateCyclomaticComplexity(mdNode);
-        int paramCount = mdNode.getParameters().size();
-        int nesting = calculateNestingDepth(mdNode);
-        metrics.setComplexityMetrics(loc, cc, paramCount, nesting, nSmells);
+        MethodComplexity complexity = methodData.getComplexity();
+        metrics.setComplexityMetrics(complexity.getLoc(), complexity.getCyclomaticComplexity(),
+                complexity.getParameterCount(), complexity.getNestingDepth(), nSmells);
 
         calculateMethodChangeMetrics(metrics, methodHistory, currentRelease, allReleases, totalReleasesCount);
         calculateClassChangeMetrics(metrics, fileHistory, currentRelease, allReleases, totalReleasesCount);
@@ -47,6 +49,17 @@ public class MetricsLogic {
         return metrics;
     }
 
+    /**
+     * Metriche di complessità di una dichiarazione (LOC, CC, numero di parametri, annidamento).
+     */
+    public MethodComplexity computeComplexity(MethodDeclaration mdNode) {
+        int loc = mdNode.getEnd().map(p -> p.line).orElse(0) - mdNode.getBegin().map(p -> p.line).orElse(0) + 1;
+        int cc = calculateCyclomaticComplexity(mdNode);
+        int paramCount = mdNode.getParameters().size();
+        int nesting = calculateNestingDepth(mdNode);
+        return new MethodComplexity(mdNode.getSignature().asString(), loc, cc, paramCount, nesting);
+    }
+
     private void calculateMethodChangeMetrics(MethodMetrics metrics, MethodHistory methodHistory, Release currentRelease,
                                               List<Release> allReleases, int totalReleasesCount) {
         if (methodHistory == null) {
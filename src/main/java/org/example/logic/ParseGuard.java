@@ -0,0 +1,249 @@
+package org.example.logic;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Esecuzione protetta del parsing: i blob oltre la dimensione massima non vengono analizzati e
+ * ogni file può avere un tempo massimo, oltre il quale viene saltato. Così un singolo file enorme o
+ * patologicamente annidato non può bloccare l'intera esecuzione.
+ * <p>
+ * Entrambi i limiti sono disattivati per default, perché cambiano il dataset prodotto: un file
+ * saltato perde le sue righe. Il limite di dimensione è almeno deterministico; il tempo massimo
+ * dipende invece dal carico della macchina e dal numero di thread, quindi con il tempo attivo lo
+ * stesso intervallo di commit può produrre righe diverse.
+ * <p>
+ * Il parsing gira su thread dedicati e il chiamante attende al massimo il tempo concesso. Allo
+ * scadere il task viene interrotto e abbandonato, ma il tempo massimo non ferma davvero il lavoro:
+ * il testo letto tramite {@link #interruptible(String)} controlla l'interruzione solo fra un blocco
+ * e l'altro, quindi un file piccolo ma molto annidato, già letto per intero, resta in analisi fino
+ * alla fine, come ogni fase successiva al parsing. Il risultato viene poi scartato. I task abbandonati
+ * ancora in corso sono al massimo {@link #MAX_ABANDONED_TASKS}: raggiunto il limite, i file successivi
+ * vengono saltati per tempo scaduto senza avviare altri thread, così il pool non cresce senza limite.
+ * <p>
+ * I file saltati vengono registrati nel log con il motivo e contati; {@link #logReport()} riporta
+ * i totali, come avviso se qualche file è stato saltato. Con dimensione e tempo a 0 la protezione
+ * è disattivata; senza tempo massimo il task gira sul chiamante.
+ */
+public class ParseGuard implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ParseGuard.class.getName());
+
+    public static final long DEFAULT_MAX_BLOB_BYTES = 0; // dimensione massima solo su richiesta
+    public static final long DEFAULT_TIME_BUDGET_MS = 0; // tempo massimo solo su richiesta
+    public static final int MAX_ABANDONED_TASKS = 4;
+
+    /** Motivo per cui un file non è stato analizzato. */
+    public enum SkipReason { TOO_LARGE, TIMEOUT, PARSE_ERROR }
+
+    private final String phase;
+    private final long maxBlobBytes;   // 0 = nessun limite
+    private final long timeBudgetMs;   // 0 = nessun limite
+    private final ExecutorService workers;
+    private final Map<SkipReason, AtomicInteger> skipCounts = new EnumMap<>(SkipReason.class);
+    private final AtomicInteger abandonedRunning = new AtomicInteger();
+
+    /**
+     * @param phase nome della fase, usato nei log
+     */
+    public ParseGuard(String phase, long maxBlobBytes, long timeBudgetMs) {
+        this.phase = phase;
+        this.maxBlobBytes = Math.max(0, maxBlobBytes);
+        this.timeBudgetMs = Math.max(0, timeBudgetMs);
+        for (SkipReason reason : SkipReason.values()) {
+            skipCounts.put(reason, new AtomicInteger());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = (this.timeBudgetMs == 0) ? null : Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "parse-guard-" + phase + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Protezione disattivata: nessun limite, task eseguiti sul chiamante.
+     */
+    public static ParseGuard unbounded(String phase) {
+        return new ParseGuard(phase, 0, 0);
+    }
+
+    /**
+     * Verifica la dimensione del blob prima di leggerlo o analizzarlo.
+     *
+     * @return false (e il file viene contato come saltato) se supera la dimensione massima
+     */
+    public boolean admitSize(String filePath, long sizeBytes) {
+        if (maxBlobBytes == 0 || sizeBytes <= maxBlobBytes) return true;
+        skip(filePath, SkipReason.TOO_LARGE, sizeBytes + " byte, massimo " + maxBlobBytes);
+        return false;
+    }
+
+    /**
+     * Esegue il task entro il tempo concesso.
+     *
+     * @return il risultato del task, o null se il tempo è scaduto
+     */
+    public <T> T run(String filePath, Callable<T> task) {
+        if (workers == null) {
+            return call(task);
+        }
+        int running = abandonedRunning.get();
+        if (running >= MAX_ABANDONED_TASKS) {
+            skip(filePath, SkipReason.TIMEOUT, running + " task scaduti ancora in corso");
+            return null;
+        }
+        Attempt<T> attempt = new Attempt<>(task);
+        Future<T> future = workers.submit(attempt);
+        try {
+            return future.get(timeBudgetMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            attempt.abandon();
+            skip(filePath, SkipReason.TIMEOUT, "oltre " + timeBudgetMs + " ms");
+            return null;
+        } catch (InterruptedException e) {
+            attempt.abandon();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Task abbandonati dopo il tempo massimo e non ancora terminati sui thread del guard.
+     */
+    public int getAbandonedRunning() {
+        return abandonedRunning.get();
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Conta un file che il parser non è riuscito ad analizzare (il log resta a carico del chiamante).
+     */
+    public void recordParseError() {
+        skipCounts.get(SkipReason.PARSE_ERROR).incrementAndGet();
+    }
+
+    public int getSkipCount(SkipReason reason) {
+        return skipCounts.get(reason).get();
+    }
+
+    private void skip(String filePath, SkipReason reason, String detail) {
+        skipCounts.get(reason).incrementAndGet();
+        LOGGER.log(Level.WARNING, "File saltato ({0}, {1}): {2} [{3}]", new Object[]{phase, reason, filePath, detail});
+    }
+
+    public void logReport() {
+        boolean skipped = skipCounts.values().stream().anyMatch(count -> count.get() > 0);
+        LOGGER.log(skipped ? Level.WARNING : Level.INFO, "File saltati ({0}): {1} troppo grandi, {2} oltre il tempo massimo, {3} con errori di parsing.",
+                new Object[]{phase, getSkipCount(SkipReason.TOO_LARGE), getSkipCount(SkipReason.TIMEOUT),
+                        getSkipCount(SkipReason.PARSE_ERROR)});
+        if (getAbandonedRunning() > 0) {
+            LOGGER.log(Level.WARNING, "Task di parsing scaduti ancora in esecuzione ({0}): {1}",
+                    new Object[]{phase, getAbandonedRunning()});
+        }
+    }
+
+    /**
+     * Sorgente per il parser che si ferma quando il thread viene interrotto allo scadere del tempo.
+     */
+    public static Reader interruptible(String content) {
+        return new InterruptibleReader(new StringReader(content));
+    }
+
+    @Override
+    public void close() {
+        if (workers != null) workers.shutdownNow();
+    }
+
+    /**
+     * Task eseguito su un thread del guard. Se viene abbandonato resta contato fra quelli in corso
+     * finché non termina; se non era ancora partito non parte più. Alla fine il flag di interruzione
+     * viene azzerato, così il thread torna al pool pulito.
+     */
+    private final class Attempt<T> implements Callable<T> {
+        private final Callable<T> task;
+        private Thread runner;
+        private boolean abandoned;
+        private boolean finished;
+
+        Attempt(Callable<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            synchronized (this) {
+                if (abandoned) {
+                    abandonedRunning.decrementAndGet();
+                    return null;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                return task.call();
+            } finally {
+                synchronized (this) {
+                    finished = true;
+                    runner = null;
+                    if (abandoned) abandonedRunning.decrementAndGet();
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        synchronized void abandon() {
+            if (finished || abandoned) return;
+            abandoned = true;
+            abandonedRunning.incrementAndGet();
+            if (runner != null) runner.interrupt();
+        }
+    }
+
+    private static class InterruptibleReader extends Reader {
+        private final Reader in;
+
+        InterruptibleReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Tempo di parsing esaurito");
+            }
+            return in.read(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.logic;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.example.model.Release;
+import org.example.services.GitService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Campione deterministico per l'anteprima del dataset: una parte dei file e delle release, per
+ * vedere in pochi minuti l'effetto di una modifica a regole di esclusione o metriche.
+ * <p>
+ * I file sono stratificati per package (directory): fra i file Java non esclusi della release di
+ * riferimento (l'ultima considerata) ogni package contribuisce con la quota indicata, almeno un
+ * file, scelti in base a un hash del percorso e del seme. I percorsi che nella release di
+ * riferimento non esistono più vengono ammessi con la stessa probabilità, sempre tramite l'hash.
+ * Le release sono scelte a intervalli regolari fra quelle considerate, sempre con la prima e
+ * l'ultima, così l'orizzonte storico resta quello dell'esecuzione completa.
+ * <p>
+ * Durante l'esecuzione il campione raccoglie i tempi delle fasi e a fine dataset stima quelli
+ * dell'esecuzione completa: nella storia il lavoro sui file scala con l'inverso della quota di
+ * file, il resto (walk e diff degli alberi) resta invariato; ogni release scala con la quota di
+ * file, e il tempo medio per release si moltiplica per le release considerate.
+ */
+public class PreviewSample {
+    private static final Logger LOGGER = Logger.getLogger(PreviewSample.class.getName());
+
+    private final RevCommit referenceCommit;
+    private final double fileRate;
+    private final long seed;
+    private final Set<String> sampledFiles;
+    private final Set<String> universe;
+    private int fullReleaseCount = -1;
+
+    private long historyNanos = -1;
+    private long historyFileWorkNanos = -1; // -1 = non misurato (analisi in partizioni)
+    private final List<Long> releaseNanos = new ArrayList<>();
+
+    private PreviewSample(RevCommit referenceCommit, double fileRate, long seed, Set<String> sampledFiles,
+                          Set<String> universe) {
+        this.referenceCommit = referenceCommit;
+        this.fileRate = fileRate;
+        this.seed = seed;
+        this.sampledFiles = sampledFiles;
+        this.universe = universe;
+    }
+
+    /**
+     * Costruisce il campione di file sulla release di riferimento.
+     *
+     * @param fileRate quota di file per package, in (0, 1]
+     */
+    public static PreviewSample build(GitService gitService, RevCommit referenceCommit, ExclusionMatcher exclusions,
+                                      double fileRate, long seed) throws IOException {
+        Map<String, List<String>> packages = new TreeMap<>();
+        Set<String> universe = new HashSet<>();
+        try (TreeWalk treeWalk = new TreeWalk(gitService.repository)) {
+            treeWalk.addTree(referenceCommit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                String path = treeWalk.getPathString();
+                if (!path.endsWith(".java") || exclusions.matchesPathRule(path)) continue;
+                int slash = path.lastIndexOf('/');
+                packages.computeIfAbsent((slash < 0) ? "" : path.substring(0, slash), p -> new ArrayList<>()).add(path);
+                universe.add(path);
+            }
+        }
+        Set<String> sampled = new HashSet<>();
+        for (List<String> files : packages.values()) {
+            int quota = (int) Math.max(1, Math.round(files.size() * fileRate));
+            files.stream()
+                    .sorted(Comparator.comparingLong((String path) -> hash(path, seed)).thenComparing(path -> path))
+                    .limit(quota)
+                    .forEach(sampled::add);
+        }
+        PreviewSample sample = new PreviewSample(referenceCommit, fileRate, seed, sampled, universe);
+        LOGGER.log(Level.INFO, "Anteprima: {0} file su {1} in {2} package (quota {3}, seme {4}).",
+                new Object[]{sampled.size(), universe.size(), packages.size(), fileRate, seed});
+        return sample;
+    }
+
+    /**
+     * Ammette i file del campione e, fra quelli assenti dalla release di riferimento, una quota
+     * casuale ma ripetibile.
+     */
+    public boolean includesPath(String path) {
+        if (universe.contains(path)) return sampledFiles.contains(path);
+        return Long.compareUnsigned(hash(path, seed), (long) (fileRate * 0x1p63) << 1) < 0;
+    }
+
+    /**
+     * Quota effettiva dei file campionati sulla release di riferimento.
+     */
+    public double getFileFraction() {
+        return universe.isEmpty() ? 1 : (double) sampledFiles.size() / universe.size();
+    }
+
+    public RevCommit getReferenceCommit() {
+        return referenceCommit;
+    }
+
+    public double getFileRate() {
+        return fileRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Release a intervalli regolari fra quelle considerate, prima e ultima comprese.
+     *
+     * @param count numero di release da tenere (0 = tutte)
+     */
+    public List<Release> sampleReleases(List<Release> considered, int count) {
+        fullReleaseCount = considered.size();
+        if (count <= 0 || count >= considered.size()) return considered;
+        if (count == 1) return List.of(considered.get(considered.size() - 1));
+        Set<Release> sampled = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            sampled.add(considered.get((int) Math.round((double) i * (considered.size() - 1) / (count - 1))));
+        }
+        return new ArrayList<>(sampled);
+    }
+
+    private static long hash(String path, long seed) {
+        long h = seed ^ 0x9E3779B97F4A7C15L;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @param fileWorkNanos parte del tempo spesa sui singoli file, o -1 se non misurata
+     */
+    public void recordHistory(long totalNanos, long fileWorkNanos) {
+        this.historyNanos = totalNanos;
+        this.historyFileWorkNanos = fileWorkNanos;
+    }
+
+    public void recordRelease(long nanos) {
+        releaseNanos.add(nanos);
+    }
+
+    /**
+     * Riporta il dataset campionato e la stima dei tempi dell'esecuzione completa.
+     */
+    public void logReport(long rows) {
+        double fraction = getFileFraction();
+        int releases = releaseNanos.size();
+        long sampledReleaseNanos = releaseNanos.stream().mapToLong(Long::longValue).sum();
+
+        long fileWork = (historyFileWorkNanos < 0) ? historyNanos : historyFileWorkNanos;
+        long estimatedHistory = (historyNanos < 0) ? 0 : Math.round(historyNanos - fileWork + fileWork / fraction);
+        long estimatedReleases = (releases == 0) ? 0
+                : Math.round(sampledReleaseNanos / fraction / releases * fullReleaseCount);
+        long estimatedRows = (releases == 0) ? 0 : Math.round(rows / fraction / releases * fullReleaseCount);
+
+        LOGGER.log(Level.INFO, "Anteprima completata: {0} righe da {1} release su {2} e {3} dei file.",
+                new Object[]{rows, releases, fullReleaseCount, String.format("%.1f%%", fraction * 100)});
+        LOGGER.log(Level.INFO, "Storia: {0} s nel campione, stima completa {1} s.",
+                new Object[]{seconds(historyNanos), seconds(estimatedHistory)});
+        LOGGER.log(Level.INFO, "Release: {0} s nel campione, stima completa {1} s.",
+                new Object[]{seconds(sampledReleaseNanos), seconds(estimatedReleases)});
+        LOGGER.log(Level.INFO, "Stima dell''esecuzione completa: circa {0} righe in {1} s.",
+                new Object[]{estimatedRows, seconds(estimatedHistory + estimatedReleases)});
+    }
+
+    private static String seconds(long nanos) {
+        return String.format("%.1f", Math.max(0, nanos) / 1e9);
+    }
+}
@@ -0,0 +1,368 @@
+package org.example.logic;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.example.model.MethodComplexity;
+import org.example.model.MethodData;
+import org.example.model.MethodIdTable;
+import org.example.services.ComplexityCache;
+import org.example.services.GitService;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.javaparser.Providers.provider;
+
+/**
+ * Estrae i metodi di tutti i file Java di una release, parallelizzando il lavoro per file.
+ * <p>
+ * Ogni file è un task indipendente in due fasi: la lettura del blob (I/O) gira su un pool
+ * dedicato più ampio, il parsing (CPU) su un pool limitato ai thread assegnati al progetto.
+ * Ogni thread di parsing usa la propria istanza di JavaParser, che non è thread-safe.
+ * I risultati vengono poi riuniti nella mappa della release. Con un solo thread il lavoro
+ * resta sequenziale sul thread chiamante, come in origine.
+ * <p>
+ * I blob letti e non ancora analizzati occupano al più {@value #MAX_PENDING_BLOB_BYTES} byte:
+ * oltre questo limite i thread di I/O aspettano che il parsing liberi spazio, così una release
+ * grande con il parsing più lento della lettura non accumula tutti i sorgenti in memoria.
+ * <p>
+ * Ogni metodo viene registrato nella tabella dei simboli del progetto, così le fasi successive
+ * lo ritrovano per id.
+ * <p>
+ * Con una {@link ComplexityCache} le metriche di complessità dei blob già visti (in una release
+ * precedente o in un'esecuzione passata) vengono lette dalla cache e il file non viene analizzato.
+ * Il blob si legge comunque, perché il filtro di esclusione guarda anche il contenuto; i file
+ * esclusi per percorso invece vengono scartati prima di qualunque lettura.
+ * <p>
+ * Il parsing passa da un {@link ParseGuard}: i blob troppo grandi non vengono letti e i file che
+ * superano il tempo massimo vengono saltati. Questi esiti non finiscono nella cache, perché
+ * dipendono dai limiti configurati e dal carico della macchina.
+ * <p>
+ * L'estrattore mantiene l'istantanea dell'ultima release estratta (per percorso: blob ed esito).
+ * Dalla seconda release in poi si confrontano i due alberi e si rianalizzano solo i file aggiunti
+ * o modificati; quelli rimossi escono dall'istantanea, gli altri vengono riusati senza leggere il
+ * blob. I file saltati per tempo esaurito vengono ritentati alla release successiva anche se non
+ * cambiano, come accadeva rianalizzando tutta la release.
+ */
+public class ReleaseMethodExtractor implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ReleaseMethodExtractor.class.getName());
+    private static final int IO_THREADS_PER_CPU_THREAD = 2;
+    private static final int MAX_PENDING_BLOB_BYTES = 64 * 1024 * 1024;
+    public static final ParserConfiguration.LanguageLevel LANGUAGE_LEVEL = ParserConfiguration.LanguageLevel.JAVA_17_PREVIEW;
+
+    private final int parseThreads;
+    private final MethodIdTable idTable;
+    private final ComplexityCache complexityCache; // null = nessuna cache
+    private final ParseGuard parseGuard;
+    private final ExclusionMatcher exclusions;
+    private final MetricsLogic metricsLogic = new MetricsLogic();
+    private final ExecutorService ioPool;
+    private final ExecutorService cpuPool;
+    private final Semaphore pendingBlobBytes = new Semaphore(MAX_PENDING_BLOB_BYTES);
+    private final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(
+            new ParserConfiguration().setLanguageLevel(LANGUAGE_LEVEL)));
+
+    // Istantanea dell'ultima release, per percorso nell'albero (ordinata come la TreeWalk).
+    private final Map<String, FileResult> snapshot = new TreeMap<>();
+    private RevCommit snapshotCommit;
+
+    /**
+     * Contenuto di un blob letto dal pool di I/O, con i byte di budget che occupa fino al parsing.
+     */
+    private static class LoadedBlob {
+        final String content;
+        final int reservedBytes;
+
+        LoadedBlob(String content, int reservedBytes) {
+            this.content = content;
+            this.reservedBytes = reservedBytes;
+        }
+    }
+
+    /**
+     * Esito dell'analisi di un singolo file; complexities è null se il file va saltato, e in quel
+     * caso retry indica un esito non deterministico (tempo esaurito) da ritentare. I metodi, con i
+     * loro id, vengono creati da {@link #withMethodIds} al momento di riunire i risultati.
+     */
+    private static class FileResult {
+        final String path;
+        final ObjectId blobId;
+        final List<MethodComplexity> complexities;
+        final List<MethodData> methods;
+        final boolean retry;
+
+        FileResult(String path, ObjectId blobId, List<MethodComplexity> complexities, boolean retry) {
+            this(path, blobId, complexities, null, retry);
+        }
+
+        private FileResult(String path, ObjectId blobId, List<MethodComplexity> complexities,
+                           List<MethodData> methods, boolean retry) {
+            this.path = path;
+            this.blobId = blobId;
+            this.complexities = complexities;
+            this.methods = methods;
+            this.retry = retry;
+        }
+
+        /**
+         * Registra i metodi del file nella tabella dei simboli e li riferisce alla release.
+         */
+        FileResult withMethodIds(MethodIdTable idTable, RevCommit releaseCommit) {
+            if (complexities == null) return this;
+            List<MethodData> methodsInFile = new ArrayList<>(complexities.size());
+            int pathId = idTable.internPath(path);
+            for (MethodComplexity complexity : complexities) {
+                methodsInFile.add(new MethodData(idTable.internMethod(pathId, complexity.getSignature()), releaseCommit, complexity));
+            }
+            return new FileResult(path, blobId, complexities, methodsInFile, retry);
+        }
+
+        /**
+         * Metodi del file riferiti alla release indicata: quelli di un file riusato da una release
+         * precedente vengono ricreati con il commit della nuova.
+         */
+        List<MethodData> methodsAt(RevCommit releaseCommit) {
+            if (methods.isEmpty() || methods.get(0).getCommit() == releaseCommit) return methods;
+            List<MethodData> rebased = new ArrayList<>(methods.size());
+            for (MethodData method : methods) {
+                rebased.add(new MethodData(method.getMethodId(), releaseCommit, method.getComplexity()));
+            }
+            return rebased;
+        }
+    }
+
+    public ReleaseMethodExtractor(int parseThreads, MethodIdTable idTable) {
+        this(parseThreads, idTable, null);
+    }
+
+    public ReleaseMethodExtractor(int parseThreads, MethodIdTable idTable, ComplexityCache complexityCache) {
+        this(parseThreads, idTable, complexityCache, ParseGuard.unbounded("release"), ExclusionMatcher.defaults());
+    }
+
+    /**
+     * @param parseGuard limiti di dimensione e tempo del parsing; viene chiuso insieme all'estrattore
+     * @param exclusions filtro dei file: i percorsi esclusi non vengono nemmeno letti
+     */
+    public ReleaseMethodExtractor(int parseThreads, MethodIdTable idTable, ComplexityCache complexityCache,
+                                  ParseGuard parseGuard, ExclusionMatcher exclusions) {
+        this.parseThreads = Math.max(1, parseThreads);
+        this.idTable = idTable;
+        this.complexityCache = complexityCache;
+        this.parseGuard = parseGuard;
+        this.exclusions = exclusions;
+        if (this.parseThreads > 1) {
+            this.ioPool = Executors.newFixedThreadPool(this.parseThreads * IO_THREADS_PER_CPU_THREAD, namedDaemonThreads("blob-io"));
+            this.cpuPool = Executors.newFixedThreadPool(this.parseThreads, namedDaemonThreads("java-parse"));
+        } else {
+            this.ioPool = null;
+            this.cpuPool = null;
+        }
+    }
+
+    /**
+     * Metodi della release per file, nell'ordine dell'albero. Rispetto alla release estratta in
+     * precedenza vengono letti e analizzati solo i file cambiati (più quelli da ritentare).
+     */
+    public Map<String, List<MethodData>> getMethodsInRelease(GitService gitService, RevCommit releaseCommit) throws IOException {
+        Map<String, FileResult> results = new TreeMap<>();
+        Map<String, CompletableFuture<FileResult>> pending = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        int removed = 0;
+
+        try (TreeWalk treeWalk = new TreeWalk(gitService.repository)) {
+            boolean incremental = snapshotCommit != null;
+            if (incremental) {
+                treeWalk.addTree(snapshotCommit.getTree());
+                treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            }
+            int current = treeWalk.addTree(releaseCommit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                String pathString = treeWalk.getPathString();
+                if (!pathString.endsWith(".java") || exclusions.isPathExcluded(pathString)) continue;
+                visited.add(pathString);
+                if (treeWalk.getFileMode(current) == FileMode.MISSING) {
+                    if (snapshot.remove(pathString) != null) removed++;
+                    continue;
+                }
+                submit(gitService, pathString, treeWalk.getObjectId(current), results, pending);
+            }
+        }
+        for (Map.Entry<String, FileResult> entry : snapshot.entrySet()) {
+            if (entry.getValue().retry && !visited.contains(entry.getKey())) {
+                submit(gitService, entry.getKey(), entry.getValue().blobId, results, pending);
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<FileResult>> entry : pending.entrySet()) {
+            try {
+                results.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+                throw e;
+            }
+        }
+        // Gli id dei nuovi metodi si assegnano qui, in ordine di albero e non di completamento dei
+        // task: così non dipendono dal numero di thread né da quali file vengono riusati.
+        results.replaceAll((path, result) -> result.withMethodIds(idTable, releaseCommit));
+        boolean incremental = snapshotCommit != null;
+        snapshot.putAll(results);
+        snapshotCommit = releaseCommit;
+        if (incremental) {
+            LOGGER.log(Level.INFO, "Release incrementale: {0} file analizzati, {1} rimossi, {2} riusati.",
+                    new Object[]{results.size(), removed, snapshot.size() - results.size()});
+        }
+
+        Map<String, List<MethodData>> methodsInRelease = new LinkedHashMap<>();
+        for (FileResult result : snapshot.values()) {
+            if (result.methods != null) {
+                methodsInRelease.put(result.path, result.methodsAt(releaseCommit));
+            }
+        }
+        return methodsInRelease;
+    }
+
+    private void submit(GitService gitService, String pathString, ObjectId blobId,
+                        Map<String, FileResult> results, Map<String, CompletableFuture<FileResult>> pending) throws IOException {
+        if (ioPool == null) {
+            results.put(pathString, parseFile(pathString, blobId, loadContent(gitService, pathString, blobId)));
+        } else {
+            pending.put(pathString, CompletableFuture
+                    .supplyAsync(() -> loadBlobWithinBudget(gitService, pathString, blobId), ioPool)
+                    .thenApplyAsync(blob -> {
+                        try {
+                            return parseFile(pathString, blobId, blob.content);
+                        } finally {
+                            pendingBlobBytes.release(blob.reservedBytes);
+                        }
+                    }, cpuPool));
+        }
+    }
+
+    /**
+     * Contenuto del blob, o null se supera la dimensione massima (in quel caso non viene letto).
+     */
+    private String loadContent(GitService gitService, String pathString, ObjectId blobId) throws IOException {
+        ObjectLoader loader = gitService.repository.open(blobId);
+        if (!parseGuard.admitSize(pathString, loader.getSize())) return null;
+        return new String(loader.getBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Legge il blob sul pool di I/O dopo averne riservato la dimensione nel budget dei blob in
+     * attesa di parsing; la riserva viene liberata dal task di parsing. Un blob più grande
+     * dell'intero budget lo occupa tutto, e viene letto appena gli altri sono stati analizzati.
+     */
+    private LoadedBlob loadBlobWithinBudget(GitService gitService, String pathString, ObjectId blobId) {
+        int reserved = 0;
+        try {
+            ObjectLoader loader = gitService.repository.open(blobId);
+            if (!parseGuard.admitSize(pathString, loader.getSize())) return new LoadedBlob(null, 0);
+            reserved = (int) Math.min(loader.getSize(), MAX_PENDING_BLOB_BYTES);
+            pendingBlobBytes.acquire(reserved);
+            return new LoadedBlob(new String(loader.getBytes(), StandardCharsets.UTF_8), reserved);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Lettura interrotta: " + pathString));
+        } catch (IOException e) {
+            pendingBlobBytes.release(reserved);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FileResult parseFile(String pathString, ObjectId blobId, String fileContent) {
+        String normalizedPath = pathString.replace("\\", "/");
+        if (fileContent == null || exclusions.isContentExcluded(fileContent)) {
+            return new FileResult(normalizedPath, blobId, null, false);
+        }
+        List<MethodComplexity> complexities = (complexityCache == null) ? null : complexityCache.get(blobId);
+        if (complexities == null) {
+            complexities = parseGuard.run(pathString, () -> computeComplexities(pathString, fileContent));
+            if (complexities == null) {
+                return new FileResult(normalizedPath, blobId, null, true); // tempo esaurito, già registrato dal guard
+            }
+            if (complexityCache != null) complexityCache.put(blobId, complexities);
+        }
+        if (complexities == ComplexityCache.UNPARSEABLE) {
+            return new FileResult(normalizedPath, blobId, null, false);
+        }
+        return new FileResult(normalizedPath, blobId, complexities, false);
+    }
+
+    /**
+     * Analizza il file e calcola le metriche di complessità dei suoi metodi, nell'ordine del sorgente.
+     *
+     * @return le metriche, {@link ComplexityCache#UNPARSEABLE} se il parsing fallisce, o null se interrotto
+     */
+    private List<MethodComplexity> computeComplexities(String pathString, String fileContent) {
+        try {
+            ParseResult<CompilationUnit> result = parsers.get().parse(ParseStart.COMPILATION_UNIT,
+                    provider(ParseGuard.interruptible(fileContent)));
+            if (Thread.currentThread().isInterrupted()) {
+                return null; // tempo esaurito: il risultato viene scartato
+            }
+            if (!result.isSuccessful() || result.getResult().isEmpty()) {
+                parseGuard.recordParseError();
+                LOGGER.log(Level.WARNING, "Errore di parsing, file saltato: {0}", pathString);
+                LOGGER.log(Level.FINE, "Problemi di parsing: {0}", result.getProblems());
+                return ComplexityCache.UNPARSEABLE;
+            }
+            List<MethodComplexity> complexities = new ArrayList<>();
+            for (MethodDeclaration md : result.getResult().get().findAll(MethodDeclaration.class)) {
+                complexities.add(metricsLogic.computeComplexity(md));
+            }
+            return complexities;
+        } catch (Exception | StackOverflowError e) {
+            parseGuard.recordParseError();
+            LOGGER.log(Level.WARNING, "Errore di parsing, file saltato: {0}", pathString);
+            LOGGER.log(Level.FINE, "Dettagli errore di parsing", e);
+            return ComplexityCache.UNPARSEABLE;
+        }
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void close() {
+        if (ioPool != null) ioPool.shutdownNow();
+        if (cpuPool != null) cpuPool.shutdownNow();
+        parseGuard.logReport();
+        parseGuard.close();
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.logic;
+
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+/**
+ * Mediana incrementale a due heap: la metà inferiore dei valori in un max-heap, quella superiore
+ * in un min-heap. L'inserimento costa O(log n) e la mediana si legge in O(1), senza riordinare.
+ */
+public class RunningMedian {
+    private final PriorityQueue<Double> lower = new PriorityQueue<>(Collections.reverseOrder());
+    private final PriorityQueue<Double> upper = new PriorityQueue<>();
+
+    public void add(double value) {
+        if (lower.isEmpty() || value <= lower.peek()) {
+            lower.add(value);
+        } else {
+            upper.add(value);
+        }
+        // Mantiene |lower| == |upper| oppure |lower| == |upper| + 1
+        if (lower.size() > upper.size() + 1) {
+            upper.add(lower.poll());
+        } else if (upper.size() > lower.size()) {
+            lower.add(upper.poll());
+        }
+    }
+
+    public int size() {
+        return lower.size() + upper.size();
+    }
+
+    /**
+     * Mediana dei valori inseriti (media dei due centrali se sono in numero pari).
+     */
+    public double median() {
+        if (lower.isEmpty()) {
+            throw new IllegalStateException("Mediana di un insieme vuoto");
+        }
+        if (lower.size() > upper.size()) {
+            return lower.peek();
+        }
+        return (lower.peek() + upper.peek()) / 2.0;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.model;
+
+import java.util.List;
+
+/**
+ * Riga del dataset: un metodo in una release, con le sue feature numeriche e l'etichetta.
+ * Le feature sono primitive, nell'ordine delle colonne del CSV; la chiave testuale del metodo
+ * viene costruita solo se richiesta.
+ */
+public class DatasetRow {
+    /** Nomi delle feature, nell'ordine di {@link #getFeatures()} e delle colonne del CSV. */
+    public static final List<String> FEATURE_NAMES = List.of(
+            "LOC", "CC", "ParamCount", "NestingDepth", "NSmells",
+            "NR", "NAuth", "Churn", "MaxChurn", "AvgChurn", "NFix",
+            "ClassNR", "ClassNAuth", "ClassChurn", "AvgClassChurn");
+
+    private final String projectName;
+    private final int methodId;
+    private final MethodIdTable idTable;
+    private final Release release;
+    private final long[] features;
+    private final boolean buggy;
+
+    public DatasetRow(String projectName, int methodId, MethodIdTable idTable, Release release,
+                      long[] features, boolean buggy) {
+        this.projectName = projectName;
+        this.methodId = methodId;
+        this.idTable = idTable;
+        this.release = release;
+        this.features = features;
+        this.buggy = buggy;
+    }
+
+    public String getProjectName() { return projectName; }
+    public int getMethodId() { return methodId; }
+    public Release getRelease() { return release; }
+    public boolean isBuggy() { return buggy; }
+
+    /** Chiave "percorso/firma" del metodo, come nella colonna MethodID del CSV. */
+    public String getMethodKey() {
+        return idTable.methodKey(methodId);
+    }
+
+    public long getFeature(int index) {
+        return features[index];
+    }
+
+    public int getFeatureCount() {
+        return features.length;
+    }
+
+    /** Copia delle feature, nell'ordine di {@link #FEATURE_NAMES}. */
+    public long[] getFeatures() {
+        return features.clone();
+    }
+}
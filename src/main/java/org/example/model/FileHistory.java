@@ -21,6 +21,13 @@ public class FileHistory {
         return changes;
     }
 
+    /**
+     * Accoda i cambiamenti dello stesso file osservati su commit successivi nella walk.
+     */
+    public void mergeWith(FileHistory later) {
+        this.changes.addAll(later.changes);
+    }
+
     public void addChange(RevCommit commit, int addedLines, int deletedLines) {
         int currentChurn = addedLines + deletedLines;
         if (currentChurn > 0) {
@@ -0,0 +1,66 @@
+package org.example.model;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Archivio delle storie di metodi e file prodotte dall'analisi storica, indicizzate per methodId
+ * e pathId di {@link MethodIdTable}. L'analisi vi accoda i cambiamenti nell'ordine della walk;
+ * metriche ed etichettatura rileggono le storie dallo stesso archivio.
+ * <p>
+ * Le storie restituite in lettura vanno trattate come di sola lettura: a seconda
+ * dell'implementazione sono gli oggetti interni o copie ricostruite su richiesta.
+ * Le implementazioni non sono thread-safe.
+ */
+public interface HistoryStore extends AutoCloseable {
+
+    void addMethodChange(int methodId, RevCommit commit, int addedStmts, int deletedStmts);
+
+    void addMethodFixCount(int methodId, int count);
+
+    void addMethodFix(int methodId, RevCommit commit);
+
+    void addFileChange(int pathId, String filePath, RevCommit commit, int addedLines, int deletedLines);
+
+    /**
+     * @return la storia del metodo, o null se il metodo non compare nell'archivio
+     */
+    MethodHistory getMethodHistory(int methodId);
+
+    /**
+     * @return la storia del file, o null se il file non compare nell'archivio
+     */
+    FileHistory getFileHistory(int pathId);
+
+    void forEachMethodHistory(IdMap.IdConsumer<MethodHistory> consumer);
+
+    void forEachFileHistory(IdMap.IdConsumer<FileHistory> consumer);
+
+    int methodCount();
+
+    int fileCount();
+
+    /**
+     * Accoda la storia dello stesso metodo osservata su commit successivi nella walk.
+     */
+    default void appendMethodHistory(int methodId, MethodHistory later) {
+        for (MethodHistory.Change change : later.getChanges()) {
+            addMethodChange(methodId, change.commit, change.churn, 0);
+        }
+        for (RevCommit commit : later.getBugFixCommits()) {
+            addMethodFix(methodId, commit);
+        }
+        addMethodFixCount(methodId, later.getNFix());
+    }
+
+    /**
+     * Accoda i cambiamenti dello stesso file osservati su commit successivi nella walk.
+     */
+    default void appendFileHistory(int pathId, FileHistory later) {
+        for (MethodHistory.Change change : later.getChanges()) {
+            addFileChange(pathId, later.getFilePath(), change.commit, change.churn, 0);
+        }
+    }
+
+    @Override
+    void close();
+}
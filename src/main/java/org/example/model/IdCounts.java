@@ -0,0 +1,29 @@
+package org.example.model;
+
+import java.util.Arrays;
+
+/**
+ * Contatori interi indicizzati per id (ad esempio gli smell per metodo di una release).
+ */
+public class IdCounts {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int nonZero = 0;
+
+    public void increment(int id) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, id + 1));
+        }
+        if (counts[id]++ == 0) nonZero++;
+    }
+
+    public int get(int id) {
+        return (id >= 0 && id < counts.length) ? counts[id] : 0;
+    }
+
+    /** Numero di id con conteggio maggiore di zero. */
+    public int nonZeroCount() {
+        return nonZero;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Mappa da id interi densi (quelli di {@link MethodIdTable}) a valori: un array indicizzato
+ * direttamente dall'id, senza hashing né boxing delle chiavi. Gli id assenti valgono null.
+ */
+public class IdMap<V> {
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        return (id >= 0 && id < values.length) ? (V) values[id] : null;
+    }
+
+    public V computeIfAbsent(int id, IntFunction<V> factory) {
+        V value = get(id);
+        if (value == null) {
+            value = factory.apply(id);
+            put(id, value);
+        }
+        return value;
+    }
+
+    public void put(int id, V value) {
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, id + 1));
+        }
+        if (values[id] == null) size++;
+        values[id] = value;
+    }
+
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visita le voci presenti in ordine crescente di id.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(IdConsumer<V> consumer) {
+        for (int id = 0; id < values.length; id++) {
+            if (values[id] != null) consumer.accept(id, (V) values[id]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface IdConsumer<V> {
+        void accept(int id, V value);
+    }
+}
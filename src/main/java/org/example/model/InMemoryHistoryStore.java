@@ -0,0 +1,77 @@
+package org.example.model;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Archivio interamente in heap, su due {@link IdMap}: il comportamento storico dell'analisi.
+ * Le storie restituite sono gli oggetti interni.
+ */
+public class InMemoryHistoryStore implements HistoryStore {
+    private final IdMap<MethodHistory> methodHistories = new IdMap<>();
+    private final IdMap<FileHistory> fileHistories = new IdMap<>();
+
+    @Override
+    public void addMethodChange(int methodId, RevCommit commit, int addedStmts, int deletedStmts) {
+        methodHistories.computeIfAbsent(methodId, MethodHistory::new).addChange(commit, addedStmts, deletedStmts);
+    }
+
+    @Override
+    public void addMethodFixCount(int methodId, int count) {
+        methodHistories.computeIfAbsent(methodId, MethodHistory::new).addFixCount(count);
+    }
+
+    @Override
+    public void addMethodFix(int methodId, RevCommit commit) {
+        methodHistories.computeIfAbsent(methodId, MethodHistory::new).addFix(commit);
+    }
+
+    @Override
+    public void addFileChange(int pathId, String filePath, RevCommit commit, int addedLines, int deletedLines) {
+        fileHistories.computeIfAbsent(pathId, id -> new FileHistory(filePath)).addChange(commit, addedLines, deletedLines);
+    }
+
+    @Override
+    public MethodHistory getMethodHistory(int methodId) {
+        return methodHistories.get(methodId);
+    }
+
+    @Override
+    public FileHistory getFileHistory(int pathId) {
+        return fileHistories.get(pathId);
+    }
+
+    @Override
+    public void forEachMethodHistory(IdMap.IdConsumer<MethodHistory> consumer) {
+        methodHistories.forEach(consumer);
+    }
+
+    @Override
+    public void forEachFileHistory(IdMap.IdConsumer<FileHistory> consumer) {
+        fileHistories.forEach(consumer);
+    }
+
+    @Override
+    public void appendMethodHistory(int methodId, MethodHistory later) {
+        methodHistories.computeIfAbsent(methodId, MethodHistory::new).mergeWith(later);
+    }
+
+    @Override
+    public void appendFileHistory(int pathId, FileHistory later) {
+        fileHistories.computeIfAbsent(pathId, id -> new FileHistory(later.getFilePath())).mergeWith(later);
+    }
+
+    @Override
+    public int methodCount() {
+        return methodHistories.size();
+    }
+
+    @Override
+    public int fileCount() {
+        return fileHistories.size();
+    }
+
+    @Override
+    public void close() {
+        // Niente da rilasciare: le storie vengono raccolte con l'archivio.
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.model;
+
+/**
+ * Metriche di complessità di un metodo, che dipendono solo dal contenuto del file:
+ * a parità di blob restano identiche fra release, esecuzioni e progetti.
+ */
+public class MethodComplexity {
+    private final String signature;
+    private final int loc;
+    private final int cyclomaticComplexity;
+    private final int parameterCount;
+    private final int nestingDepth;
+
+    public MethodComplexity(String signature, int loc, int cyclomaticComplexity, int parameterCount, int nestingDepth) {
+        this.signature = signature;
+        this.loc = loc;
+        this.cyclomaticComplexity = cyclomaticComplexity;
+        this.parameterCount = parameterCount;
+        this.nestingDepth = nestingDepth;
+    }
+
+    public String getSignature() { return signature; }
+    public int getLoc() { return loc; }
+    public int getCyclomaticComplexity() { return cyclomaticComplexity; }
+    public int getParameterCount() { return parameterCount; }
+    public int getNestingDepth() { return nestingDepth; }
+}
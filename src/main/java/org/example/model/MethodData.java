@@ -1,25 +1,25 @@
-// in src/main/java/org/example/model/MethodData.java
 package org.example.model;
 
-import com.github.javaparser.ast.body.MethodDeclaration;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+/**
+ * Metodo presente in una release. Non trattiene l'AST: delle dichiarazioni servono solo le
+ * metriche di complessità, calcolate in fase di estrazione (o lette dalla cache).
+ */
 public class MethodData {
-    private final String uniqueID;
-    private final String signature;
+    private final int methodId;
     private final RevCommit commit;
-    private final MethodDeclaration declaration;
+    private final MethodComplexity complexity;
 
-    public MethodData(String uniqueID, String signature, RevCommit commit, MethodDeclaration declaration) {
-        this.uniqueID = uniqueID;
-        this.signature = signature;
+    public MethodData(int methodId, RevCommit commit, MethodComplexity complexity) {
+        this.methodId = methodId;
         this.commit = commit;
-        this.declaration = declaration;
+        this.complexity = complexity;
     }
 
     // Getters
-    public String getUniqueID() { return uniqueID; }
-    public String getSignature() { return signature; }
+    public int getMethodId() { return methodId; }
+    public String getSignature() { return complexity.getSignature(); }
     public RevCommit getCommit() { return commit; }
-    public MethodDeclaration getDeclaration() { return declaration; }
-}
\ No newline at end of file
+    public MethodComplexity getComplexity() { return complexity; }
+}
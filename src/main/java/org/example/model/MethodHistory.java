@@ -8,7 +8,7 @@ import java.util.List;
 
 
 public class MethodHistory {
-    private final String uniqueID;
+    private final int methodId;
     private final List<Change> changes = new ArrayList<>();
     private final List<RevCommit> bugFixCommits = new ArrayList<>();
 
@@ -25,8 +25,12 @@ public class MethodHistory {
         }
     }
 
-    public MethodHistory(String uniqueID) {
-        this.uniqueID = uniqueID;
+    public MethodHistory(int methodId) {
+        this.methodId = methodId;
+    }
+
+    public int getMethodId() {
+        return methodId;
     }
 
 
@@ -41,6 +45,20 @@ public class MethodHistory {
     public int getNFix() {
         return this.nFix;
     }
+
+    public void addFixCount(int count) {
+        this.nFix += count;
+    }
+
+    /**
+     * Accoda la storia dello stesso metodo osservata su commit successivi nella walk (es. da
+     * un'altra partizione): cambiamenti e fix vengono concatenati, i contatori sommati.
+     */
+    public void mergeWith(MethodHistory later) {
+        this.changes.addAll(later.changes);
+        this.bugFixCommits.addAll(later.bugFixCommits);
+        this.nFix += later.nFix;
+    }
     public void addChange(RevCommit commit, int addedStmts, int deletedStmts) {
         int currentChurn = addedStmts + deletedStmts;
         if (currentChurn > 0) {
@@ -0,0 +1,146 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tabella dei simboli dei metodi: assegna id interi compatti ai percorsi, alle firme e alle
+ * coppie (percorso, firma). Le mappe della pipeline (storie, smell, etichette) usano questi id
+ * come chiave; la stringa "percorso/firma" viene costruita solo quando si scrive il CSV.
+ * <p>
+ * Gli id sono densi e partono da 0, quindi si prestano a strutture indicizzate come {@link IdMap}.
+ * I metodi sono sincronizzati perché l'estrazione dei metodi di una release interna gli id da
+ * più thread di parsing.
+ */
+public class MethodIdTable {
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final Map<String, Integer> pathIds = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, Integer> signatureIds = new HashMap<>();
+    private final List<String> signatures = new ArrayList<>();
+
+    // Indice (pathId, signatureId) -> methodId a indirizzamento aperto, senza boxing delle chiavi.
+    private long[] slotKeys = new long[INITIAL_CAPACITY];
+    private int[] slotValues = newEmptySlots(INITIAL_CAPACITY);
+
+    // Componenti di ogni methodId, per risalire a percorso e firma.
+    private int[] methodPathIds = new int[INITIAL_CAPACITY];
+    private int[] methodSignatureIds = new int[INITIAL_CAPACITY];
+    private int methodCount = 0;
+
+    public synchronized int internPath(String path) {
+        Integer id = pathIds.get(path);
+        if (id != null) return id;
+        int newId = paths.size();
+        paths.add(path);
+        pathIds.put(path, newId);
+        return newId;
+    }
+
+    public synchronized int internMethod(int pathId, String signature) {
+        int signatureId = signatureIds.computeIfAbsent(signature, s -> {
+            signatures.add(s);
+            return signatures.size() - 1;
+        });
+        long key = pack(pathId, signatureId);
+        int slot = findSlot(key);
+        if (slotValues[slot] != NOT_FOUND) return slotValues[slot];
+
+        int methodId = methodCount++;
+        if (methodId == methodPathIds.length) {
+            methodPathIds = Arrays.copyOf(methodPathIds, methodId * 2);
+            methodSignatureIds = Arrays.copyOf(methodSignatureIds, methodId * 2);
+        }
+        methodPathIds[methodId] = pathId;
+        methodSignatureIds[methodId] = signatureId;
+        slotKeys[slot] = key;
+        slotValues[slot] = methodId;
+        if (methodCount * 2 > slotKeys.length) {
+            rehash();
+        }
+        return methodId;
+    }
+
+    public int internMethod(String path, String signature) {
+        return internMethod(internPath(path), signature);
+    }
+
+    /**
+     * Cerca un metodo senza registrarlo.
+     *
+     * @return l'id del metodo, oppure {@link #NOT_FOUND} se percorso o firma non sono mai stati visti
+     */
+    public synchronized int findMethod(String path, String signature) {
+        Integer pathId = pathIds.get(path);
+        Integer signatureId = signatureIds.get(signature);
+        if (pathId == null || signatureId == null) return NOT_FOUND;
+        return slotValues[findSlot(pack(pathId, signatureId))];
+    }
+
+    public synchronized int getPathId(int methodId) {
+        return methodPathIds[methodId];
+    }
+
+    public synchronized String getPath(int pathId) {
+        return paths.get(pathId);
+    }
+
+    public synchronized String getSignature(int methodId) {
+        return signatures.get(methodSignatureIds[methodId]);
+    }
+
+    /**
+     * Chiave testuale del metodo ("percorso/firma"), nel formato della colonna MethodID del CSV.
+     */
+    public synchronized String methodKey(int methodId) {
+        return paths.get(methodPathIds[methodId]) + "/" + signatures.get(methodSignatureIds[methodId]);
+    }
+
+    public synchronized int methodCount() {
+        return methodCount;
+    }
+
+    public synchronized int pathCount() {
+        return paths.size();
+    }
+
+    private static long pack(int pathId, int signatureId) {
+        return ((long) pathId << 32) | (signatureId & 0xFFFFFFFFL);
+    }
+
+    private int findSlot(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = (int) ((key * HASH_MULTIPLIER) >>> 32) & mask;
+        while (slotValues[slot] != NOT_FOUND && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = slotKeys;
+        int[] oldValues = slotValues;
+        slotKeys = new long[oldKeys.length * 2];
+        slotValues = newEmptySlots(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != NOT_FOUND) {
+                int slot = findSlot(oldKeys[i]);
+                slotKeys[slot] = oldKeys[i];
+                slotValues[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int[] newEmptySlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, NOT_FOUND);
+        return slots;
+    }
+}
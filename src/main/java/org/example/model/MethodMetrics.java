@@ -50,6 +50,17 @@ public class MethodMetrics {
         return allMetrics;
     }
 
+    /**
+     * Le stesse metriche di {@link #toList()}, nello stesso ordine, come valori primitivi.
+     */
+    public long[] toArray() {
+        return new long[]{
+                loc, cyclomaticComplexity, parameterCount, nestingDepth, nSmells,
+                methodHistories, authors, churn, maxChurn, avgChurn, nFix,
+                classHistories, classAuthors, classChurn, avgClassChurn
+        };
+    }
+
     public void setComplexityMetrics(int loc, int cc, int paramCount, int nesting, int smells) {
         this.loc = loc;
         this.cyclomaticComplexity = cc;
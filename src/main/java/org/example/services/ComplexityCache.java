@@ -0,0 +1,262 @@
+package org.example.services;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.example.model.MethodComplexity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache su disco delle metriche di complessità per metodo, indirizzata dal contenuto: la chiave
+ * è l'id del blob, quindi un file mai modificato si analizza una sola volta per tutte le release,
+ * le esecuzioni successive e gli altri progetti (fork) che puntano allo stesso file di cache.
+ * <p>
+ * Il file è un log in sola aggiunta: un'intestazione con il timbro di versione delle metriche,
+ * poi un record per blob (id, numero di metodi, e per ogni metodo firma, LOC, CC, parametri e
+ * annidamento; -1 metodi indica un file che JavaParser non riesce ad analizzare). Se il timbro
+ * non coincide la cache viene svuotata; un record troncato in coda (interruzione brusca) viene
+ * scartato.
+ * <p>
+ * Nello stesso processo i progetti che indicano lo stesso file condividono un'unica istanza. Fra
+ * processi diversi scrive solo chi ottiene il lock sul file; gli altri la usano in sola lettura.
+ */
+public class ComplexityCache implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ComplexityCache.class.getName());
+    private static final int MAGIC = 0x434D5843; // "CMXC"
+    private static final int UNPARSEABLE_MARKER = -1;
+    private static final int MAX_METHODS_PER_FILE = 1 << 16;
+
+    /** Voce per i blob che non si riescono ad analizzare: evita di riprovare a ogni release. */
+    public static final List<MethodComplexity> UNPARSEABLE = Collections.unmodifiableList(new ArrayList<>());
+
+    private static final Map<Path, ComplexityCache> OPEN_CACHES = new HashMap<>();
+
+    private final Path file;
+    private final String stamp;
+    private final Map<ObjectId, List<MethodComplexity>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private FileChannel channel;
+    private FileLock lock;
+    private DataOutputStream appender; // null = sola lettura
+    private int references = 0;
+
+    private ComplexityCache(Path file, String stamp) {
+        this.file = file;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Apre (o crea) la cache indicata; le aperture ripetute dello stesso file restituiscono la
+     * stessa istanza, che va chiusa una volta per ogni apertura.
+     *
+     * @param stamp timbro di versione: la cache viene invalidata se quello salvato è diverso
+     */
+    public static ComplexityCache open(Path file, String stamp) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        synchronized (OPEN_CACHES) {
+            ComplexityCache cache = OPEN_CACHES.get(key);
+            if (cache == null) {
+                cache = new ComplexityCache(key, stamp);
+                cache.load();
+                OPEN_CACHES.put(key, cache);
+            } else if (!cache.stamp.equals(stamp)) {
+                throw new IllegalStateException("Cache di complessità già aperta con un altro timbro: " + key);
+            }
+            cache.references++;
+            return cache;
+        }
+    }
+
+    /**
+     * Metriche dei metodi del blob, {@link #UNPARSEABLE} per un file non analizzabile, o null se il blob non è in cache.
+     */
+    public List<MethodComplexity> get(AnyObjectId blobId) {
+        List<MethodComplexity> cached = entries.get(blobId);
+        (cached == null ? misses : hits).incrementAndGet();
+        return cached;
+    }
+
+    public void put(AnyObjectId blobId, List<MethodComplexity> methods) {
+        ObjectId id = blobId.copy();
+        if (entries.putIfAbsent(id, methods) != null) return;
+        synchronized (this) {
+            if (appender == null) return;
+            try {
+                writeRecord(appender, id, methods);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Scrittura nella cache di complessità fallita, prosegue in sola lettura: {0}", file);
+                LOGGER.log(Level.FINE, "Dettagli errore di scrittura della cache", e);
+                appender = null;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void load() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+
+        long validLength = readEntries();
+        if (lock == null) {
+            if (validLength < 0) entries.clear();
+            LOGGER.log(Level.INFO, "Cache di complessità in uso da un altro processo, aperta in sola lettura: {0}", file);
+            return;
+        }
+        if (validLength < 0) {
+            // Cache assente, di un'altra versione o illeggibile: si riparte da zero.
+            entries.clear();
+            channel.truncate(0);
+            channel.position(0);
+            appender = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            appender.writeInt(MAGIC);
+            appender.writeUTF(stamp);
+        } else {
+            channel.truncate(validLength);
+            channel.position(validLength);
+            appender = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+        LOGGER.log(Level.INFO, "Cache di complessità {0}: {1} blob già noti.", new Object[]{file, entries.size()});
+    }
+
+    /**
+     * Legge i record validi.
+     *
+     * @return la lunghezza della parte valida del file, o -1 se l'intestazione manca o non corrisponde
+     */
+    private long readEntries() {
+        long validLength = -1;
+        try {
+            if (channel.size() == 0) return -1;
+            channel.position(0);
+            // Lo stream non va chiuso: chiuderebbe anche il canale.
+            CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataInputStream in = new DataInputStream(counting);
+            if (in.readInt() != MAGIC || !in.readUTF().equals(stamp)) return -1;
+            validLength = counting.count;
+            while (true) {
+                byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+                in.readFully(rawId);
+                entries.put(ObjectId.fromRaw(rawId), readMethods(in));
+                validLength = counting.count;
+            }
+        } catch (EOFException e) {
+            // Fine del file, eventualmente con un record incompleto che verrà troncato.
+            return validLength;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cache di complessità danneggiata, viene ricostruita: {0}", file);
+            LOGGER.log(Level.FINE, "Dettagli errore di lettura della cache", e);
+            return -1;
+        }
+    }
+
+    private static List<MethodComplexity> readMethods(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == UNPARSEABLE_MARKER) return UNPARSEABLE;
+        if (count < 0 || count > MAX_METHODS_PER_FILE) {
+            throw new IOException("Numero di metodi non valido nel record: " + count);
+        }
+        List<MethodComplexity> methods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            methods.add(new MethodComplexity(in.readUTF(), in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+        }
+        return methods;
+    }
+
+    private static void writeRecord(DataOutputStream out, ObjectId id, List<MethodComplexity> methods) throws IOException {
+        byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+        id.copyRawTo(rawId, 0);
+        out.write(rawId);
+        if (methods == UNPARSEABLE) {
+            out.writeInt(UNPARSEABLE_MARKER);
+            return;
+        }
+        out.writeInt(methods.size());
+        for (MethodComplexity m : methods) {
+            out.writeUTF(m.getSignature());
+            out.writeInt(m.getLoc());
+            out.writeInt(m.getCyclomaticComplexity());
+            out.writeInt(m.getParameterCount());
+            out.writeInt(m.getNestingDepth());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (OPEN_CACHES) {
+            if (--references > 0) return;
+            OPEN_CACHES.remove(file);
+        }
+        LOGGER.log(Level.INFO, "Cache di complessità {0}: {1} hit, {2} miss, {3} blob in totale.",
+                new Object[]{file, hits.get(), misses.get(), entries.size()});
+        synchronized (this) {
+            try {
+                if (appender != null) appender.flush();
+            } finally {
+                if (lock != null) lock.release();
+                channel.close();
+            }
+        }
+    }
+
+    /** Conta i byte consumati, per sapere dove finisce l'ultimo record completo. */
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
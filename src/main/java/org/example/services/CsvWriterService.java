@@ -3,29 +3,48 @@ package org.example.services;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
-import org.example.model.MethodMetrics;
+import org.example.model.DatasetRow;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class CsvWriterService implements AutoCloseable {
+public class CsvWriterService implements DatasetRowSink {
     private static final Logger LOGGER = Logger.getLogger(CsvWriterService.class.getName());
 
+    /** Intestazione del dataset: identificativi, feature ({@link DatasetRow#FEATURE_NAMES}) ed etichetta. */
+    public static final String[] HEADER = buildHeader();
+    private static final int RECORD_SEPARATOR_BYTES = CSVFormat.DEFAULT.getRecordSeparator().length();
+
     // --- MODIFICA 1: Rendi 'writer' e 'csvPrinter' campi della classe ---
     private final BufferedWriter writer;
     private final CSVPrinter csvPrinter;
+    private final ByteCountingWriter counter;
+    private final Path indexFile;          // null = nessun indice
+    private final DatasetIndexWriter index;
 
     public CsvWriterService(String filePath) throws IOException {
+        this(filePath, false);
+    }
+
+    /**
+     * @param withIndex se true, alla chiusura scrive accanto al CSV l'indice per MethodID letto da {@link DatasetIndex}
+     */
+    public CsvWriterService(String filePath, boolean withIndex) throws IOException {
         // Inizializza il writer come campo della classe
         this.writer = Files.newBufferedWriter(Paths.get(filePath));
+        this.counter = new ByteCountingWriter(this.writer);
         // Passa il writer al printer
-        this.csvPrinter = new CSVPrinter(this.writer, CSVFormat.DEFAULT);
+        this.csvPrinter = new CSVPrinter(this.counter, CSVFormat.DEFAULT);
+        this.indexFile = withIndex ? DatasetIndex.indexPathFor(Paths.get(filePath)) : null;
+        this.index = withIndex ? new DatasetIndexWriter() : null;
         LOGGER.log(Level.INFO, "CSV Writer inizializzato per: {0}", filePath);
     }
 
@@ -34,24 +53,40 @@ public class CsvWriterService implements AutoCloseable {
         csvPrinter.flush();
     }
 
-    public void writeDataRow(String projectName, String methodID, String releaseName,
-                             MethodMetrics metrics, String bugginess) throws IOException {
-        // La variabile 'record' è stata rinominata in 'dataRow'
-        List<Object> dataRow = new ArrayList<>();
-        dataRow.add(projectName);
+    /**
+     * Scrive una riga prodotta dal DatasetGenerator; è qui che la chiave del metodo diventa stringa.
+     */
+    @Override
+    public void writeRow(DatasetRow row) throws IOException {
+        long offset = counter.getBytes();
+        csvPrinter.printRecord(toRecord(row));
+        if (index != null) {
+            index.add(row, offset, (int) (counter.getBytes() - offset - RECORD_SEPARATOR_BYTES));
+        }
+    }
+
+    /**
+     * Valori della riga nel formato del CSV completo, dopo il controllo delle anomalie numeriche.
+     */
+    static List<Object> toRecord(DatasetRow row) {
+        List<Object> dataRow = new ArrayList<>(row.getFeatureCount() + 4);
+        dataRow.add(row.getProjectName());
+        String methodID = row.getMethodKey();
         dataRow.add(methodID);
-        dataRow.add(releaseName);
+        dataRow.add(row.getRelease().getName());
 
-        List<Object> metricValues = metrics.toList();
+        List<Object> metricValues = new ArrayList<>(row.getFeatureCount());
+        for (int i = 0; i < row.getFeatureCount(); i++) {
+            metricValues.add(row.getFeature(i));
+        }
         dataRow.addAll(metricValues);
-        dataRow.add(bugginess);
+        dataRow.add(row.isBuggy() ? "yes" : "no");
 
-        validateMetrics(methodID, releaseName, metricValues);
-
-        csvPrinter.printRecord(dataRow);
+        validateMetrics(methodID, row.getRelease().getName(), metricValues);
+        return dataRow;
     }
 
-    private void validateMetrics(String methodID, String releaseName, List<Object> metricValues) {
+    private static void validateMetrics(String methodID, String releaseName, List<Object> metricValues) {
         for (Object metricValue : metricValues) {
             if (metricValue instanceof Number numVal) {
                 double value = numVal.doubleValue();
@@ -64,6 +99,16 @@ public class CsvWriterService implements AutoCloseable {
         }
     }
 
+    private static String[] buildHeader() {
+        List<String> header = new ArrayList<>();
+        header.add("ProjectName");
+        header.add("MethodID");
+        header.add("ReleaseID");
+        header.addAll(DatasetRow.FEATURE_NAMES);
+        header.add("Bugginess");
+        return header.toArray(new String[0]);
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -79,5 +124,60 @@ public class CsvWriterService implements AutoCloseable {
             }
         }
         LOGGER.info("CSV Writer chiuso correttamente.");
+        if (index != null) {
+            index.write(indexFile, counter.getBytes());
+            LOGGER.log(Level.INFO, "Indice del dataset scritto in {0} ({1} righe).", new Object[]{indexFile, index.getRowCount()});
+        }
+    }
+
+    /**
+     * Conta i byte UTF-8 dei caratteri che attraversa, così la posizione di ogni riga nel file è
+     * nota senza svuotare il buffer.
+     */
+    private static class ByteCountingWriter extends Writer {
+        private final Writer out;
+        private long bytes = 0;
+
+        ByteCountingWriter(Writer out) {
+            this.out = out;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        private void count(char c) {
+            if (c < 0x80) bytes += 1;
+            else if (c < 0x800 || Character.isSurrogate(c)) bytes += 2; // coppia surrogata = 4 byte
+            else bytes += 3;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            count((char) c);
+            out.write(c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) count(buffer[i]);
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) count(str.charAt(i));
+            out.write(str, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
     }
 }
\ No newline at end of file
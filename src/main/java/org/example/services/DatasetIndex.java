@@ -0,0 +1,209 @@
+package org.example.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Indice ad accesso diretto su un CSV completo del dataset: per ogni MethodID le posizioni delle
+ * sue righe, release per release. L'indice viene scritto accanto al CSV durante la generazione
+ * ({@code <dataset>.csv.idx}) e si legge mappato in memoria, quindi una ricerca costa un hash, un
+ * paio di accessi all'indice e una lettura posizionale per riga, senza caricare il dataset.
+ * <p>
+ * Formato (big-endian): intestazione (magic, versione, dimensione del CSV indicizzato, numero di
+ * release e di metodi, numero di bucket, posizioni delle sezioni), nomi delle release nell'ordine
+ * di generazione (lunghezza e byte UTF-8, come le chiavi), tabella hash a indirizzamento aperto (hash FNV-1a a 64 bit della chiave e
+ * posizione della voce), voci dei metodi (chiave UTF-8, numero di righe, poi per riga ordinale
+ * della release, posizione e lunghezza in byte nel CSV). Un indice la cui dimensione registrata
+ * non coincide con quella del CSV viene rifiutato.
+ * <p>
+ * Uso da riga di comando: {@code DatasetIndex <dataset.csv> <MethodID> [release]} stampa
+ * l'intestazione e le righe del metodo, eventualmente di una sola release.
+ */
+public class DatasetIndex implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(DatasetIndex.class.getName());
+
+    static final int MAGIC = 0x44534958; // "DSIX"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 48;
+    static final int BUCKET_BYTES = 16;
+    static final int ROW_BYTES = 16;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Posizione di una riga del metodo nel CSV. */
+    public static class RowRef {
+        public final String release;
+        public final long offset;
+        public final int length;
+
+        RowRef(String release, long offset, int length) {
+            this.release = release;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Path csvFile;
+    private final FileChannel csvChannel;
+    private final MappedByteBuffer index;
+    private final List<String> releaseNames;
+    private final int methodCount;
+    private final int bucketCount;
+    private final int bucketsOffset;
+
+    private DatasetIndex(Path csvFile, FileChannel csvChannel, MappedByteBuffer index) throws IOException {
+        this.csvFile = csvFile;
+        this.csvChannel = csvChannel;
+        this.index = index;
+        if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Formato dell'indice non riconosciuto: " + indexPathFor(csvFile));
+        }
+        if (index.getLong(8) != csvChannel.size()) {
+            throw new IOException("Indice non aggiornato rispetto a " + csvFile + ": rigenerare il dataset");
+        }
+        int releaseCount = index.getInt(16);
+        this.methodCount = index.getInt(20);
+        this.bucketCount = index.getInt(24);
+        this.bucketsOffset = (int) index.getLong(32);
+
+        List<String> names = new ArrayList<>(releaseCount);
+        int position = HEADER_BYTES;
+        for (int i = 0; i < releaseCount; i++) {
+            int length = index.getInt(position);
+            byte[] bytes = new byte[length];
+            index.get(position + 4, bytes);
+            names.add(new String(bytes, StandardCharsets.UTF_8));
+            position += 4 + length;
+        }
+        this.releaseNames = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Apre l'indice scritto accanto al CSV indicato.
+     */
+    public static DatasetIndex open(Path csvFile) throws IOException {
+        FileChannel csvChannel = FileChannel.open(csvFile, StandardOpenOption.READ);
+        try (FileChannel indexChannel = FileChannel.open(indexPathFor(csvFile), StandardOpenOption.READ)) {
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            return new DatasetIndex(csvFile, csvChannel, index);
+        } catch (IOException | RuntimeException e) {
+            csvChannel.close();
+            throw e;
+        }
+    }
+
+    public static Path indexPathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".idx");
+    }
+
+    public List<String> getReleaseNames() {
+        return releaseNames;
+    }
+
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * Posizioni delle righe del metodo, nell'ordine del CSV.
+     *
+     * @return le righe, o una lista vuota se il metodo non compare nel dataset
+     */
+    public List<RowRef> lookup(String methodId) {
+        byte[] key = methodId.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(key);
+        int bucket = (int) hash & (bucketCount - 1);
+        while (true) {
+            int position = bucketsOffset + bucket * BUCKET_BYTES;
+            long entry = index.getLong(position + 8);
+            if (entry == 0) return Collections.emptyList();
+            if (index.getLong(position) == hash && keyMatches((int) entry, key)) {
+                return readEntry((int) entry + 4 + key.length);
+            }
+            bucket = (bucket + 1) & (bucketCount - 1);
+        }
+    }
+
+    private boolean keyMatches(int entry, byte[] key) {
+        if (index.getInt(entry) != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (index.get(entry + 4 + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private List<RowRef> readEntry(int position) {
+        int count = index.getInt(position);
+        List<RowRef> rows = new ArrayList<>(count);
+        for (int i = 0, row = position + 4; i < count; i++, row += ROW_BYTES) {
+            rows.add(new RowRef(releaseNames.get(index.getInt(row)), index.getLong(row + 4), index.getInt(row + 12)));
+        }
+        return rows;
+    }
+
+    /**
+     * Righe del CSV del metodo, lette direttamente alle posizioni indicizzate.
+     *
+     * @param release nome della release, o null per tutte
+     */
+    public List<String> readRows(String methodId, String release) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (RowRef row : lookup(methodId)) {
+            if (release != null && !release.equals(row.release)) continue;
+            lines.add(readLine(row.offset, row.length));
+        }
+        return lines;
+    }
+
+    private String readLine(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (csvChannel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Riga oltre la fine di " + csvFile);
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    static long hash(byte[] key) {
+        long hash = FNV_OFFSET;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public void close() throws IOException {
+        csvChannel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            LOGGER.severe("Uso: DatasetIndex <dataset.csv> <MethodID> [release]");
+            return;
+        }
+        try (DatasetIndex datasetIndex = DatasetIndex.open(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            List<String> rows = datasetIndex.readRows(args[1], (args.length > 2) ? args[2] : null);
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(String.join(",", CsvWriterService.HEADER));
+            rows.forEach(System.out::println);
+            LOGGER.log(Level.INFO, "{0} righe trovate in {1} µs ({2} metodi, {3} release indicizzati).",
+                    new Object[]{rows.size(), micros, datasetIndex.getMethodCount(), datasetIndex.getReleaseNames().size()});
+        }
+    }
+}
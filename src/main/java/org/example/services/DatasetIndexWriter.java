@@ -0,0 +1,155 @@
+package org.example.services;
+
+import org.example.model.DatasetRow;
+import org.example.model.IdMap;
+import org.example.model.Release;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raccoglie, durante la scrittura del CSV completo, la posizione di ogni riga per metodo e
+ * scrive a fine generazione l'indice letto da {@link DatasetIndex} (formato descritto lì).
+ * In memoria restano la chiave di ogni metodo e 16 byte per riga.
+ */
+class DatasetIndexWriter {
+    private final IdMap<MethodRows> methods = new IdMap<>();
+    private final List<Integer> methodOrder = new ArrayList<>();
+    private final List<String> releaseNames = new ArrayList<>();
+    private final Map<Release, Integer> releaseOrdinals = new HashMap<>();
+    private long rowCount = 0;
+
+    private static final class MethodRows {
+        final byte[] key;
+        int[] releases = new int[4];
+        long[] offsets = new long[4];
+        int[] lengths = new int[4];
+        int count = 0;
+
+        MethodRows(String key) {
+            this.key = key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        void add(int release, long offset, int length) {
+            if (count == releases.length) {
+                releases = Arrays.copyOf(releases, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            releases[count] = release;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+        }
+
+        long entryBytes() {
+            return 4L + key.length + 4 + (long) count * DatasetIndex.ROW_BYTES;
+        }
+    }
+
+    /**
+     * @param offset posizione in byte della riga nel CSV
+     * @param length lunghezza in byte della riga, senza separatore di record
+     */
+    void add(DatasetRow row, long offset, int length) {
+        Integer release = releaseOrdinals.get(row.getRelease());
+        if (release == null) {
+            release = releaseNames.size();
+            releaseOrdinals.put(row.getRelease(), release);
+            releaseNames.add(row.getRelease().getName());
+        }
+        MethodRows rows = methods.get(row.getMethodId());
+        if (rows == null) {
+            rows = new MethodRows(row.getMethodKey());
+            methods.put(row.getMethodId(), rows);
+            methodOrder.add(row.getMethodId());
+        }
+        rows.add(release, offset, length);
+        rowCount++;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Scrive l'indice (prima su un file temporaneo, poi al suo posto).
+     *
+     * @param csvBytes dimensione del CSV indicizzato, usata per riconoscere un indice non aggiornato
+     */
+    void write(Path indexFile, long csvBytes) throws IOException {
+        int methodCount = methodOrder.size();
+        int bucketCount = Integer.highestOneBit(Math.max(1, methodCount) * 2 - 1) << 1;
+
+        List<byte[]> encodedNames = new ArrayList<>(releaseNames.size());
+        long releasesBytes = 0;
+        for (String name : releaseNames) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            encodedNames.add(encoded);
+            releasesBytes += 4 + encoded.length;
+        }
+        long bucketsOffset = DatasetIndex.HEADER_BYTES + releasesBytes;
+        long entriesOffset = bucketsOffset + (long) bucketCount * DatasetIndex.BUCKET_BYTES;
+
+        long[] bucketHashes = new long[bucketCount];
+        long[] bucketEntries = new long[bucketCount];
+        long entryOffset = entriesOffset;
+        for (int methodId : methodOrder) {
+            MethodRows rows = methods.get(methodId);
+            long hash = DatasetIndex.hash(rows.key);
+            int bucket = (int) hash & (bucketCount - 1);
+            while (bucketEntries[bucket] != 0) {
+                bucket = (bucket + 1) & (bucketCount - 1);
+            }
+            bucketHashes[bucket] = hash;
+            bucketEntries[bucket] = entryOffset;
+            entryOffset += rows.entryBytes();
+        }
+        if (entryOffset > Integer.MAX_VALUE) {
+            throw new IOException("Indice troppo grande per una singola mappatura: " + entryOffset + " byte");
+        }
+
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(DatasetIndex.MAGIC);
+            out.writeInt(DatasetIndex.VERSION);
+            out.writeLong(csvBytes);
+            out.writeInt(releaseNames.size());
+            out.writeInt(methodCount);
+            out.writeInt(bucketCount);
+            out.writeInt(0);
+            out.writeLong(bucketsOffset);
+            out.writeLong(entriesOffset);
+            for (byte[] name : encodedNames) {
+                out.writeInt(name.length);
+                out.write(name);
+            }
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                out.writeLong(bucketHashes[bucket]);
+                out.writeLong(bucketEntries[bucket]);
+            }
+            for (int methodId : methodOrder) {
+                MethodRows rows = methods.get(methodId);
+                out.writeInt(rows.key.length);
+                out.write(rows.key);
+                out.writeInt(rows.count);
+                for (int i = 0; i < rows.count; i++) {
+                    out.writeInt(rows.releases[i]);
+                    out.writeLong(rows.offsets[i]);
+                    out.writeInt(rows.lengths[i]);
+                }
+            }
+        }
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.services;
+
+import org.example.model.DatasetRow;
+
+import java.io.IOException;
+
+/**
+ * Destinazione delle righe prodotte dal DatasetGenerator (CSV completo, CSV delta, ...).
+ */
+public interface DatasetRowSink extends AutoCloseable {
+    void writeRow(DatasetRow row) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
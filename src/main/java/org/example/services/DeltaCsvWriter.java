@@ -0,0 +1,161 @@
+package org.example.services;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.example.model.DatasetRow;
+import org.example.model.IdMap;
+import org.example.model.Release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Scrive il dataset in forma delta: per ogni release solo le righe dei metodi nuovi o con
+ * feature/etichetta cambiate rispetto alla release precedente (UPSERT) e i metodi spariti
+ * (DELETE). Il formato è quello del CSV completo con una colonna finale {@value #CHANGE_COLUMN};
+ * le righe DELETE hanno feature ed etichetta vuote. Ogni release si apre con una riga RELEASE
+ * (solo progetto e release), così anche una release senza cambiamenti resta nel file.
+ * {@link DeltaDatasetReader} ricostruisce gli snapshot completi.
+ * <p>
+ * Le righe di una release vengono raccolte per methodId e confrontate a release conclusa: un
+ * file può contenere più metodi con la stessa chiave (classi annidate), e in quel caso il
+ * gruppo viene riscritto per intero se una qualunque delle sue righe cambia.
+ */
+public class DeltaCsvWriter implements DatasetRowSink {
+    private static final Logger LOGGER = Logger.getLogger(DeltaCsvWriter.class.getName());
+
+    public static final String CHANGE_COLUMN = "Change";
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+    public static final String RELEASE = "RELEASE";
+
+    private final BufferedWriter writer;
+    private final CSVPrinter csvPrinter;
+
+    private IdMap<List<DatasetRow>> previous = new IdMap<>();
+    private int[] previousOrder = new int[0];
+    private int previousCount = 0;
+
+    private Release currentRelease;
+    private IdMap<List<DatasetRow>> current = new IdMap<>();
+    private int[] currentOrder = new int[1024];
+    private int currentCount = 0;
+
+    private long rowsSeen = 0;
+    private long upserts = 0;
+    private long deletes = 0;
+
+    public DeltaCsvWriter(String filePath) throws IOException {
+        this.writer = Files.newBufferedWriter(Paths.get(filePath));
+        this.csvPrinter = new CSVPrinter(this.writer, CSVFormat.DEFAULT);
+        List<String> header = new ArrayList<>(Arrays.asList(CsvWriterService.HEADER));
+        header.add(CHANGE_COLUMN);
+        csvPrinter.printRecord(header);
+        LOGGER.log(Level.INFO, "CSV delta inizializzato per: {0}", filePath);
+    }
+
+    @Override
+    public void writeRow(DatasetRow row) throws IOException {
+        if (currentRelease != null && !currentRelease.equals(row.getRelease())) {
+            finishRelease();
+        }
+        currentRelease = row.getRelease();
+        rowsSeen++;
+
+        List<DatasetRow> group = current.get(row.getMethodId());
+        if (group == null) {
+            group = new ArrayList<>(1);
+            current.put(row.getMethodId(), group);
+            if (currentCount == currentOrder.length) {
+                currentOrder = Arrays.copyOf(currentOrder, currentCount * 2);
+            }
+            currentOrder[currentCount++] = row.getMethodId();
+        }
+        group.add(row);
+    }
+
+    /**
+     * Confronta la release appena conclusa con la precedente e scrive le differenze.
+     */
+    private void finishRelease() throws IOException {
+        writeMarker(current.get(currentOrder[0]).get(0).getProjectName(), null);
+        for (int i = 0; i < currentCount; i++) {
+            List<DatasetRow> group = current.get(currentOrder[i]);
+            if (!sameValues(group, previous.get(currentOrder[i]))) {
+                for (DatasetRow row : group) {
+                    List<Object> values = CsvWriterService.toRecord(row);
+                    values.add(UPSERT);
+                    csvPrinter.printRecord(values);
+                    upserts++;
+                }
+            }
+        }
+        for (int i = 0; i < previousCount; i++) {
+            if (current.get(previousOrder[i]) == null) {
+                writeDeletion(previous.get(previousOrder[i]).get(0));
+            }
+        }
+
+        previous = current;
+        previousOrder = currentOrder;
+        previousCount = currentCount;
+        current = new IdMap<>();
+        currentOrder = new int[Math.max(1024, previousCount)];
+        currentCount = 0;
+    }
+
+    private void writeDeletion(DatasetRow removed) throws IOException {
+        writeMarker(removed.getProjectName(), removed.getMethodKey());
+        deletes++;
+    }
+
+    /**
+     * Riga senza feature: DELETE se c'è un metodo, altrimenti RELEASE (inizio della release corrente).
+     */
+    private void writeMarker(String projectName, String methodKey) throws IOException {
+        List<Object> values = new ArrayList<>(CsvWriterService.HEADER.length + 1);
+        values.add(projectName);
+        values.add(methodKey == null ? "" : methodKey);
+        values.add(currentRelease.getName());
+        for (int i = 3; i < CsvWriterService.HEADER.length; i++) {
+            values.add("");
+        }
+        values.add(methodKey == null ? RELEASE : DELETE);
+        csvPrinter.printRecord(values);
+    }
+
+    private static boolean sameValues(List<DatasetRow> group, List<DatasetRow> previousGroup) {
+        if (previousGroup == null || previousGroup.size() != group.size()) return false;
+        for (int i = 0; i < group.size(); i++) {
+            DatasetRow row = group.get(i);
+            DatasetRow old = previousGroup.get(i);
+            if (row.isBuggy() != old.isBuggy() || row.getFeatureCount() != old.getFeatureCount()) return false;
+            for (int f = 0; f < row.getFeatureCount(); f++) {
+                if (row.getFeature(f) != old.getFeature(f)) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (currentRelease != null) {
+                finishRelease();
+            }
+            this.csvPrinter.flush();
+            this.csvPrinter.close();
+        } finally {
+            this.writer.close();
+        }
+        LOGGER.log(Level.INFO, "CSV delta chiuso: {0} righe prodotte, {1} scritte come UPSERT, {2} DELETE.",
+                new Object[]{rowsSeen, upserts, deletes});
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.services;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ricostruisce gli snapshot completi di un dataset scritto da {@link DeltaCsvWriter}.
+ * Il file viene letto in streaming: in memoria resta solo lo snapshot corrente.
+ * <p>
+ * Uso da riga di comando: {@code DeltaDatasetReader <delta.csv> <full.csv>} espande il delta
+ * nel CSV completo equivalente.
+ */
+public class DeltaDatasetReader {
+    private static final Logger LOGGER = Logger.getLogger(DeltaDatasetReader.class.getName());
+    private static final int RELEASE_COLUMN = 2;
+
+    /**
+     * Riceve lo snapshot di una release: le righe nel formato del CSV completo.
+     */
+    @FunctionalInterface
+    public interface SnapshotConsumer {
+        void accept(String releaseName, List<List<String>> rows) throws IOException;
+    }
+
+    private final Path deltaCsv;
+
+    public DeltaDatasetReader(Path deltaCsv) {
+        this.deltaCsv = deltaCsv;
+    }
+
+    /**
+     * Applica le righe delta una release alla volta e passa al consumatore lo snapshot di ogni release.
+     */
+    public void forEachSnapshot(SnapshotConsumer consumer) throws IOException {
+        // MethodID -> righe (più di una se la chiave è duplicata nel file), in ordine di prima apparizione.
+        Map<String, List<List<String>>> state = new LinkedHashMap<>();
+        Set<String> upsertedInRelease = new HashSet<>();
+        String currentRelease = null;
+
+        try (Reader reader = Files.newBufferedReader(deltaCsv);
+             CSVParser parser = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build().parse(reader)) {
+            int changeColumn = parser.getHeaderNames().indexOf(DeltaCsvWriter.CHANGE_COLUMN);
+            if (changeColumn < 0) {
+                throw new IOException("Colonna " + DeltaCsvWriter.CHANGE_COLUMN + " assente: " + deltaCsv + " non è un dataset delta");
+            }
+            for (CSVRecord csvRecord : parser) {
+                String release = csvRecord.get(RELEASE_COLUMN);
+                if (currentRelease != null && !currentRelease.equals(release)) {
+                    consumer.accept(currentRelease, snapshotOf(state, currentRelease));
+                    upsertedInRelease.clear();
+                }
+                currentRelease = release;
+                apply(csvRecord, changeColumn, state, upsertedInRelease);
+            }
+        }
+        if (currentRelease != null) {
+            consumer.accept(currentRelease, snapshotOf(state, currentRelease));
+        }
+    }
+
+    /**
+     * Snapshot completo di una release, o lista vuota se la release non compare nel file.
+     */
+    public List<List<String>> snapshot(String releaseName) throws IOException {
+        List<List<String>> result = new ArrayList<>();
+        forEachSnapshot((release, rows) -> {
+            if (release.equals(releaseName)) result.addAll(rows);
+        });
+        return result;
+    }
+
+    /**
+     * Scrive il CSV completo equivalente al delta.
+     */
+    public void expandTo(Path fullCsv) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(fullCsv);
+             CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+            printer.printRecord((Object[]) CsvWriterService.HEADER);
+            forEachSnapshot((release, rows) -> {
+                for (List<String> row : rows) {
+                    printer.printRecord(row);
+                }
+            });
+        }
+    }
+
+    private static void apply(CSVRecord csvRecord, int changeColumn, Map<String, List<List<String>>> state,
+                              Set<String> upsertedInRelease) {
+        String methodId = csvRecord.get(1);
+        String change = csvRecord.get(changeColumn);
+        if (DeltaCsvWriter.RELEASE.equals(change)) {
+            return;
+        }
+        if (DeltaCsvWriter.DELETE.equals(change)) {
+            state.remove(methodId);
+            return;
+        }
+        List<String> values = new ArrayList<>(changeColumn);
+        for (int i = 0; i < changeColumn; i++) {
+            values.add(csvRecord.get(i));
+        }
+        // La prima riga UPSERT di un metodo nella release sostituisce l'intero gruppo, le successive lo completano.
+        if (upsertedInRelease.add(methodId)) {
+            List<List<String>> group = new ArrayList<>(1);
+            group.add(values);
+            state.put(methodId, group);
+        } else {
+            state.get(methodId).add(values);
+        }
+    }
+
+    private static List<List<String>> snapshotOf(Map<String, List<List<String>>> state, String releaseName) {
+        List<List<String>> rows = new ArrayList<>();
+        for (List<List<String>> group : state.values()) {
+            for (List<String> values : group) {
+                List<String> row = new ArrayList<>(values);
+                row.set(RELEASE_COLUMN, releaseName);
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            LOGGER.severe("Uso: DeltaDatasetReader <delta.csv> <full.csv>");
+            return;
+        }
+        new DeltaDatasetReader(Paths.get(args[0])).expandTo(Paths.get(args[1]));
+        LOGGER.log(Level.INFO, "Dataset completo scritto in: {0}", args[1]);
+    }
+}
@@ -3,34 +3,171 @@ package org.example.services;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
-import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.example.config.GitStorageProfile;
 
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
 public class GitService {
+    private static final Logger LOGGER = Logger.getLogger(GitService.class.getName());
+    private static final DiffAlgorithm LINE_DIFF_ALGORITHM =
+            DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+    private static final RawTextComparator LINE_COMPARATOR = new LineEndingInsensitiveComparator();
+
+    // La WindowCache di JGit è globale: il profilo installato vale per tutti i repository aperti,
+    // e non si può cambiare finché ce n'è uno aperto (accessi guardati da GitService.class).
+    private static GitStorageProfile installedProfile = GitStorageProfile.DEFAULT;
+    private static int openServices = 0;
+
     public final Repository repository;
     private final Git git;
+    private boolean closed = false;
+
+    /**
+     * Confronta le righe ignorando solo il terminatore (LF o CRLF), come lo split su
+     * "\r\n|\r|\n" usato in precedenza per il churn: gli spazi finali restano significativi.
+     */
+    private static final class LineEndingInsensitiveComparator extends RawTextComparator {
+        @Override
+        public boolean equals(RawText a, int ai, RawText b, int bi) {
+            return stripCarriageReturn(a.getRawString(ai)).equals(stripCarriageReturn(b.getRawString(bi)));
+        }
+
+        @Override
+        protected int hashRegion(byte[] raw, int ptr, int end) {
+            if (end > ptr && raw[end - 1] == '\n') end--;
+            if (end > ptr && raw[end - 1] == '\r') end--;
+            int hash = 5381;
+            for (; ptr < end; ptr++) {
+                hash = ((hash << 5) + hash) + (raw[ptr] & 0xff);
+            }
+            return hash;
+        }
+
+        private static ByteBuffer stripCarriageReturn(ByteBuffer line) {
+            int limit = line.limit();
+            if (limit > line.position() && line.get(limit - 1) == '\r') {
+                line.limit(limit - 1);
+            }
+            return line;
+        }
+    }
 
+    /**
+     * Apre il repository con il profilo di storage già installato.
+     */
     public GitService(Path repositoryPath) throws IOException {
-        this.git = Git.open(repositoryPath.toFile());
+        this(repositoryPath, null);
+    }
+
+    /**
+     * Apre il repository con il profilo indicato, che viene installato se nessun altro repository è
+     * aperto; se ce ne sono con un profilo diverso l'apertura fallisce.
+     *
+     * @param storageProfile profilo richiesto, o null per quello già installato
+     */
+    public GitService(Path repositoryPath, GitStorageProfile storageProfile) throws IOException {
+        register(storageProfile);
+        try {
+            this.git = Git.open(repositoryPath.toFile());
+        } catch (IOException | RuntimeException e) {
+            unregister();
+            throw e;
+        }
         this.repository = git.getRepository();
+        // Se il clone ha un commit-graph, le RevWalk leggono da lì parent, alberi e commit time
+        // invece di decomprimere gli oggetti commit (l'impostazione resta in memoria, non su disco).
+        repository.getConfig().setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+    }
+
+    /**
+     * Fase di preparazione del clone: se mancano il commit-graph o le bitmap dei pack, esegue una
+     * gc di JGit ({@code git.gc()}) che li genera. La gc riscrive i pack del clone analizzato, quindi va richiesta
+     * esplicitamente; con gli indici già presenti non fa nulla.
+     */
+    public void prepareWalkIndexes() throws IOException {
+        if (repository.getDirectory() == null) return;
+        boolean hasCommitGraph = new File(repository.getDirectory(), "objects/info/commit-graph").isFile();
+        boolean hasBitmaps = hasPackBitmaps();
+        if (hasCommitGraph && hasBitmaps) {
+            LOGGER.info("Commit-graph e bitmap dei pack già presenti.");
+            return;
+        }
+
+        LOGGER.log(Level.INFO, "Preparazione del clone: generazione di commit-graph ({0}) e bitmap ({1})...",
+                new Object[]{hasCommitGraph ? "presente" : "mancante", hasBitmaps ? "presenti" : "mancanti"});
+        long start = System.currentTimeMillis();
+        // Solo in memoria, come core.commitGraph: la configurazione del clone su disco non cambia.
+        repository.getConfig().setBoolean(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH, true);
+        repository.getConfig().setBoolean(ConfigConstants.CONFIG_PACK_SECTION, null, ConfigConstants.CONFIG_KEY_BUILD_BITMAPS, true);
+        try {
+            git.gc().call();
+        } catch (GitAPIException e) {
+            throw new IOException("Preparazione del clone fallita", e);
+        }
+        LOGGER.log(Level.INFO, "Preparazione del clone completata in {0} ms.", System.currentTimeMillis() - start);
+    }
+
+    private boolean hasPackBitmaps() {
+        File packDir = new File(repository.getDirectory(), "objects/pack");
+        File[] bitmaps = packDir.listFiles((dir, name) -> name.endsWith(".bitmap"));
+        return bitmaps != null && bitmaps.length > 0;
+    }
+
+    /**
+     * Installa la configurazione della WindowCache di JGit (mmap dei pack, dimensione delle finestre,
+     * file aperti, cache delle delta base). L'impostazione vale per l'intero processo, quindi va
+     * fatta prima di aprire i repository: con un repository aperto si può solo confermare il profilo
+     * già installato.
+     *
+     * @throws IllegalStateException se il profilo è diverso da quello installato e ci sono
+     *                               repository aperti
+     */
+    public static synchronized void applyStorageProfile(GitStorageProfile profile) {
+        if (profile.equals(installedProfile)) return;
+        if (openServices > 0) {
+            throw new IllegalStateException("Profilo di storage Git " + profile + " richiesto con " + openServices
+                    + " repository aperti sul profilo " + installedProfile);
+        }
+        profile.toWindowCacheConfig().install();
+        LOGGER.log(Level.INFO, "Profilo di storage Git installato: {0}", profile);
+        installedProfile = profile;
+    }
+
+    private static synchronized void register(GitStorageProfile profile) {
+        if (profile != null) applyStorageProfile(profile);
+        openServices++;
+    }
+
+    private static synchronized void unregister() {
+        openServices--;
     }
 
     public ObjectId getFileId(RevCommit commit, String filePath) throws IOException {
@@ -45,23 +182,15 @@ public class GitService {
         return git.log().all().call();
     }
 
-    public List<Ref> getAllTagsSortedByDate() throws GitAPIException {
-        List<Ref> tags = git.tagList().call();
-        tags.sort((t1, t2) -> {
-            try (RevWalk walk = new RevWalk(repository)) {
-                RevCommit c1 = walk.parseCommit(t1.getObjectId());
-                RevCommit c2 = walk.parseCommit(t2.getObjectId());
-                return Integer.compare(c1.getCommitTime(), c2.getCommitTime());
-            } catch (Exception e) {
-                return 0;
-            }
-        });
-        return tags;
-    }
-
     public List<DiffEntry> getChangedFilesInCommit(RevCommit commit) throws IOException {
         if (commit.getParentCount() == 0) return Collections.emptyList();
-        RevCommit parent = new RevWalk(repository).parseCommit(commit.getParent(0).getId());
+        // Nelle walk il parent è già analizzato (dal commit-graph, se c'è): si rilegge solo se manca l'albero.
+        RevCommit parent = commit.getParent(0);
+        if (parent.getTree() == null) {
+            try (RevWalk walk = new RevWalk(repository)) {
+                parent = walk.parseCommit(parent.getId());
+            }
+        }
         try (DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
              ObjectReader reader = repository.newObjectReader()) {
             diffFormatter.setRepository(repository);
@@ -83,6 +212,26 @@ public class GitService {
         return "";
     }
 
+    /**
+     * Contenuto grezzo di un blob. L'id nullo (lato mancante di un'aggiunta o di una
+     * cancellazione) corrisponde a un contenuto vuoto.
+     */
+    public byte[] getBlobBytes(AbbreviatedObjectId blobId) throws IOException {
+        if (blobId == null || ObjectId.zeroId().equals(blobId.toObjectId())) {
+            return new byte[0];
+        }
+        return repository.open(blobId.toObjectId(), Constants.OBJ_BLOB).getBytes();
+    }
+
+    /**
+     * Edit list a livello di riga fra due versioni di un file, calcolata con l'algoritmo histogram
+     * di JGit direttamente sui byte dei blob, senza decodifica né split in righe.
+     * Ogni Edit riporta gli intervalli di righe [begin, end) coinvolti nelle due versioni.
+     */
+    public EditList getLineEdits(byte[] contentBefore, byte[] contentAfter) {
+        return LINE_DIFF_ALGORITHM.diff(LINE_COMPARATOR, new RawText(contentBefore), new RawText(contentAfter));
+    }
+
     public Map<String, RevCommit> linkBugsToCommits(Set<String> ticketKeys) throws GitAPIException, IOException {
         Map<String, RevCommit> bugCommits = new HashMap<>();
         if (ticketKeys.isEmpty()) return bugCommits;
@@ -100,7 +249,10 @@ public class GitService {
     }
 
     public void close() {
+        if (closed) return;
+        closed = true;
         git.close();
         repository.close();
+        unregister();
     }
 }
\ No newline at end of file
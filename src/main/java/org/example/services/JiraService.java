@@ -13,16 +13,31 @@ import org.example.model.JiraTicket;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime; // <-- IMPORT CAMBIATO
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class JiraService {
+    private static final Logger LOGGER = Logger.getLogger(JiraService.class.getName());
 
     private final CloseableHttpClient httpClient;
     private final ObjectMapper objectMapper;
     private static final String JIRA_API_URL = "https://issues.apache.org/jira/rest/api/2/search";
+    private static final String FIXED_BUGS_JQL = "project = %s AND issueType = Bug AND status in (Resolved, Closed) AND resolution = Fixed";
+    private static final String UPDATED_JQL = "project = %s AND updated >= \"%s\"";
+    private static final String TICKET_FIELDS = "key,resolutiondate,created,versions";
+    private static final Set<String> FIXED_STATUSES = Set.of("resolved", "closed");
+    private static final Duration SYNC_OVERLAP = Duration.ofDays(1);
+    private static final DateTimeFormatter SYNC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
 
     public JiraService() {
         this.httpClient = HttpClients.createDefault();
@@ -31,15 +46,70 @@ public class JiraService {
 
     public List<JiraTicket> getFixedBugTickets(String projectKey) throws IOException {
         List<JiraTicket> tickets = new ArrayList<>();
-        // ... (resto del metodo uguale)
-        final String jqlQuery = String.format("project = %s AND issueType = Bug AND status in (Resolved, Closed) AND resolution = Fixed", projectKey);
+        System.out.println("Recupero ticket di bug fixati da JIRA...");
+        search(String.format(FIXED_BUGS_JQL, projectKey), TICKET_FIELDS, issueNode -> tickets.add(toTicket(issueNode)));
+        System.out.println("Trovati " + tickets.size() + " ticket di bug fixati su JIRA.");
+        return tickets;
+    }
+
+    /**
+     * Allinea l'archivio locale a JIRA e ne restituisce i ticket. Al primo utilizzo scarica tutti i
+     * bug fixati; poi chiede solo i ticket del progetto aggiornati dopo l'ultima sincronizzazione
+     * (con un giorno di margine, perché JQL confronta le date al minuto e nel fuso dell'utente) e
+     * per ognuno aggiunge, sostituisce o rimuove la voce secondo tipo, stato e risoluzione attuali.
+     * I ticket cancellati o spostati in un altro progetto restano nell'archivio: per ripulirlo basta
+     * eliminarne il file. L'archivio viene salvato solo se la paginazione arriva in fondo.
+     */
+    public List<JiraTicket> syncFixedBugTickets(String projectKey, TicketStore store) throws IOException {
+        Instant syncStart = Instant.now();
+        boolean complete;
+        if (store.getLastSync() == null) {
+            LOGGER.info("Recupero completo dei ticket di bug fixati da JIRA...");
+            List<JiraTicket> tickets = new ArrayList<>();
+            complete = search(String.format(FIXED_BUGS_JQL, projectKey), TICKET_FIELDS, issueNode -> tickets.add(toTicket(issueNode)));
+            store.clear();
+            tickets.forEach(store::put);
+        } else {
+            String since = SYNC_DATE_FORMAT.format(store.getLastSync().minus(SYNC_OVERLAP).atOffset(ZoneOffset.UTC));
+            LOGGER.log(Level.INFO, "Recupero da JIRA dei ticket aggiornati dal {0}...", since);
+            int[] counts = new int[2];
+            complete = search(String.format(UPDATED_JQL, projectKey, since), TICKET_FIELDS + ",issuetype,status,resolution", issueNode -> {
+                if (isFixedBug(issueNode.path("fields"))) {
+                    store.put(toTicket(issueNode));
+                    counts[0]++;
+                } else {
+                    store.remove(issueNode.path("key").asText());
+                    counts[1]++;
+                }
+            });
+            LOGGER.log(Level.INFO, "Ticket aggiornati: {0} bug fixati, {1} non più fixati o non bug.",
+                    new Object[]{counts[0], counts[1]});
+        }
+        if (!complete) {
+            throw new IOException("Sincronizzazione dei ticket interrotta: archivio non aggiornato (" + store.getFile() + ")");
+        }
+        store.save(syncStart);
+        LOGGER.log(Level.INFO, "Archivio dei ticket aggiornato: {0} ticket di bug fixati.", store.getTickets().size());
+        return store.getTickets();
+    }
+
+    private static boolean isFixedBug(JsonNode fields) {
+        return fields.path("issuetype").path("name").asText().equalsIgnoreCase("Bug")
+                && FIXED_STATUSES.contains(fields.path("status").path("name").asText().toLowerCase(Locale.ROOT))
+                && fields.path("resolution").path("name").asText().equalsIgnoreCase("Fixed");
+    }
+
+    /**
+     * Esegue la ricerca pagina per pagina passando ogni issue al consumer.
+     *
+     * @return false se JIRA ha risposto con un errore prima dell'ultima pagina
+     */
+    private boolean search(String jqlQuery, String fields, Consumer<JsonNode> issueConsumer) throws IOException {
         String encodedJql = URLEncoder.encode(jqlQuery, StandardCharsets.UTF_8.toString());
         int startAt = 0;
         final int maxResults = 100;
-        boolean hasMoreResults = true;
-        System.out.println("Recupero ticket di bug fixati da JIRA...");
-        while (hasMoreResults) {
-            String url = String.format("%s?jql=%s&fields=key,resolutiondate,created,versions&startAt=%d&maxResults=%d", JIRA_API_URL, encodedJql, startAt, maxResults);
+        while (true) {
+            String url = String.format("%s?jql=%s&fields=%s&startAt=%d&maxResults=%d", JIRA_API_URL, encodedJql, fields, startAt, maxResults);
             HttpGet request = new HttpGet(url);
             try (CloseableHttpResponse response = httpClient.execute(request)) {
                 String jsonResponse = EntityUtils.toString(response.getEntity());
@@ -47,43 +117,43 @@ public class JiraService {
 
                 if (response.getStatusLine().getStatusCode() != 200) {
                     System.err.println("Errore da JIRA: " + jsonResponse);
-                    break;
+                    return false;
                 }
                 JsonNode issuesNode = rootNode.path("issues");
                 if (!issuesNode.isArray() || issuesNode.size() == 0) {
-                    hasMoreResults = false;
-                    continue;
+                    return true;
                 }
                 for (JsonNode issueNode : issuesNode) {
-                    String key = issueNode.path("key").asText();
-                    JsonNode fields = issueNode.path("fields");
-
-                    // --- CHIAMATE AL NUOVO METODO DI PARSING ---
-                    ZonedDateTime creationDate = parseJiraDate(fields.path("created").asText(null));
-                    ZonedDateTime resolutionDate = parseJiraDate(fields.path("resolutiondate").asText(null));
-                    // ----------------------------------------
-                    JiraTicket ticket = new JiraTicket(key, creationDate, resolutionDate);
-
-                    List<String> affectedVersions = new ArrayList<>();
-                    JsonNode avNode = fields.path("versions");
-                    if (avNode.isArray()) {
-                        for (JsonNode versionNode : avNode) {
-                            affectedVersions.add(versionNode.path("name").asText());
-                        }
-                    }
-                    ticket.setAffectedVersionsStrings(affectedVersions);
-                    tickets.add(ticket);
+                    issueConsumer.accept(issueNode);
                 }
                 int total = rootNode.path("total").asInt();
                 if (startAt + issuesNode.size() >= total) {
-                    hasMoreResults = false;
-                } else {
-                    startAt += issuesNode.size();
+                    return true;
                 }
+                startAt += issuesNode.size();
             }
         }
-        System.out.println("Trovati " + tickets.size() + " ticket di bug fixati su JIRA.");
-        return tickets;
+    }
+
+    private JiraTicket toTicket(JsonNode issueNode) {
+        String key = issueNode.path("key").asText();
+        JsonNode fields = issueNode.path("fields");
+
+        // --- CHIAMATE AL NUOVO METODO DI PARSING ---
+        ZonedDateTime creationDate = parseJiraDate(fields.path("created").asText(null));
+        ZonedDateTime resolutionDate = parseJiraDate(fields.path("resolutiondate").asText(null));
+        // ----------------------------------------
+        JiraTicket ticket = new JiraTicket(key, creationDate, resolutionDate);
+
+        List<String> affectedVersions = new ArrayList<>();
+        JsonNode avNode = fields.path("versions");
+        if (avNode.isArray()) {
+            for (JsonNode versionNode : avNode) {
+                affectedVersions.add(versionNode.path("name").asText());
+            }
+        }
+        ticket.setAffectedVersionsStrings(affectedVersions);
+        return ticket;
     }
 
     // --- METODO DI PARSING CORRETTO ---
@@ -0,0 +1,425 @@
+package org.example.services;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.example.model.FileHistory;
+import org.example.model.HistoryStore;
+import org.example.model.IdMap;
+import org.example.model.InMemoryHistoryStore;
+import org.example.model.MethodHistory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Archivio delle storie che, quando l'heap si riempie, riversa i cambiamenti accumulati su file
+ * mappati in memoria, così l'analisi di storie molto lunghe non è limitata dalla dimensione
+ * dell'heap.
+ * <p>
+ * I cambiamenti arrivano in un {@link InMemoryHistoryStore}. Ogni {@value #CHECK_INTERVAL}
+ * scritture si misura l'heap occupato: oltre la soglia indicata il contenuto in heap viene
+ * accodato ai segmenti su disco e svuotato. I segmenti sono file in sola aggiunta di record a
+ * dimensione fissa (tipo, id, commit, churn, record precedente dello stesso id): i record di un
+ * metodo o di un file formano una catena all'indietro, la cui testa è in un indice per id anch'esso
+ * mappato su file, fuori dall'heap. In heap restano solo la tabella dei commit (gli stessi oggetti
+ * che la walk tiene comunque) e i percorsi dei file.
+ * <p>
+ * In lettura la storia di un id si ricostruisce dalla catena su disco, che contiene i cambiamenti
+ * più vecchi, seguita da quelli ancora in heap; l'ultima storia letta per metodi e per file resta
+ * in cache, perché le righe di uno stesso file chiedono più volte la stessa storia di file.
+ * I file vivono in una sottodirectory temporanea, eliminata da {@link #close()}. Dove i file ancora
+ * mappati non si possono cancellare (Windows) la directory viene marcata e rimossa al successivo
+ * avvio di un archivio nella stessa directory padre.
+ */
+public class MappedHistoryStore implements HistoryStore {
+    private static final Logger LOGGER = Logger.getLogger(MappedHistoryStore.class.getName());
+
+    public static final double DEFAULT_HEAP_RATIO = 0.75;
+
+    private static final int CHECK_INTERVAL = 1 << 14;
+    private static final int MIN_SPILL_RECORDS = 1 << 16;
+    private static final int RECORD_BYTES = 24;
+    private static final int RECORDS_PER_SEGMENT = 1 << 21; // 48 MiB per segmento
+    private static final int TYPE_METHOD_CHANGE = 0;
+    private static final int TYPE_METHOD_FIX = 1;
+    private static final int TYPE_FILE_CHANGE = 2;
+    private static final String STALE_MARKER = "stale";
+
+    private final Path dir;
+    private final double heapRatio;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final MappedIndex methodIndex;
+    private final MappedIndex fileIndex;
+    private final List<RevCommit> commits = new ArrayList<>();
+    private final Map<RevCommit, Integer> commitIds = new HashMap<>();
+    private final IdMap<String> filePaths = new IdMap<>();
+
+    private InMemoryHistoryStore pending = new InMemoryHistoryStore();
+    private long pendingRecords = 0;
+    private int writesSinceCheck = 0;
+    private long recordCount = 0;
+    private int spills = 0;
+    private int maxMethodId = -1;
+    private int maxPathId = -1;
+
+    private int cachedMethodId = -1;
+    private MethodHistory cachedMethod;
+    private int cachedPathId = -1;
+    private FileHistory cachedFile;
+
+    /**
+     * @param parentDir directory in cui creare i file dell'archivio
+     * @param heapRatio quota dell'heap massimo oltre la quale riversare su disco (0 = a ogni controllo)
+     */
+    public MappedHistoryStore(Path parentDir, double heapRatio) throws IOException {
+        Files.createDirectories(parentDir);
+        removeStaleDirectories(parentDir);
+        this.dir = Files.createTempDirectory(parentDir, "history-");
+        this.heapRatio = heapRatio;
+        this.methodIndex = new MappedIndex(dir.resolve("methods.idx"));
+        this.fileIndex = new MappedIndex(dir.resolve("files.idx"));
+    }
+
+    @Override
+    public void addMethodChange(int methodId, RevCommit commit, int addedStmts, int deletedStmts) {
+        pending.addMethodChange(methodId, commit, addedStmts, deletedStmts);
+        maxMethodId = Math.max(maxMethodId, methodId);
+        recordWritten();
+    }
+
+    @Override
+    public void addMethodFixCount(int methodId, int count) {
+        pending.addMethodFixCount(methodId, count);
+        maxMethodId = Math.max(maxMethodId, methodId);
+    }
+
+    @Override
+    public void addMethodFix(int methodId, RevCommit commit) {
+        pending.addMethodFix(methodId, commit);
+        maxMethodId = Math.max(maxMethodId, methodId);
+        recordWritten();
+    }
+
+    @Override
+    public void addFileChange(int pathId, String filePath, RevCommit commit, int addedLines, int deletedLines) {
+        pending.addFileChange(pathId, filePath, commit, addedLines, deletedLines);
+        filePaths.computeIfAbsent(pathId, id -> filePath);
+        maxPathId = Math.max(maxPathId, pathId);
+        recordWritten();
+    }
+
+    private void recordWritten() {
+        cachedMethodId = -1;
+        cachedPathId = -1;
+        pendingRecords++;
+        if (++writesSinceCheck < CHECK_INTERVAL) return;
+        writesSinceCheck = 0;
+        if (pendingRecords < MIN_SPILL_RECORDS) return;
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        if (used > heapRatio * runtime.maxMemory()) {
+            spill();
+        }
+    }
+
+    /**
+     * Accoda ai segmenti tutto il contenuto in heap e lo svuota.
+     */
+    private void spill() {
+        long start = System.currentTimeMillis();
+        long before = recordCount;
+        pending.forEachMethodHistory((methodId, history) -> {
+            for (MethodHistory.Change change : history.getChanges()) {
+                append(methodIndex, TYPE_METHOD_CHANGE, methodId, commitId(change.commit), change.churn);
+            }
+            for (RevCommit commit : history.getBugFixCommits()) {
+                append(methodIndex, TYPE_METHOD_FIX, methodId, commitId(commit), 0);
+            }
+            methodIndex.addCount(methodId, history.getNFix());
+        });
+        pending.forEachFileHistory((pathId, history) -> {
+            for (MethodHistory.Change change : history.getChanges()) {
+                append(fileIndex, TYPE_FILE_CHANGE, pathId, commitId(change.commit), change.churn);
+            }
+        });
+        pending = new InMemoryHistoryStore();
+        pendingRecords = 0;
+        spills++;
+        LOGGER.log(Level.INFO, "Storia riversata su disco: {0} record in {1} ms ({2} in totale, {3} segmenti).",
+                new Object[]{recordCount - before, System.currentTimeMillis() - start, recordCount, segments.size()});
+    }
+
+    private int commitId(RevCommit commit) {
+        return commitIds.computeIfAbsent(commit, c -> {
+            commits.add(c);
+            return commits.size() - 1;
+        });
+    }
+
+    private void append(MappedIndex index, int type, int id, int commitId, int value) {
+        int segment = (int) (recordCount / RECORDS_PER_SEGMENT);
+        if (segment == segments.size()) {
+            segments.add(map(dir.resolve(String.format("segment-%05d.bin", segment)),
+                    (long) RECORDS_PER_SEGMENT * RECORD_BYTES));
+        }
+        int offset = (int) (recordCount % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+        MappedByteBuffer buffer = segments.get(segment);
+        buffer.putLong(offset, index.head(id));
+        buffer.putInt(offset + 8, type);
+        buffer.putInt(offset + 12, id);
+        buffer.putInt(offset + 16, commitId);
+        buffer.putInt(offset + 20, value);
+        recordCount++;
+        index.setHead(id, recordCount); // testa = numero del record + 1, 0 = nessun record
+    }
+
+    /**
+     * Numeri dei record della catena di un id, dal più vecchio al più recente.
+     */
+    private long[] chain(long head) {
+        long[] records = new long[16];
+        int size = 0;
+        for (long next = head; next != 0; ) {
+            if (size == records.length) records = Arrays.copyOf(records, size * 2);
+            long record = next - 1;
+            records[size++] = record;
+            next = segments.get((int) (record / RECORDS_PER_SEGMENT)).getLong((int) (record % RECORDS_PER_SEGMENT) * RECORD_BYTES);
+        }
+        long[] ordered = new long[size];
+        for (int i = 0; i < size; i++) {
+            ordered[i] = records[size - 1 - i];
+        }
+        return ordered;
+    }
+
+    @Override
+    public MethodHistory getMethodHistory(int methodId) {
+        if (methodId == cachedMethodId) return cachedMethod;
+        long head = methodIndex.head(methodId);
+        MethodHistory recent = pending.getMethodHistory(methodId);
+        MethodHistory history = null;
+        if (head != 0 || methodIndex.count(methodId) != 0) {
+            history = new MethodHistory(methodId);
+            history.addFixCount(methodIndex.count(methodId));
+            for (long record : chain(head)) {
+                MappedByteBuffer buffer = segments.get((int) (record / RECORDS_PER_SEGMENT));
+                int offset = (int) (record % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+                RevCommit commit = commits.get(buffer.getInt(offset + 16));
+                if (buffer.getInt(offset + 8) == TYPE_METHOD_FIX) {
+                    history.getBugFixCommits().add(commit);
+                } else {
+                    history.getChanges().add(new MethodHistory.Change(commit, buffer.getInt(offset + 20)));
+                }
+            }
+        }
+        if (recent != null) {
+            if (history == null) history = new MethodHistory(methodId);
+            history.mergeWith(recent);
+        }
+        cachedMethodId = methodId;
+        cachedMethod = history;
+        return history;
+    }
+
+    @Override
+    public FileHistory getFileHistory(int pathId) {
+        if (pathId == cachedPathId) return cachedFile;
+        long head = fileIndex.head(pathId);
+        FileHistory recent = pending.getFileHistory(pathId);
+        FileHistory history = null;
+        if (head != 0) {
+            history = new FileHistory(filePaths.get(pathId));
+            for (long record : chain(head)) {
+                MappedByteBuffer buffer = segments.get((int) (record / RECORDS_PER_SEGMENT));
+                int offset = (int) (record % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+                history.getChanges().add(new MethodHistory.Change(commits.get(buffer.getInt(offset + 16)),
+                        buffer.getInt(offset + 20)));
+            }
+        }
+        if (recent != null) {
+            if (history == null) history = new FileHistory(recent.getFilePath());
+            history.mergeWith(recent);
+        }
+        cachedPathId = pathId;
+        cachedFile = history;
+        return history;
+    }
+
+    @Override
+    public void forEachMethodHistory(IdMap.IdConsumer<MethodHistory> consumer) {
+        for (int methodId = 0; methodId <= maxMethodId; methodId++) {
+            MethodHistory history = getMethodHistory(methodId);
+            if (history != null) consumer.accept(methodId, history);
+        }
+    }
+
+    @Override
+    public void forEachFileHistory(IdMap.IdConsumer<FileHistory> consumer) {
+        for (int pathId = 0; pathId <= maxPathId; pathId++) {
+            FileHistory history = getFileHistory(pathId);
+            if (history != null) consumer.accept(pathId, history);
+        }
+    }
+
+    @Override
+    public int methodCount() {
+        int count = 0;
+        for (int methodId = 0; methodId <= maxMethodId; methodId++) {
+            if (methodIndex.head(methodId) != 0 || methodIndex.count(methodId) != 0
+                    || pending.getMethodHistory(methodId) != null) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public int fileCount() {
+        int count = 0;
+        for (int pathId = 0; pathId <= maxPathId; pathId++) {
+            if (fileIndex.head(pathId) != 0 || pending.getFileHistory(pathId) != null) count++;
+        }
+        return count;
+    }
+
+    public int getSpillCount() {
+        return spills;
+    }
+
+    /**
+     * Elimina i file dell'archivio. Le mappature restano valide finché i buffer non vengono
+     * raccolti, ma nessuno li usa più dopo la chiusura; i file che il sistema non lascia
+     * cancellare finché sono mappati restano nella directory, marcata per il prossimo avvio.
+     */
+    @Override
+    public void close() {
+        segments.clear();
+        methodIndex.close();
+        fileIndex.close();
+        if (spills > 0) {
+            LOGGER.log(Level.INFO, "Archivio della storia chiuso: {0} riversamenti, {1} record su disco.",
+                    new Object[]{spills, recordCount});
+        }
+        List<Path> leftovers = deleteDirectory(dir);
+        if (!leftovers.isEmpty()) {
+            LOGGER.log(Level.WARNING, "File della storia non eliminati, verranno rimossi al prossimo avvio: {0}", leftovers);
+        }
+    }
+
+    /**
+     * Rimuove le directory marcate da chiusure precedenti che non hanno potuto eliminare i propri file.
+     */
+    private static void removeStaleDirectories(Path parentDir) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(parentDir, "history-*")) {
+            for (Path stale : stream) {
+                if (!Files.exists(stale.resolve(STALE_MARKER))) continue;
+                if (deleteDirectory(stale).isEmpty()) {
+                    LOGGER.log(Level.INFO, "Rimossa la directory della storia di un''esecuzione precedente: {0}", stale);
+                } else {
+                    LOGGER.log(Level.WARNING, "Directory della storia di un''esecuzione precedente non ancora eliminabile: {0}", stale);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossibile cercare directory della storia da rimuovere in {0}", parentDir);
+        }
+    }
+
+    /**
+     * Elimina la directory e il suo contenuto. Se qualcosa resta, la directory viene marcata
+     * perché il prossimo avvio riprovi.
+     *
+     * @return i percorsi non eliminati (vuoto se la directory è stata rimossa)
+     */
+    private static List<Path> deleteDirectory(Path directory) {
+        List<Path> leftovers = new ArrayList<>();
+        try (var walk = Files.walk(directory)) {
+            walk.sorted(Collections.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    leftovers.add(path);
+                }
+            });
+        } catch (IOException e) {
+            leftovers.add(directory);
+        }
+        if (!leftovers.isEmpty()) {
+            try {
+                Files.writeString(directory.resolve(STALE_MARKER), "");
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Impossibile marcare la directory della storia da rimuovere: {0}", directory);
+            }
+        }
+        return leftovers;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossibile mappare " + file, e);
+        }
+    }
+
+    /**
+     * Indice per id mappato su file: per ogni id la testa della catena (8 byte) e un contatore
+     * (4 byte, il numero di fix per i metodi), più 4 byte di riempimento. Cresce raddoppiando.
+     */
+    private static final class MappedIndex {
+        private static final int ENTRY_BYTES = 16;
+        private static final int INITIAL_ENTRIES = 1 << 16;
+
+        private final Path file;
+        private MappedByteBuffer buffer;
+        private int capacity = 0;
+
+        MappedIndex(Path file) {
+            this.file = file;
+            grow(INITIAL_ENTRIES);
+        }
+
+        private void grow(int minEntries) {
+            int entries = Math.max(capacity, INITIAL_ENTRIES);
+            while (entries < minEntries) entries *= 2;
+            if (entries == capacity) return;
+            buffer = map(file, (long) entries * ENTRY_BYTES);
+            capacity = entries;
+        }
+
+        long head(int id) {
+            return (id < capacity) ? buffer.getLong(id * ENTRY_BYTES) : 0;
+        }
+
+        void setHead(int id, long head) {
+            if (id >= capacity) grow(id + 1);
+            buffer.putLong(id * ENTRY_BYTES, head);
+        }
+
+        int count(int id) {
+            return (id < capacity) ? buffer.getInt(id * ENTRY_BYTES + 8) : 0;
+        }
+
+        void addCount(int id, int delta) {
+            if (delta == 0) return;
+            if (id >= capacity) grow(id + 1);
+            buffer.putInt(id * ENTRY_BYTES + 8, buffer.getInt(id * ENTRY_BYTES + 8) + delta);
+        }
+
+        void close() {
+            buffer = null;
+            capacity = 0;
+        }
+    }
+}
@@ -1,85 +1,204 @@
 // in src/main/java/org/example/services/PmdAnalyzer.java
 package org.example.services;
 
-import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import net.sourceforge.pmd.PMDConfiguration;
 import net.sourceforge.pmd.PmdAnalysis;
 import net.sourceforge.pmd.lang.LanguageRegistry;
 import net.sourceforge.pmd.lang.rule.RulePriority;
+import net.sourceforge.pmd.lang.rule.RuleSet;
+import net.sourceforge.pmd.lang.rule.RuleSetLoader;
 import net.sourceforge.pmd.reporting.Report;
 import net.sourceforge.pmd.reporting.RuleViolation;
+import org.example.logic.ReleaseMethodExtractor;
+import org.example.model.IdCounts;
+import org.example.model.MethodIdTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Motore PMD a lunga vita: le regole di {@code bestpractices} e {@code design} vengono lette e
+ * istanziate una sola volta, alla costruzione, e riusate per tutte le analisi successive (PMD ne
+ * ricava internamente le copie per i propri thread). Una singola analisi può coprire le directory
+ * di più release: le violazioni vengono poi ricondotte alla release da cui proviene il file.
+ */
 public class PmdAnalyzer {
     private final PMDConfiguration config;
+    private final List<RuleSet> ruleSets;
     private static final Logger LOGGER = LoggerFactory.getLogger(PmdAnalyzer.class);
 
+    /**
+     * Violazioni di una release ancora da ricondurre ai methodId: la risoluzione avviene dopo
+     * l'estrazione dei metodi della release, che li registra nella tabella dei simboli.
+     */
+    public static class ReleaseSmells {
+        private final List<String> paths = new ArrayList<>();
+        private final List<String> signatures = new ArrayList<>();
+
+        void add(String relativePath, String signature) {
+            paths.add(relativePath);
+            signatures.add(signature);
+        }
+
+        public int size() {
+            return paths.size();
+        }
+
+        public void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(paths.size());
+            for (int i = 0; i < paths.size(); i++) {
+                out.writeUTF(paths.get(i));
+                out.writeUTF(signatures.get(i));
+            }
+        }
+
+        public static ReleaseSmells readFrom(DataInputStream in) throws IOException {
+            ReleaseSmells smells = new ReleaseSmells();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                smells.add(in.readUTF(), in.readUTF());
+            }
+            return smells;
+        }
+
+        /**
+         * Conta le violazioni per metodo. I metodi vengono solo cercati nella tabella dei
+         * simboli, non registrati.
+         */
+        public IdCounts resolve(MethodIdTable idTable) {
+            IdCounts smellsPerMethod = new IdCounts();
+            for (int i = 0; i < paths.size(); i++) {
+                int methodId = idTable.findMethod(paths.get(i), signatures.get(i));
+                if (methodId != MethodIdTable.NOT_FOUND) {
+                    smellsPerMethod.increment(methodId);
+                }
+            }
+            return smellsPerMethod;
+        }
+    }
+
     public PmdAnalyzer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PmdAnalyzer(int numThreads) {
         config = new PMDConfiguration();
         config.addRuleSet("category/java/bestpractices.xml");
         config.addRuleSet("category/java/design.xml");
+        config.setMinimumPriority(RulePriority.LOW);
 
-        int numThreads = Runtime.getRuntime().availableProcessors();
         LOGGER.info("Configurazione PMD per usare {} thread.", numThreads);
         config.setThreads(numThreads);
 
         config.setDefaultLanguageVersion(
                 LanguageRegistry.PMD.getLanguageVersionById("java", "17"));
+
+        long start = System.nanoTime();
+        ruleSets = RuleSetLoader.fromPmdConfig(config).loadFromResources(config.getRuleSetPaths());
+        LOGGER.info("Regole PMD caricate: {} regole in {} ms.",
+                ruleSets.stream().mapToInt(RuleSet::size).sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Conta le violazioni per metodo, indicizzate per methodId. I metodi vengono solo cercati
+     * nella tabella dei simboli (già popolata dall'estrazione della release), non registrati.
+     *
+     * @throws IOException se l'analisi PMD non si completa
+     */
+    public IdCounts countSmellsPerMethod(Path releaseDir, MethodIdTable idTable) throws IOException {
+        IdCounts smellsPerMethod = countSmells(List.of(releaseDir)).get(releaseDir).resolve(idTable);
+        LOGGER.info("Smells mappati a {} metodi unici.", smellsPerMethod.nonZeroCount());
+        return smellsPerMethod;
     }
 
-    public Map<String, Integer> countSmellsPerMethod(Path releaseDir) {
-        LOGGER.info("Avvio analisi PMD sulla directory: {}", releaseDir);
-        Map<String, Integer> smellsPerMethod = new HashMap<>();
+    /**
+     * Analizza in un'unica passata le directory di una o più release (ognuna con il checkout di
+     * una release, disgiunte fra loro) e restituisce le violazioni di ciascuna. Il file va
+     * analizzato mentre la directory esiste ancora, perché le violazioni si attribuiscono ai
+     * metodi rileggendo il sorgente.
+     *
+     * @throws IOException se l'analisi PMD non si completa o un file analizzato non si può
+     *                     rileggere: in quel caso non c'è un risultato parziale da usare
+     */
+    public Map<Path, ReleaseSmells> countSmells(List<Path> releaseDirs) throws IOException {
+        LOGGER.info("Avvio analisi PMD su {} directory: {}", releaseDirs.size(), releaseDirs);
+        Map<Path, ReleaseSmells> smellsByRelease = new LinkedHashMap<>();
+        for (Path releaseDir : releaseDirs) {
+            smellsByRelease.put(releaseDir, new ReleaseSmells());
+        }
 
-        PMDConfiguration releaseConfig = new PMDConfiguration();
-        releaseConfig.setRuleSets(new ArrayList<>(config.getRuleSetPaths()));
-        releaseConfig.setMinimumPriority(RulePriority.LOW);
-        releaseConfig.setDefaultLanguageVersion(
+        PMDConfiguration analysisConfig = new PMDConfiguration();
+        analysisConfig.setMinimumPriority(RulePriority.LOW);
+        analysisConfig.setThreads(config.getThreads());
+        analysisConfig.setDefaultLanguageVersion(
                 LanguageRegistry.PMD.getLanguageVersionById("java", "17"));
-        releaseConfig.setInputPathList(List.of(releaseDir));
+        analysisConfig.setInputPathList(new ArrayList<>(releaseDirs));
 
-        try (PmdAnalysis analysis = PmdAnalysis.create(releaseConfig)) {
+        try (PmdAnalysis analysis = PmdAnalysis.create(analysisConfig)) {
+            analysis.addRuleSets(ruleSets);
             Report report = analysis.performAnalysisAndCollectReport();
             LOGGER.info("Analisi PMD completata. Trovate {} violazioni.", report.getViolations().size());
 
             Map<Path, List<RuleViolation>> violationsByFile = report.getViolations().stream()
                     .collect(Collectors.groupingBy(v -> Paths.get(v.getFileId().getOriginalPath())));
 
-            // Il ciclo principale ora è più pulito e delega il lavoro.
+            // Stesso livello di linguaggio dell'estrazione dei metodi, senza toccare lo stato globale
+            // di StaticJavaParser: le firme devono coincidere con quelle della tabella dei simboli.
+            JavaParser javaParser = new JavaParser(
+                    new ParserConfiguration().setLanguageLevel(ReleaseMethodExtractor.LANGUAGE_LEVEL));
             for (Map.Entry<Path, List<RuleViolation>> entry : violationsByFile.entrySet()) {
-                mapViolationsForFile(entry.getKey(), entry.getValue(), smellsPerMethod, releaseDir);
+                Path releaseDir = releaseDirOf(entry.getKey(), releaseDirs);
+                if (releaseDir == null) continue;
+                mapViolationsForFile(javaParser, entry.getKey(), entry.getValue(), smellsByRelease.get(releaseDir), releaseDir);
             }
 
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            LOGGER.error("Errore critico durante l'analisi PMD", e);
+            throw new IOException("Errore critico durante l'analisi PMD", e);
         }
+        return smellsByRelease;
+    }
 
-        LOGGER.info("Smells mappati a {} metodi unici.", smellsPerMethod.size());
-        return smellsPerMethod;
+    private static Path releaseDirOf(Path filePath, List<Path> releaseDirs) {
+        for (Path releaseDir : releaseDirs) {
+            if (filePath.startsWith(releaseDir)) return releaseDir;
+        }
+        LOGGER.warn("File fuori dalle directory analizzate, violazioni ignorate: {}", filePath);
+        return null;
     }
 
     /**
      * Metodo privato estratto per gestire il parsing di un singolo file e la mappatura
      * delle sue violazioni, risolvendo lo smell del blocco try annidato.
      */
-    private void mapViolationsForFile(Path filePath, List<RuleViolation> violationsInFile,
-                                      Map<String, Integer> smellsPerMethod, Path releaseDir) {
+    private void mapViolationsForFile(JavaParser javaParser, Path filePath, List<RuleViolation> violationsInFile,
+                                      ReleaseSmells releaseSmells, Path releaseDir) throws IOException {
+        String relativePath = releaseDir.relativize(filePath).toString().replace("\\", "/");
         try {
             // Parsa il file UNA SOLA VOLTA
-            CompilationUnit cu = StaticJavaParser.parse(filePath);
+            ParseResult<CompilationUnit> parsed = javaParser.parse(filePath);
+            if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+                LOGGER.warn("Impossibile parsare il file {} per la mappatura dello smell: {}", filePath, parsed.getProblems());
+                return;
+            }
+            CompilationUnit cu = parsed.getResult().get();
             List<MethodDeclaration> methodsInFile = cu.findAll(MethodDeclaration.class);
 
             // Per ogni violazione in questo file, trova il metodo corrispondente
@@ -94,14 +213,13 @@ public class PmdAnalyzer {
                         .findFirst();
 
                 if (foundMethod.isPresent()) {
-                    String signature = foundMethod.get().getSignature().asString();
-                    String relativePath = releaseDir.relativize(filePath).toString().replace("\\", "/");
-                    String methodID = relativePath + "/" + signature;
-                    smellsPerMethod.put(methodID, smellsPerMethod.getOrDefault(methodID, 0) + 1);
+                    releaseSmells.add(relativePath, foundMethod.get().getSignature().asString());
                 }
             }
-        } catch (IOException | StackOverflowError e) {
+        } catch (StackOverflowError e) {
             LOGGER.warn("Impossibile parsare il file {} per la mappatura dello smell", filePath, e);
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.warn("Errore generico di parsing per il file {}", filePath, e);
         }
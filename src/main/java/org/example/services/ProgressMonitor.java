@@ -0,0 +1,242 @@
+package org.example.services;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Contatori di avanzamento di un progetto, aggiornati dalle fasi della pipeline e letti via JMX
+ * (vedi {@link ProgressMonitorMXBean}) da chi deve decidere se interrompere o ripartizionare un job.
+ * <p>
+ * Gli aggiornamenti sono semplici scritture di campi volatile: il monitor resta attivo anche
+ * quando nessuno lo interroga. La throughput istantanea è misurata su finestre di alcuni secondi;
+ * l'ETA riguarda la fase corrente (commit rimanenti nella storia, release rimanenti dopo).
+ */
+public class ProgressMonitor implements ProgressMonitorMXBean, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ProgressMonitor.class.getName());
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public enum Phase { PREPARAZIONE, STORIA, RELEASE, COMPLETATO }
+
+    private final String project;
+    private final long startNanos = System.nanoTime();
+    private ObjectName registeredName;
+
+    private volatile Phase phase = Phase.PREPARAZIONE;
+    private volatile long phaseStartNanos = startNanos;
+    private volatile long commitsProcessed = 0;
+    private volatile long commitsTotal = -1;
+    private volatile int releasesDone = 0;
+    private volatile int releasesTotal = -1;
+    private volatile long rowsWritten = 0;
+    private volatile long releasePhaseNanos = 0; // tempo speso nelle release completate
+    private volatile ComplexityCache complexityCache;
+
+    // Finestra della throughput istantanea, aggiornata solo dal thread che avanza i contatori.
+    private long windowStartNanos = startNanos;
+    private long windowStartCount = 0;
+    private volatile double instantThroughput = 0;
+
+    public ProgressMonitor(String project) {
+        this.project = project;
+    }
+
+    /**
+     * Crea il monitor del progetto e lo registra sul platform MBean server. Se la registrazione
+     * non riesce il monitor funziona comunque, senza essere visibile via JMX.
+     */
+    public static ProgressMonitor register(String project) {
+        ProgressMonitor monitor = new ProgressMonitor(project);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.example:type=Progress,project=" + ObjectName.quote(project));
+            try {
+                server.registerMBean(monitor, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(monitor, name);
+            }
+            monitor.registeredName = name;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Impossibile registrare il monitor di avanzamento JMX per {0}", project);
+            LOGGER.log(Level.FINE, "Dettagli errore JMX", e);
+        }
+        return monitor;
+    }
+
+    public void startHistory(long totalCommits) {
+        commitsTotal = totalCommits;
+        commitsProcessed = 0;
+        enterPhase(Phase.STORIA);
+    }
+
+    public void commitProcessed() {
+        long count = commitsProcessed + 1;
+        commitsProcessed = count;
+        sample(count);
+    }
+
+    public void startReleases(int totalReleases) {
+        releasesTotal = totalReleases;
+        releasesDone = 0;
+        releasePhaseNanos = 0;
+        enterPhase(Phase.RELEASE);
+    }
+
+    public void releaseDone() {
+        releasesDone++;
+        releasePhaseNanos = System.nanoTime() - phaseStartNanos;
+    }
+
+    public void rowWritten() {
+        long count = rowsWritten + 1;
+        rowsWritten = count;
+        sample(count);
+    }
+
+    public void finish() {
+        enterPhase(Phase.COMPLETATO);
+    }
+
+    public void setComplexityCache(ComplexityCache complexityCache) {
+        this.complexityCache = complexityCache;
+    }
+
+    private void enterPhase(Phase next) {
+        long now = System.nanoTime();
+        phaseStartNanos = now;
+        windowStartNanos = now;
+        windowStartCount = phaseCount(next);
+        instantThroughput = 0;
+        phase = next;
+        LOGGER.log(Level.INFO, "[{0}] Fase {1}.", new Object[]{project, next});
+    }
+
+    private void sample(long count) {
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= WINDOW_NANOS) {
+            instantThroughput = (count - windowStartCount) * 1e9 / elapsed;
+            windowStartNanos = now;
+            windowStartCount = count;
+        }
+    }
+
+    private long phaseCount(Phase p) {
+        return switch (p) {
+            case STORIA -> commitsProcessed;
+            case RELEASE -> rowsWritten;
+            default -> 0;
+        };
+    }
+
+    @Override
+    public String getProject() {
+        return project;
+    }
+
+    @Override
+    public String getPhase() {
+        return phase.name();
+    }
+
+    @Override
+    public long getElapsedSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getCommitsProcessed() {
+        return commitsProcessed;
+    }
+
+    @Override
+    public long getCommitsTotal() {
+        return commitsTotal;
+    }
+
+    @Override
+    public int getReleasesDone() {
+        return releasesDone;
+    }
+
+    @Override
+    public int getReleasesTotal() {
+        return releasesTotal;
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String getThroughputUnit() {
+        return switch (phase) {
+            case STORIA -> "commit/s";
+            case RELEASE -> "righe/s";
+            default -> "";
+        };
+    }
+
+    @Override
+    public double getInstantThroughput() {
+        return instantThroughput;
+    }
+
+    @Override
+    public double getAverageThroughput() {
+        double seconds = (System.nanoTime() - phaseStartNanos) / 1e9;
+        return (seconds <= 0) ? 0 : phaseCount(phase) / seconds;
+    }
+
+    @Override
+    public double getComplexityCacheHitRatio() {
+        ComplexityCache cache = complexityCache;
+        if (cache == null) return -1;
+        long lookups = cache.getHits() + cache.getMisses();
+        return (lookups == 0) ? 0 : (double) cache.getHits() / lookups;
+    }
+
+    @Override
+    public long getEtaSeconds() {
+        switch (phase) {
+            case STORIA -> {
+                double rate = getAverageThroughput();
+                if (commitsTotal < 0 || rate <= 0) return -1;
+                return Math.round((commitsTotal - commitsProcessed) / rate);
+            }
+            case RELEASE -> {
+                int done = releasesDone;
+                if (releasesTotal < 0 || done == 0) return -1;
+                double secondsPerRelease = releasePhaseNanos / 1e9 / done;
+                return Math.round((releasesTotal - done) * secondsPerRelease);
+            }
+            case COMPLETATO -> {
+                return 0;
+            }
+            default -> {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Rimuove il monitor dal MBean server.
+     */
+    @Override
+    public void close() {
+        if (registeredName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            LOGGER.log(Level.FINE, "Monitor JMX già rimosso", e);
+        }
+        registeredName = null;
+    }
+}
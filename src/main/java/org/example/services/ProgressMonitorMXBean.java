@@ -0,0 +1,40 @@
+package org.example.services;
+
+/**
+ * Avanzamento di un progetto, esposto via JMX con nome
+ * {@code org.example:type=Progress,project=<NOME>}. I valori numerici non ancora noti valgono -1.
+ */
+public interface ProgressMonitorMXBean {
+
+    String getProject();
+
+    /** Fase corrente: PREPARAZIONE, STORIA, RELEASE o COMPLETATO. */
+    String getPhase();
+
+    long getElapsedSeconds();
+
+    long getCommitsProcessed();
+
+    long getCommitsTotal();
+
+    int getReleasesDone();
+
+    int getReleasesTotal();
+
+    long getRowsWritten();
+
+    /** Unità della throughput nella fase corrente: commit/s nella storia, righe/s nelle release. */
+    String getThroughputUnit();
+
+    /** Throughput sugli ultimi secondi della fase corrente. */
+    double getInstantThroughput();
+
+    /** Throughput media dall'inizio della fase corrente. */
+    double getAverageThroughput();
+
+    /** Quota di blob trovati nella cache di complessità, o -1 senza cache. */
+    double getComplexityCacheHitRatio();
+
+    /** Stima dei secondi mancanti alla fine della fase corrente. */
+    long getEtaSeconds();
+}
@@ -0,0 +1,204 @@
+package org.example.services;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.example.model.Release;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Catalogo delle release del repository: tutti i tag, pelati fino al commit e ordinati per
+ * commit time, costruito in un solo passaggio.
+ * <p>
+ * Ogni tag viene pelato una volta (usando le righe "peeled" di packed-refs quando presenti) e
+ * ogni commit viene letto una volta in un'unica RevWalk; l'ordinamento lavora su chiavi
+ * primitive (commit time, posizione nell'ordine per nome) invece di rileggere i commit a ogni
+ * confronto. A parità di commit time resta l'ordine per nome dei tag, come nell'ordinamento
+ * stabile precedente.
+ * <p>
+ * Il catalogo si può salvare su file: viene riusato finché l'impronta dei tag (nomi e id) non
+ * cambia, evitando di pelare e ordinare di nuovo i tag.
+ */
+public class ReleaseCatalog {
+    private static final Logger LOGGER = Logger.getLogger(ReleaseCatalog.class.getName());
+    private static final String CACHE_HEADER = "# release-catalog v1 ";
+
+    /** Voce del catalogo: nome del tag, commit pelato e suo commit time. */
+    private static class Entry {
+        final String tagName;
+        final ObjectId commitId;
+        final int commitTime;
+
+        Entry(String tagName, ObjectId commitId, int commitTime) {
+            this.tagName = tagName;
+            this.commitId = commitId;
+            this.commitTime = commitTime;
+        }
+    }
+
+    private final List<Entry> entries;
+    private String fingerprint;
+
+    private ReleaseCatalog(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Costruisce il catalogo del repository.
+     *
+     * @param cacheFile file in cui salvare il catalogo, o null per non salvarlo
+     */
+    public static ReleaseCatalog load(GitService gitService, Path cacheFile) throws IOException {
+        List<Ref> tags = new ArrayList<>(gitService.repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS));
+        tags.sort(Comparator.comparing(Ref::getName));
+        String fingerprint = fingerprint(tags);
+
+        if (cacheFile != null) {
+            ReleaseCatalog cached = readCache(cacheFile, fingerprint);
+            if (cached != null) {
+                LOGGER.log(Level.INFO, "Catalogo delle release letto da {0} ({1} tag).", new Object[]{cacheFile, cached.entries.size()});
+                cached.fingerprint = fingerprint;
+                return cached;
+            }
+        }
+
+        ReleaseCatalog catalog = build(gitService, tags);
+        catalog.fingerprint = fingerprint;
+        if (cacheFile != null) {
+            catalog.writeCache(cacheFile, fingerprint);
+        }
+        return catalog;
+    }
+
+    private static ReleaseCatalog build(GitService gitService, List<Ref> tags) throws IOException {
+        RefDatabase refDatabase = gitService.repository.getRefDatabase();
+        List<Entry> unsorted = new ArrayList<>(tags.size());
+        try (RevWalk walk = new RevWalk(gitService.repository)) {
+            for (Ref tag : tags) {
+                Ref peeled = refDatabase.peel(tag);
+                ObjectId target = (peeled.getPeeledObjectId() != null) ? peeled.getPeeledObjectId() : peeled.getObjectId();
+                try {
+                    RevCommit commit = walk.parseCommit(target);
+                    unsorted.add(new Entry(tag.getName().substring(Constants.R_TAGS.length()), commit.copy(), commit.getCommitTime()));
+                } catch (IOException e) {
+                    // Tag che non puntano a un commit (alberi, blob) o a oggetti mancanti.
+                    LOGGER.log(Level.FINE, "Tag ignorato, non punta a un commit: {0}", tag.getName());
+                }
+            }
+        }
+
+        // Chiave primitiva: commit time nei 32 bit alti, posizione (ordine per nome) in quelli bassi.
+        long[] keys = new long[unsorted.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = ((long) unsorted.get(i).commitTime << 32) | i;
+        }
+        Arrays.sort(keys);
+        List<Entry> sorted = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            sorted.add(unsorted.get((int) key));
+        }
+        return new ReleaseCatalog(sorted);
+    }
+
+    /**
+     * Release in ordine di commit time, con indice progressivo. Ogni commit viene letto una sola
+     * volta, nella RevWalk passata.
+     */
+    public List<Release> toReleases(RevWalk walk) throws IOException {
+        List<Release> releases = new ArrayList<>(entries.size());
+        int index = 0;
+        for (Entry entry : entries) {
+            releases.add(new Release(entry.tagName, walk.parseCommit(entry.commitId), index++));
+        }
+        return releases;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Impronta dei tag da cui è stato costruito il catalogo.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Impronta dello stato dei tag: cambia se un tag viene aggiunto, rimosso o spostato.
+     */
+    private static String fingerprint(List<Ref> sortedTags) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Ref tag : sortedTags) {
+                digest.update(tag.getName().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ' ');
+                if (tag.getObjectId() != null) {
+                    digest.update(tag.getObjectId().name().getBytes(StandardCharsets.US_ASCII));
+                }
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    private static ReleaseCatalog readCache(Path cacheFile, String fingerprint) {
+        if (!Files.isRegularFile(cacheFile)) return null;
+        try {
+            List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(CACHE_HEADER + fingerprint)) {
+                LOGGER.log(Level.INFO, "Catalogo delle release in {0} non aggiornato, lo ricostruisco.", cacheFile);
+                return null;
+            }
+            List<Entry> entries = new ArrayList<>(lines.size() - 1);
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split("\t", 3);
+                entries.add(new Entry(fields[0], ObjectId.fromString(fields[1]), Integer.parseInt(fields[2])));
+            }
+            return new ReleaseCatalog(entries);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Catalogo delle release illeggibile, lo ricostruisco: {0}", cacheFile);
+            LOGGER.log(Level.FINE, "Dettagli errore di lettura del catalogo", e);
+            return null;
+        }
+    }
+
+    private void writeCache(Path cacheFile, String fingerprint) {
+        try {
+            if (cacheFile.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8)) {
+                writer.write(CACHE_HEADER + fingerprint);
+                writer.newLine();
+                // I nomi dei tag non possono contenere caratteri di controllo: il tab è un separatore sicuro.
+                for (Entry entry : entries) {
+                    writer.write(entry.tagName + "\t" + entry.commitId.name() + "\t" + entry.commitTime);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Impossibile salvare il catalogo delle release in {0}", cacheFile);
+            LOGGER.log(Level.FINE, "Dettagli errore di scrittura del catalogo", e);
+        }
+    }
+}
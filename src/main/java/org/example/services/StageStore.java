@@ -0,0 +1,152 @@
+package org.example.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Directory degli artefatti intermedi della generazione, uno per fase ({@code <fase>.stage}).
+ * <p>
+ * Ogni artefatto comincia con magic, versione del formato e impronta degli input della fase; chi
+ * lo legge ricalcola l'impronta e lo riusa solo se coincide, altrimenti la fase viene rieseguita e
+ * l'artefatto riscritto. Le impronte delle fasi a valle includono quelle delle fasi da cui
+ * dipendono, così un input cambiato invalida esattamente le fasi che lo usano. Un artefatto
+ * compare solo quando la fase è completa (scrittura su file temporaneo e spostamento atomico):
+ * dopo un'interruzione restano solo fasi intere.
+ */
+public class StageStore {
+    private static final Logger LOGGER = Logger.getLogger(StageStore.class.getName());
+    private static final int MAGIC = 0x53544745; // "STGE"
+
+    /** Versione del formato degli artefatti e del loro contenuto: cambiarla invalida tutte le fasi. */
+    public static final int VERSION = 1;
+
+    private final Path dir;
+
+    /** Scrive il contenuto di un artefatto. */
+    public interface StageWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Artefatto in scrittura: diventa visibile solo con {@link #commit()}; chiuderlo senza
+     * commit lo scarta.
+     */
+    public class PendingArtifact implements AutoCloseable {
+        private final String stage;
+        private final Path tmp;
+        private final DataOutputStream out;
+        private boolean done = false;
+
+        private PendingArtifact(String stage, String fingerprint) throws IOException {
+            this.stage = stage;
+            this.tmp = dir.resolve(stage + ".stage.tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+        }
+
+        public DataOutputStream out() {
+            return out;
+        }
+
+        public void commit() throws IOException {
+            done = true;
+            out.close();
+            Files.move(tmp, file(stage), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.FINE, "Fase {0} salvata.", stage);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (done) return;
+            done = true;
+            out.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public StageStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public Path file(String stage) {
+        return dir.resolve(stage + ".stage");
+    }
+
+    /**
+     * Apre l'artefatto della fase, posizionato dopo l'intestazione.
+     *
+     * @return lo stream, o null se l'artefatto manca, è illeggibile o ha un'altra impronta
+     */
+    public DataInputStream open(String stage, String fingerprint) {
+        Path file = file(stage);
+        if (!Files.isRegularFile(file)) return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(fingerprint)) {
+                return in;
+            }
+            LOGGER.log(Level.INFO, "Fase {0}: input cambiati, viene rieseguita.", stage);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Artefatto illeggibile, la fase viene rieseguita: {0}", file);
+        }
+        closeQuietly(in);
+        return null;
+    }
+
+    public PendingArtifact create(String stage, String fingerprint) throws IOException {
+        return new PendingArtifact(stage, fingerprint);
+    }
+
+    public void write(String stage, String fingerprint, StageWriter writer) throws IOException {
+        try (PendingArtifact artifact = create(stage, fingerprint)) {
+            writer.write(artifact.out());
+            artifact.commit();
+        }
+    }
+
+    public static void closeQuietly(DataInputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINEST, "Errore nella chiusura di un artefatto", e);
+        }
+    }
+
+    /**
+     * Impronta SHA-256 delle parti indicate, nell'ordine dato.
+     */
+    public static String fingerprint(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(VERSION).getBytes(StandardCharsets.UTF_8));
+            for (Object part : parts) {
+                digest.update((byte) '\n');
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.services;
+
+import org.example.model.JiraTicket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Archivio locale dei ticket di bug fixati di un progetto ({@code <dir>/<PROGETTO>.tickets}), con
+ * l'istante dell'ultima sincronizzazione con JIRA. Permette di scaricare solo i ticket aggiornati
+ * dopo quell'istante e di generare il dataset senza rete.
+ * <p>
+ * Formato (DataOutputStream): magic, versione, chiave del progetto, istante dell'ultima
+ * sincronizzazione in millisecondi, numero di ticket, poi per ticket chiave, date di creazione e di
+ * risoluzione (millisecondi e offset in secondi; {@link Long#MIN_VALUE} se assente) e Affected
+ * Version. Il file viene riscritto per intero a ogni salvataggio, prima su un file temporaneo. Un
+ * archivio illeggibile o di un altro progetto viene ignorato, come se mancasse.
+ */
+public class TicketStore {
+    private static final Logger LOGGER = Logger.getLogger(TicketStore.class.getName());
+    private static final int MAGIC = 0x544B5453; // "TKTS"
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Path file;
+    private final String projectKey;
+    private final Map<String, JiraTicket> tickets = new LinkedHashMap<>();
+    private Instant lastSync; // null = mai sincronizzato
+
+    private TicketStore(Path file, String projectKey) {
+        this.file = file;
+        this.projectKey = projectKey;
+    }
+
+    /**
+     * Carica l'archivio del progetto dalla directory indicata; se manca restituisce un archivio vuoto.
+     */
+    public static TicketStore load(Path dir, String projectKey) throws IOException {
+        TicketStore store = new TicketStore(dir.resolve(projectKey + ".tickets"), projectKey);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(store.file)))) {
+            store.read(in);
+            LOGGER.log(Level.INFO, "Archivio dei ticket {0}: {1} ticket, ultima sincronizzazione {2}.",
+                    new Object[]{store.file, store.tickets.size(), store.lastSync});
+        } catch (NoSuchFileException e) {
+            LOGGER.log(Level.INFO, "Archivio dei ticket assente, verrà creato: {0}", store.file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Archivio dei ticket illeggibile, viene ricostruito: {0}", store.file);
+            LOGGER.log(Level.FINE, "Dettagli errore di lettura dell'archivio", e);
+            store.tickets.clear();
+            store.lastSync = null;
+        }
+        return store;
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Formato dell'archivio non riconosciuto");
+        }
+        if (!in.readUTF().equals(projectKey)) {
+            throw new IOException("Archivio di un altro progetto");
+        }
+        Instant sync = Instant.ofEpochMilli(in.readLong());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            JiraTicket ticket = new JiraTicket(in.readUTF(), readDate(in), readDate(in));
+            int versions = in.readInt();
+            List<String> affectedVersions = new ArrayList<>(versions);
+            for (int v = 0; v < versions; v++) {
+                affectedVersions.add(in.readUTF());
+            }
+            ticket.setAffectedVersionsStrings(affectedVersions);
+            tickets.put(ticket.getKey(), ticket);
+        }
+        lastSync = sync;
+    }
+
+    private static ZonedDateTime readDate(DataInputStream in) throws IOException {
+        long millis = in.readLong();
+        int offsetSeconds = in.readInt();
+        if (millis == NO_DATE) return null;
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    private static void writeDate(DataOutputStream out, ZonedDateTime date) throws IOException {
+        out.writeLong((date == null) ? NO_DATE : date.toInstant().toEpochMilli());
+        out.writeInt((date == null) ? 0 : date.getOffset().getTotalSeconds());
+    }
+
+    /**
+     * Istante di inizio dell'ultima sincronizzazione completata, o null se l'archivio è nuovo.
+     */
+    public Instant getLastSync() {
+        return lastSync;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Ticket dell'archivio, nell'ordine in cui sono stati aggiunti.
+     */
+    public List<JiraTicket> getTickets() {
+        return new ArrayList<>(tickets.values());
+    }
+
+    /**
+     * Aggiunge il ticket o sostituisce quello con la stessa chiave, mantenendone la posizione.
+     */
+    public void put(JiraTicket ticket) {
+        tickets.put(ticket.getKey(), ticket);
+    }
+
+    public void remove(String key) {
+        tickets.remove(key);
+    }
+
+    public void clear() {
+        tickets.clear();
+    }
+
+    /**
+     * Registra la sincronizzazione iniziata all'istante indicato e riscrive l'archivio.
+     */
+    public void save(Instant syncStart) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(projectKey);
+            out.writeLong(syncStart.toEpochMilli());
+            out.writeInt(tickets.size());
+            for (JiraTicket ticket : tickets.values()) {
+                out.writeUTF(ticket.getKey());
+                writeDate(out, ticket.getCreationDate());
+                writeDate(out, ticket.getResolutionDate());
+                out.writeInt(ticket.getAffectedVersionsStrings().size());
+                for (String version : ticket.getAffectedVersionsStrings()) {
+                    out.writeUTF(version);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSync = syncStart;
+    }
+}
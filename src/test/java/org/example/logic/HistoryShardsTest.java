@@ -0,0 +1,146 @@
+package org.example.logic;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.example.model.HistoryStore;
+import org.example.model.InMemoryHistoryStore;
+import org.example.model.MethodIdTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Partizioni dell'analisi storica: un risultato scritto con {@link HistoryShards#writeResult} e
+ * riletto con {@link HistoryShards#readResult} resta uguale, e l'unione ordinata delle partizioni
+ * (passate dal formato su file, con tabelle dei simboli indipendenti) coincide con l'analisi in un
+ * solo passaggio, comunque si raggruppino le unioni.
+ */
+class HistoryShardsTest {
+    private static final String[] PATHS = {"src/A.java", "src/B.java", "src/Città.java"};
+    private static final String[] SIGNATURES = {"a()", "b(int)", "c(List<String>)", "d()"};
+
+    @TempDir
+    Path dir;
+
+    private Git git;
+    private RevWalk revWalk;
+    private final List<RevCommit> commits = new ArrayList<>();
+
+    @BeforeEach
+    void createCommits() throws GitAPIException {
+        git = Git.init().setDirectory(dir.toFile()).setInitialBranch("master").call();
+        for (int i = 0; i < 9; i++) {
+            commits.add(git.commit().setAllowEmpty(true).setMessage("commit " + i).call());
+        }
+        revWalk = new RevWalk(git.getRepository());
+    }
+
+    @AfterEach
+    void closeRepository() {
+        revWalk.close();
+        git.close();
+    }
+
+    @Test
+    void resultSurvivesWriteAndRead() throws IOException {
+        HistoryAnalyzer.AnalysisResult original = analyse(0, commits.size(), false);
+        HistoryAnalyzer.AnalysisResult reread = roundTrip(original);
+        assertEquals(describe(original), describe(reread));
+        assertEquals(original.idTable.pathCount(), reread.idTable.pathCount());
+    }
+
+    @Test
+    void mergedShardsMatchSinglePass() throws IOException {
+        Map<String, String> expected = describe(analyse(0, 9, false));
+
+        // Ogni partizione interna i simboli in un ordine diverso, come worker indipendenti.
+        HistoryAnalyzer.AnalysisResult first = roundTrip(analyse(0, 3, false));
+        HistoryAnalyzer.AnalysisResult second = roundTrip(analyse(3, 6, true));
+        HistoryAnalyzer.AnalysisResult third = roundTrip(analyse(6, 9, false));
+        assertEquals(expected, describe(first.mergeWith(second).mergeWith(third)));
+
+        HistoryAnalyzer.AnalysisResult left = roundTrip(analyse(0, 3, true));
+        HistoryAnalyzer.AnalysisResult right = roundTrip(analyse(3, 6, false)).mergeWith(roundTrip(analyse(6, 9, true)));
+        assertEquals(expected, describe(left.mergeWith(right)));
+    }
+
+    /**
+     * Storie deterministiche per i commit [from, to): ogni commit cambia alcuni metodi e file,
+     * uno su tre è un fix; il metodo d() compare solo dal quinto commit.
+     */
+    private HistoryAnalyzer.AnalysisResult analyse(int from, int to, boolean reversedSymbols) {
+        MethodIdTable idTable = new MethodIdTable();
+        int[] pathIds = new int[PATHS.length];
+        for (int p = 0; p < PATHS.length; p++) {
+            int index = reversedSymbols ? PATHS.length - 1 - p : p;
+            pathIds[index] = idTable.internPath(PATHS[index]);
+        }
+        HistoryStore histories = new InMemoryHistoryStore();
+        for (int c = from; c < to; c++) {
+            RevCommit commit = commits.get(c);
+            for (int p = 0; p < PATHS.length; p++) {
+                if ((c + p) % 2 == 0) {
+                    histories.addFileChange(pathIds[p], PATHS[p], commit, c + p + 1, p);
+                }
+                for (int s = 0; s < SIGNATURES.length; s++) {
+                    if (s == 3 && c < 4) continue;
+                    if ((c + p + s) % 3 == 0) continue;
+                    int methodId = idTable.internMethod(pathIds[p], SIGNATURES[s]);
+                    histories.addMethodChange(methodId, commit, c + s, p);
+                    if (c % 3 == 2) {
+                        histories.addMethodFix(methodId, commit);
+                        histories.addMethodFixCount(methodId, 1);
+                    }
+                }
+            }
+        }
+        return new HistoryAnalyzer.AnalysisResult(idTable, histories);
+    }
+
+    private HistoryAnalyzer.AnalysisResult roundTrip(HistoryAnalyzer.AnalysisResult result) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            HistoryShards.writeResult(result, out);
+        }
+        Map<ObjectId, RevCommit> commitCache = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return HistoryShards.readResult(in, revWalk, commitCache);
+        }
+    }
+
+    /** Vista indipendente dagli id: chiave del metodo o percorso -> storia in forma testuale. */
+    private static Map<String, String> describe(HistoryAnalyzer.AnalysisResult result) {
+        Map<String, String> view = new TreeMap<>();
+        result.histories.forEachMethodHistory((methodId, history) -> {
+            StringBuilder text = new StringBuilder("nFix=").append(history.getNFix()).append(" changes=");
+            history.getChanges().forEach(change -> text.append(change.commit.name(), 0, 7).append(':').append(change.churn).append(' '));
+            text.append("fixes=");
+            history.getBugFixCommits().forEach(commit -> text.append(commit.name(), 0, 7).append(' '));
+            view.put("M " + result.idTable.methodKey(methodId), text.toString());
+        });
+        result.histories.forEachFileHistory((pathId, history) -> {
+            StringBuilder text = new StringBuilder();
+            history.getChanges().forEach(change -> text.append(change.commit.name(), 0, 7).append(':').append(change.churn).append(' '));
+            view.put("F " + result.idTable.getPath(pathId) + " " + history.getFilePath(), text.toString());
+        });
+        return view;
+    }
+}
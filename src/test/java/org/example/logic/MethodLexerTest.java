@@ -0,0 +1,214 @@
+package org.example.logic;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Equivalenza fra MethodLexer e JavaParser, con lo stesso criterio della modalità
+ * LEXER_CHECKED di HistoryAnalyzer: stesse firme e stessi statement per metodo, con il testo
+ * di JavaParser riportato alla forma del lexer.
+ */
+class MethodLexerTest {
+
+    private final MethodLexer lexer = new MethodLexer();
+    private final JavaParser parser = new JavaParser(
+            new ParserConfiguration().setLanguageLevel(ReleaseMethodExtractor.LANGUAGE_LEVEL));
+
+    @Test
+    void plainClassMatchesParser() {
+        assertConform("""
+                package org.sample;
+
+                import java.util.List;
+                import java.util.Map;
+
+                public class Plain {
+                    private int counter;
+
+                    public Plain() {
+                        counter = 0;
+                    }
+
+                    public int sum(List<Integer> values) {
+                        int total = 0;
+                        for (int v : values) {
+                            total += v;
+                        }
+                        return total;
+                    }
+
+                    protected static <T> T first(List<T> items, Map<String, ? extends Number> weights) {
+                        if (items.isEmpty()) {
+                            return null;
+                        } else {
+                            return items.get(0);
+                        }
+                    }
+
+                    abstract static class Inner {
+                        abstract void run(int[] data, String... names);
+                    }
+
+                    private void empty() {
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void literalsAndCommentsDoNotConfuseTheLexer() {
+        assertConform("""
+                public class Literals {
+                    // void notAMethod() { }
+                    /* int fake(int x) { return x; } */
+                    String text() {
+                        String a = "{ not a block }";
+                        char b = '{';
+                        String c = \"""
+                            int inside() { return 1; }
+                            \""";
+                        return a + b + c;
+                    }
+
+                    int control(int value) {
+                        try {
+                            switch (value) {
+                                case 0: return 1;
+                                default: break;
+                            }
+                        } catch (RuntimeException e) {
+                            value = -1;
+                        } finally {
+                            value++;
+                        }
+                        do { value--; } while (value > 10);
+                        synchronized (this) { value *= 2; }
+                        Runnable r = () -> { int x = 1; };
+                        label: for (;;) { break label; }
+                        return value;
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void modernConstructsMatchParser() {
+        assertConform("""
+                public class Modern {
+                    record Point(int x, int y) {
+                        int sum() { return x + y; }
+                    }
+
+                    String describe(Object o) {
+                        if (o instanceof Point p) {
+                            return "p" + p.x();
+                        }
+                        return switch (o.hashCode() % 2) {
+                            case 0 -> "even";
+                            default -> {
+                                yield "odd";
+                            }
+                        };
+                    }
+
+                    @Deprecated
+                    @SuppressWarnings({"unchecked", "rawtypes"})
+                    public final synchronized void annotated(final @Deprecated int a) throws Exception {
+                        a++;
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void commentsInsideBodiesAreIgnored() {
+        assertConform("""
+                public class Commented {
+                    int compute(int a) {
+                        // commento di riga associato allo statement
+                        int b = a * 2; // commento in coda
+                        /* commento di blocco */
+                        if (b > 10) {
+                            /** javadoc fuori posto */
+                            b -= a;
+                        }
+                        return b;
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void statementTextHasOneSpaceBetweenTokens() {
+        Map<String, List<String>> methods = lexer.extractMethodStatements("""
+                class Text {
+                    int m(int a) {
+                        // ignorato
+                        int  b=a+1;
+                        return b;
+                    }
+                }
+                """);
+        assertEquals(List.of("int b = a + 1 ;", "return b ;"), methods.get("m(int)"));
+        assertEquals("int b = a + 1 ;", lexer.normalizeStatement("// ignorato\nint b = a + 1;"));
+    }
+
+    @Test
+    void anonymousClassIsLeftToTheParser() {
+        assertNull(lexer.extractMethodStatements("""
+                public class Anon {
+                    Runnable make() {
+                        return new Runnable() {
+                            public void run() { }
+                        };
+                    }
+                }
+                """));
+    }
+
+    @Test
+    void unbalancedSourceIsLeftToTheParser() {
+        assertNull(lexer.extractMethodStatements("public class Broken { void m() { if (true) { }"));
+    }
+
+    @Test
+    void emptySourceHasNoMethods() {
+        assertEquals(Collections.emptyMap(), lexer.extractMethodStatements(""));
+    }
+
+    private void assertConform(String source) {
+        Map<String, List<String>> expected = parse(source);
+        Map<String, List<String>> actual = lexer.extractMethodStatements(source);
+        assertNotNull(actual, "il lexer non deve rinunciare su questo sorgente");
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((signature, statements) -> assertEquals(
+                statements.stream().map(lexer::normalizeStatement).toList(), actual.get(signature), signature));
+    }
+
+    /** Stessa estrazione di HistoryAnalyzer: statement di primo livello del corpo, per firma. */
+    private Map<String, List<String>> parse(String source) {
+        ParseResult<CompilationUnit> result = parser.parse(source);
+        assertTrue(result.isSuccessful(), () -> result.getProblems().toString());
+        Map<String, List<String>> methods = new HashMap<>();
+        result.getResult().orElseThrow().findAll(MethodDeclaration.class).forEach(md ->
+                methods.put(md.getSignature().asString(), md.getBody()
+                        .map(body -> body.getStatements().stream().map(Statement::toString).toList())
+                        .orElse(Collections.emptyList())));
+        return methods;
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.services;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.example.config.GitStorageProfile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Misura il throughput di lettura casuale dei blob sotto ciascun profilo di storage Git.
+ * Raccoglie i blob .java delle ultime N revisioni, li legge in ordine casuale (seme fisso)
+ * e riporta blob/s e MB/s per ogni profilo, dopo un giro di riscaldamento.
+ * <p>
+ * Uso: {@code BlobThroughputBenchmark <repoPath> [numCommits] [rounds]}
+ * <p>
+ * Sta fra i sorgenti di test, così non finisce nel jar né nell'archivio AppCDS; si lancia con le
+ * classi di test nel classpath, per esempio
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.example.services.BlobThroughputBenchmark -Dexec.args=<repoPath>}.
+ */
+public class BlobThroughputBenchmark {
+    private static final Logger LOGGER = Logger.getLogger(BlobThroughputBenchmark.class.getName());
+    private static final long SEED = 42L;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            LOGGER.severe("Uso: BlobThroughputBenchmark <repoPath> [numCommits] [rounds]");
+            return;
+        }
+        Path repoPath = Paths.get(args[0]);
+        int numCommits = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+        List<ObjectId> blobs = collectBlobs(repoPath, numCommits);
+        Collections.shuffle(blobs, new Random(SEED));
+        LOGGER.log(Level.INFO, "Benchmark su {0} blob distinti ({1} commit, {2} giri per profilo).",
+                new Object[]{blobs.size(), numCommits, rounds});
+
+        for (GitStorageProfile profile : List.of(GitStorageProfile.DEFAULT, GitStorageProfile.TUNED, GitStorageProfile.MMAP)) {
+            GitService.applyStorageProfile(profile);
+            // Il repository si apre dopo l'installazione, così la cache dei pack parte dal nuovo profilo.
+            try (Repository repo = openRepository(repoPath); ObjectReader reader = repo.newObjectReader()) {
+                readAll(reader, blobs); // riscaldamento
+                long bytes = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    bytes += readAll(reader, blobs);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                LOGGER.log(Level.INFO, "{0}: {1} blob/s, {2} MB/s",
+                        new Object[]{profile.getName(),
+                                String.format("%.0f", blobs.size() * rounds / seconds),
+                                String.format("%.1f", bytes / seconds / (1024 * 1024))});
+            }
+        }
+    }
+
+    private static List<ObjectId> collectBlobs(Path repoPath, int numCommits) throws IOException {
+        Set<ObjectId> blobs = new LinkedHashSet<>();
+        try (Repository repo = openRepository(repoPath); RevWalk walk = new RevWalk(repo)) {
+            ObjectId head = repo.resolve(Constants.HEAD);
+            if (head == null) return new ArrayList<>();
+            walk.markStart(walk.parseCommit(head));
+            int seen = 0;
+            for (RevCommit commit : walk) {
+                if (seen++ >= numCommits) break;
+                try (TreeWalk treeWalk = new TreeWalk(repo)) {
+                    treeWalk.addTree(commit.getTree());
+                    treeWalk.setRecursive(true);
+                    while (treeWalk.next()) {
+                        if (treeWalk.getPathString().endsWith(".java")) {
+                            blobs.add(treeWalk.getObjectId(0));
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(blobs);
+    }
+
+    private static long readAll(ObjectReader reader, List<ObjectId> blobs) throws IOException {
+        long bytes = 0;
+        for (ObjectId blob : blobs) {
+            bytes += reader.open(blob, Constants.OBJ_BLOB).getBytes().length;
+        }
+        return bytes;
+    }
+
+    private static Repository openRepository(Path repoPath) throws IOException {
+        return new FileRepositoryBuilder().findGitDir(repoPath.toFile()).setMustExist(true).build();
+    }
+}
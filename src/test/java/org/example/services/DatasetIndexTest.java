@@ -0,0 +1,124 @@
+package org.example.services;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.example.model.DatasetRow;
+import org.example.model.MethodIdTable;
+import org.example.model.Release;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * L'indice scritto da {@link CsvWriterService} accanto al CSV completo deve restituire, per ogni
+ * MethodID, esattamente le righe che una lettura sequenziale del CSV attribuisce a quel metodo.
+ */
+class DatasetIndexTest {
+    private static final String PROJECT = "INDEX";
+    private static final List<String> RELEASES = List.of("1.0", "2.0-già", "3.0 \"beta\"");
+
+    @TempDir
+    Path dir;
+
+    private final MethodIdTable idTable = new MethodIdTable();
+
+    @Test
+    void indexMatchesSequentialScan() throws IOException {
+        List<Integer> methods = new ArrayList<>();
+        // Abbastanza metodi da avere collisioni nella tabella hash, più chiavi con virgole,
+        // virgolette e caratteri non ASCII che nel CSV finiscono fra virgolette.
+        for (int i = 0; i < 600; i++) {
+            methods.add(idTable.internMethod("src/p" + (i % 7) + "/C" + i + ".java", "m" + i + "()"));
+        }
+        int quoted = idTable.internMethod("src/Città.java", "put(Map<String, Integer>, \"x\")");
+        int duplicated = idTable.internMethod("src/Outer.java", "run()");
+        methods.add(quoted);
+
+        Path csv = dir.resolve("dataset.csv");
+        try (CsvWriterService writer = new CsvWriterService(csv.toString(), true)) {
+            writer.writeHeader(CsvWriterService.HEADER);
+            for (int r = 0; r < RELEASES.size(); r++) {
+                Release release = release(RELEASES.get(r), r);
+                for (int m = r; m < methods.size(); m++) { // ogni release perde qualche metodo
+                    writer.writeRow(row(methods.get(m), release, m * 10L + r));
+                }
+                // Due metodi con la stessa chiave (classi annidate): due righe per release.
+                writer.writeRow(row(duplicated, release, 1));
+                writer.writeRow(row(duplicated, release, 2));
+            }
+        }
+
+        Map<String, List<String[]>> expected = scan(csv);
+        try (DatasetIndex index = DatasetIndex.open(csv)) {
+            assertEquals(RELEASES, index.getReleaseNames());
+            assertEquals(expected.size(), index.getMethodCount());
+            for (Map.Entry<String, List<String[]>> entry : expected.entrySet()) {
+                List<String> lines = entry.getValue().stream().map(pair -> pair[1]).toList();
+                assertEquals(lines, index.readRows(entry.getKey(), null), entry.getKey());
+                List<String> releases = index.lookup(entry.getKey()).stream().map(row -> row.release).toList();
+                assertEquals(entry.getValue().stream().map(pair -> pair[0]).toList(), releases, entry.getKey());
+            }
+
+            String duplicatedKey = idTable.methodKey(duplicated);
+            assertEquals(2, index.readRows(duplicatedKey, "2.0-già").size());
+            assertEquals(1, index.readRows(idTable.methodKey(quoted), "3.0 \"beta\"").size());
+            assertTrue(index.readRows(idTable.methodKey(methods.get(0)), "2.0-già").isEmpty());
+            assertTrue(index.lookup("src/Missing.java/none()").isEmpty());
+        }
+    }
+
+    @Test
+    void staleIndexIsRejected() throws IOException {
+        Path csv = dir.resolve("dataset.csv");
+        try (CsvWriterService writer = new CsvWriterService(csv.toString(), true)) {
+            writer.writeHeader(CsvWriterService.HEADER);
+            writer.writeRow(row(idTable.internMethod("src/A.java", "a()"), release("1.0", 0), 1));
+        }
+        Files.writeString(csv, "INDEX,src/B.java/b(),1.0\r\n", StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> DatasetIndex.open(csv));
+    }
+
+    private DatasetRow row(int methodId, Release release, long seed) {
+        long[] features = new long[DatasetRow.FEATURE_NAMES.size()];
+        Arrays.fill(features, seed);
+        return new DatasetRow(PROJECT, methodId, idTable, release, features, seed % 2 == 0);
+    }
+
+    private static Release release(String name, int index) {
+        String raw = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+                + "author a <a@example.org> " + (1_600_000_000L + index * 86_400L) + " +0000\n"
+                + "committer a <a@example.org> " + (1_600_000_000L + index * 86_400L) + " +0000\n\n" + name + "\n";
+        return new Release(name, RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8)), index);
+    }
+
+    /** MethodID -> coppie (release, riga grezza del CSV), nell'ordine del file. */
+    private static Map<String, List<String[]>> scan(Path csv) throws IOException {
+        String content = Files.readString(csv, StandardCharsets.UTF_8);
+        String[] lines = content.split("\r\n");
+        Map<String, List<String[]>> rows = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            try (CSVParser parser = CSVParser.parse(lines[i], CSVFormat.DEFAULT)) {
+                CSVRecord csvRecord = parser.getRecords().get(0);
+                rows.computeIfAbsent(csvRecord.get(1), k -> new ArrayList<>())
+                        .add(new String[]{csvRecord.get(2), lines[i]});
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.services;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.example.model.DatasetRow;
+import org.example.model.MethodIdTable;
+import org.example.model.Release;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Andata e ritorno del formato delta: le stesse righe scritte sia da {@link CsvWriterService} sia da
+ * {@link DeltaCsvWriter}, poi il delta espanso da {@link DeltaDatasetReader} e confrontato con il
+ * CSV completo release per release. Il delta non conserva l'ordine delle righe dentro una release
+ * (i metodi nuovi finiscono in coda), quindi il confronto è sull'insieme delle righe.
+ */
+class DeltaDatasetReaderTest {
+    private static final String PROJECT = "DELTA";
+
+    @TempDir
+    Path dir;
+
+    private final MethodIdTable idTable = new MethodIdTable();
+    private final int a = idTable.internMethod("src/A.java", "a()");
+    private final int b = idTable.internMethod("src/B.java", "b(int)");
+    private final int c = idTable.internMethod("src/C.java", "c()");
+    // Due metodi con la stessa chiave (classi annidate nello stesso file) condividono il methodId.
+    private final int dup = idTable.internMethod("src/D.java", "run()");
+    private final int e = idTable.internMethod("src/E.java", "e(String)");
+
+    @Test
+    void expandedDeltaMatchesFullCsv() throws IOException {
+        List<List<DatasetRow>> releases = List.of(
+                List.of(row(a, 1, 10, false), row(b, 1, 20, false), row(c, 1, 30, true),
+                        row(dup, 1, 40, false), row(dup, 1, 41, false)),
+                // B cambia, C sparisce, E nuovo inserito a metà release.
+                List.of(row(a, 2, 10, false), row(b, 2, 21, false), row(e, 2, 50, false),
+                        row(dup, 2, 40, false), row(dup, 2, 41, false)),
+                // Nessun cambiamento.
+                List.of(row(a, 3, 10, false), row(b, 3, 21, false), row(e, 3, 50, false),
+                        row(dup, 3, 40, false), row(dup, 3, 41, false)),
+                // Cambia solo l'etichetta di A e una riga del gruppo duplicato; E sparisce, C ritorna.
+                List.of(row(a, 4, 10, true), row(b, 4, 21, false), row(c, 4, 31, false),
+                        row(dup, 4, 40, false), row(dup, 4, 42, false)),
+                // Il gruppo duplicato perde una riga.
+                List.of(row(a, 5, 10, true), row(b, 5, 21, false), row(c, 5, 31, false),
+                        row(dup, 5, 40, false)));
+
+        Path full = dir.resolve("full.csv");
+        Path delta = dir.resolve("delta.csv");
+        try (CsvWriterService fullWriter = new CsvWriterService(full.toString());
+             DeltaCsvWriter deltaWriter = new DeltaCsvWriter(delta.toString())) {
+            fullWriter.writeHeader(CsvWriterService.HEADER);
+            for (List<DatasetRow> rows : releases) {
+                for (DatasetRow row : rows) {
+                    fullWriter.writeRow(row);
+                    deltaWriter.writeRow(row);
+                }
+            }
+        }
+        Path expanded = dir.resolve("expanded.csv");
+        new DeltaDatasetReader(delta).expandTo(expanded);
+
+        assertEquals(Files.readAllLines(full, StandardCharsets.UTF_8).get(0),
+                Files.readAllLines(expanded, StandardCharsets.UTF_8).get(0));
+        Map<String, List<List<String>>> expected = rowsByRelease(full);
+        assertEquals(List.of("R1", "R2", "R3", "R4", "R5"), new ArrayList<>(expected.keySet()));
+        assertEquals(expected, rowsByRelease(expanded));
+
+        List<String> changes = readColumn(delta, DeltaCsvWriter.CHANGE_COLUMN);
+        // R1: marcatore + 5 righe; R2: marcatore, B, E, DELETE di C; R3: solo il marcatore;
+        // R4: marcatore, A, C, gruppo duplicato intero, DELETE di E; R5: marcatore, gruppo ridotto.
+        assertEquals(6 + 4 + 1 + 6 + 2, changes.size());
+        assertEquals(2, changes.stream().filter(DeltaCsvWriter.DELETE::equals).count());
+        assertEquals(5, changes.stream().filter(DeltaCsvWriter.RELEASE::equals).count());
+    }
+
+    @Test
+    void snapshotOfUnchangedReleaseRepeatsThePreviousOne() throws IOException {
+        Path delta = dir.resolve("delta.csv");
+        try (DeltaCsvWriter deltaWriter = new DeltaCsvWriter(delta.toString())) {
+            deltaWriter.writeRow(row(a, 1, 10, false));
+            deltaWriter.writeRow(row(b, 1, 20, true));
+            deltaWriter.writeRow(row(a, 2, 10, false));
+            deltaWriter.writeRow(row(b, 2, 20, true));
+        }
+        DeltaDatasetReader reader = new DeltaDatasetReader(delta);
+        List<List<String>> first = reader.snapshot("R1");
+        List<List<String>> second = reader.snapshot("R2");
+        assertEquals(2, second.size());
+        for (int i = 0; i < first.size(); i++) {
+            List<String> renamed = new ArrayList<>(first.get(i));
+            renamed.set(2, "R2");
+            assertEquals(renamed, second.get(i));
+        }
+        assertTrue(reader.snapshot("R9").isEmpty());
+    }
+
+    private DatasetRow row(int methodId, int release, long seed, boolean buggy) {
+        long[] features = new long[DatasetRow.FEATURE_NAMES.size()];
+        Arrays.fill(features, seed);
+        features[0] = seed * 3;
+        return new DatasetRow(PROJECT, methodId, idTable, release(release), features, buggy);
+    }
+
+    private static Release release(int index) {
+        String raw = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+                + "author a <a@example.org> " + (1_600_000_000L + index * 86_400L) + " +0000\n"
+                + "committer a <a@example.org> " + (1_600_000_000L + index * 86_400L) + " +0000\n\nR" + index + "\n";
+        return new Release("R" + index, RevCommit.parse(raw.getBytes(StandardCharsets.UTF_8)), index);
+    }
+
+    /** Righe del CSV per release (in ordine di apparizione), ordinate dentro ogni release. */
+    private static Map<String, List<List<String>>> rowsByRelease(Path csv) throws IOException {
+        Map<String, List<List<String>>> byRelease = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(csv);
+             CSVParser parser = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build().parse(reader)) {
+            for (CSVRecord csvRecord : parser) {
+                byRelease.computeIfAbsent(csvRecord.get(2), r -> new ArrayList<>()).add(csvRecord.toList());
+            }
+        }
+        Comparator<List<String>> byText = Comparator.comparing(List::toString);
+        byRelease.values().forEach(rows -> rows.sort(byText));
+        return byRelease;
+    }
+
+    private static List<String> readColumn(Path csv, String column) throws IOException {
+        List<String> values = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(csv);
+             CSVParser parser = CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build().parse(reader)) {
+            for (CSVRecord csvRecord : parser) {
+                values.add(csvRecord.get(column));
+            }
+        }
+        return values;
+    }
+}
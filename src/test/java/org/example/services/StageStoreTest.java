@@ -0,0 +1,115 @@
+package org.example.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Artefatti delle fasi: riuso solo con la stessa impronta, scritture atomiche (un artefatto
+ * interrotto non sostituisce quello precedente) e impronte sensibili a ordine e confini delle parti.
+ */
+class StageStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void artifactIsReusedOnlyWithTheSameFingerprint() throws IOException {
+        StageStore store = new StageStore(dir.resolve("stages"));
+        String fingerprint = StageStore.fingerprint("repo", 42, "LEXER");
+        assertNull(store.open("history", fingerprint));
+
+        store.write("history", fingerprint, out -> {
+            out.writeInt(3);
+            out.writeUTF("già");
+            out.writeLong(Long.MIN_VALUE);
+        });
+        DataInputStream in = store.open("history", fingerprint);
+        assertNotNull(in);
+        try {
+            assertEquals(3, in.readInt());
+            assertEquals("già", in.readUTF());
+            assertEquals(Long.MIN_VALUE, in.readLong());
+            assertEquals(-1, in.read());
+        } finally {
+            StageStore.closeQuietly(in);
+        }
+
+        assertNull(store.open("history", StageStore.fingerprint("repo", 43, "LEXER")));
+        assertNull(store.open("smells", fingerprint));
+
+        // Una riscrittura con impronta nuova sostituisce la precedente.
+        String changed = StageStore.fingerprint("repo", 43, "LEXER");
+        store.write("history", changed, out -> out.writeInt(7));
+        assertNull(store.open("history", fingerprint));
+        DataInputStream rewritten = store.open("history", changed);
+        try {
+            assertEquals(7, rewritten.readInt());
+        } finally {
+            StageStore.closeQuietly(rewritten);
+        }
+    }
+
+    @Test
+    void interruptedWriteKeepsThePreviousArtifact() throws IOException {
+        StageStore store = new StageStore(dir);
+        String fingerprint = StageStore.fingerprint("v1");
+        store.write("releases", fingerprint, out -> out.writeUTF("completa"));
+
+        assertThrows(IOException.class, () -> store.write("releases", StageStore.fingerprint("v2"), out -> {
+            out.writeUTF("parziale");
+            throw new IOException("interrotta");
+        }));
+        try (StageStore.PendingArtifact pending = store.create("releases", StageStore.fingerprint("v3"))) {
+            pending.out().writeUTF("mai confermata");
+        }
+
+        DataInputStream in = store.open("releases", fingerprint);
+        try {
+            assertEquals("completa", in.readUTF());
+        } finally {
+            StageStore.closeQuietly(in);
+        }
+        assertNull(store.open("releases", StageStore.fingerprint("v2")));
+        assertNull(store.open("releases", StageStore.fingerprint("v3")));
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(store.file("releases")), files.toList());
+        }
+    }
+
+    @Test
+    void truncatedArtifactIsIgnored() throws IOException {
+        StageStore store = new StageStore(dir);
+        String fingerprint = StageStore.fingerprint("x");
+        store.write("smells", fingerprint, out -> out.writeInt(1));
+        byte[] bytes = Files.readAllBytes(store.file("smells"));
+        Files.write(store.file("smells"), Arrays.copyOf(bytes, 10));
+        assertNull(store.open("smells", fingerprint));
+    }
+
+    @Test
+    void fingerprintDependsOnOrderAndBoundariesOfParts() {
+        String upstream = StageStore.fingerprint("catalog", 1);
+        assertEquals(upstream, StageStore.fingerprint("catalog", 1));
+        assertNotEquals(StageStore.fingerprint("a", "b"), StageStore.fingerprint("b", "a"));
+        assertNotEquals(StageStore.fingerprint("ab", "c"), StageStore.fingerprint("a", "bc"));
+        assertNotEquals(StageStore.fingerprint("a", null), StageStore.fingerprint("a"));
+        // Una fase a valle include l'impronta di quella da cui dipende.
+        assertNotEquals(StageStore.fingerprint(upstream, "pmd"),
+                StageStore.fingerprint(StageStore.fingerprint("catalog", 2), "pmd"));
+        assertFalse(upstream.isEmpty());
+    }
+}
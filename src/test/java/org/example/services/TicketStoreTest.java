@@ -0,0 +1,107 @@
+package org.example.services;
+
+import org.example.model.JiraTicket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Salvataggio e rilettura dell'archivio dei ticket lungo più sincronizzazioni: aggiunte,
+ * sostituzioni (che mantengono la posizione), rimozioni, date assenti e fusi diversi.
+ */
+class TicketStoreTest {
+    private static final String PROJECT = "STORE";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ticketsSurviveSeveralSynchronisations() throws IOException {
+        TicketStore store = TicketStore.load(dir, PROJECT);
+        assertNull(store.getLastSync());
+        assertTrue(store.getTickets().isEmpty());
+
+        // Prima sincronizzazione: recupero completo.
+        store.put(ticket("STORE-1", date(2020, 1, ZoneOffset.UTC), date(2020, 2, ZoneOffset.UTC), "1.0"));
+        store.put(ticket("STORE-2", date(2020, 3, ZoneOffset.ofHoursMinutes(5, 30)), null));
+        store.put(ticket("STORE-3", date(2020, 4, ZoneOffset.ofHours(-7)), date(2020, 5, ZoneOffset.ofHours(-7)),
+                "1.0", "2.0-già"));
+        Instant firstSync = Instant.parse("2021-01-01T00:00:00.123Z");
+        store.save(firstSync);
+
+        TicketStore reloaded = TicketStore.load(dir, PROJECT);
+        assertEquals(firstSync, reloaded.getLastSync());
+        assertSameTickets(store.getTickets(), reloaded.getTickets());
+
+        // Sincronizzazione incrementale: STORE-1 aggiornato, STORE-2 non più fixato, STORE-4 nuovo.
+        reloaded.put(ticket("STORE-1", date(2020, 1, ZoneOffset.UTC), date(2020, 6, ZoneOffset.UTC)));
+        reloaded.remove("STORE-2");
+        reloaded.put(ticket("STORE-4", date(2020, 7, ZoneOffset.UTC), date(2020, 8, ZoneOffset.UTC), "3.0"));
+        Instant secondSync = Instant.parse("2021-02-01T00:00:00Z");
+        reloaded.save(secondSync);
+
+        TicketStore again = TicketStore.load(dir, PROJECT);
+        assertEquals(secondSync, again.getLastSync());
+        assertEquals(List.of("STORE-1", "STORE-3", "STORE-4"),
+                again.getTickets().stream().map(JiraTicket::getKey).toList());
+        assertSameTickets(reloaded.getTickets(), again.getTickets());
+        assertEquals(date(2020, 6, ZoneOffset.UTC), again.getTickets().get(0).getResolutionDate());
+        assertTrue(again.getTickets().get(0).getAffectedVersionsStrings().isEmpty());
+    }
+
+    @Test
+    void unreadableOrForeignArchiveIsIgnored() throws IOException {
+        TicketStore other = TicketStore.load(dir.resolve("other"), "OTHER");
+        other.put(ticket("OTHER-1", date(2020, 1, ZoneOffset.UTC), null));
+        other.save(Instant.now());
+        Files.createDirectories(dir.resolve("foreign"));
+        Files.copy(other.getFile(), dir.resolve("foreign").resolve(PROJECT + ".tickets"));
+        TicketStore foreign = TicketStore.load(dir.resolve("foreign"), PROJECT);
+        assertNull(foreign.getLastSync());
+        assertTrue(foreign.getTickets().isEmpty());
+
+        TicketStore store = TicketStore.load(dir, PROJECT);
+        store.put(ticket("STORE-1", date(2020, 1, ZoneOffset.UTC), null));
+        store.save(Instant.now());
+        byte[] bytes = Files.readAllBytes(store.getFile());
+        Files.write(store.getFile(), Arrays.copyOf(bytes, bytes.length - 3));
+        TicketStore truncated = TicketStore.load(dir, PROJECT);
+        assertNull(truncated.getLastSync());
+        assertTrue(truncated.getTickets().isEmpty());
+    }
+
+    private static JiraTicket ticket(String key, ZonedDateTime created, ZonedDateTime resolved, String... versions) {
+        JiraTicket ticket = new JiraTicket(key, created, resolved);
+        ticket.setAffectedVersionsStrings(new ArrayList<>(List.of(versions)));
+        return ticket;
+    }
+
+    private static ZonedDateTime date(int year, int month, ZoneOffset offset) {
+        return ZonedDateTime.of(year, month, 10, 14, 30, 15, 250_000_000, offset);
+    }
+
+    private static void assertSameTickets(List<JiraTicket> expected, List<JiraTicket> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            JiraTicket e = expected.get(i);
+            JiraTicket a = actual.get(i);
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getCreationDate(), a.getCreationDate(), e.getKey());
+            assertEquals(e.getResolutionDate(), a.getResolutionDate(), e.getKey());
+            assertEquals(e.getAffectedVersionsStrings(), a.getAffectedVersionsStrings(), e.getKey());
+        }
+    }
+}